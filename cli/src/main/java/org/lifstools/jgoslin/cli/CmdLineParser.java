@@ -18,13 +18,13 @@ package org.lifstools.jgoslin.cli;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -57,11 +58,14 @@ import org.lifstools.jgoslin.domain.LipidSpeciesInfo;
 import org.lifstools.jgoslin.parser.BaseParserEventHandler;
 import org.lifstools.jgoslin.parser.FattyAcidParser;
 import org.lifstools.jgoslin.parser.GoslinParser;
+import org.lifstools.jgoslin.parser.GrammarRegistry;
 import org.lifstools.jgoslin.parser.HmdbParser;
 import org.lifstools.jgoslin.parser.LipidMapsParser;
 import org.lifstools.jgoslin.parser.LipidParser;
+import org.lifstools.jgoslin.parser.LipidParserResult;
 import org.lifstools.jgoslin.parser.Parser;
 import org.lifstools.jgoslin.parser.ShorthandParser;
+import org.lifstools.jgoslin.parser.StreamingLipidParser;
 import org.lifstools.jgoslin.parser.SwissLipidsParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -165,28 +169,36 @@ public class CmdLineParser {
                     return !t.isEmpty();
                 });
             }
-            List<Pair<String, List<ValidationResult>>> results = Collections.emptyList();
+            Stream<Pair<String, List<ValidationResult>>> results;
             if (line.hasOption(grammarOpt)) {
                 results = parseNamesWith(lipidNames, Grammar.valueOf(line.getOptionValue(grammarOpt)), stripWhitespace);
             } else {
                 results = parseNames(lipidNames, stripWhitespace);
             }
-            if (results.isEmpty()) {
-                log.info("No results generated. Please check input file or lipid names passed on the cli!");
-                System.exit(1);
-            }
-            if (toFile) {
-                log.debug("Saving output to 'goslin-out.tsv'.");
-                boolean successful = writeToFile(new File("goslin-out.tsv"), results);
-                if (!successful) {
-                    System.exit(1);
+            // the rows are spooled to a temporary file, since the columns are only known after the last row
+            Path spool = Files.createTempFile("jgoslin-", ".tsv");
+            boolean successful;
+            try {
+                LinkedHashSet<String> keys = new LinkedHashSet<>();
+                long rows;
+                try ( results) {
+                    rows = spoolRows(results, keys, spool);
                 }
-            } else {
-                log.debug("Echoing output to stdout.");
-                boolean successful = writeToStdOut(results);
-                if (!successful) {
-                    System.exit(1);
+                if (rows == 0) {
+                    log.info("No results generated. Please check input file or lipid names passed on the cli!");
+                    successful = false;
+                } else if (toFile) {
+                    log.debug("Saving output to 'goslin-out.tsv'.");
+                    successful = writeToFile(new File("goslin-out.tsv"), keys, spool);
+                } else {
+                    log.debug("Echoing output to stdout.");
+                    successful = writeToStdOut(keys, spool);
                 }
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+            if (!successful) {
+                System.exit(1);
             }
         }
     }
@@ -213,31 +225,41 @@ public class CmdLineParser {
         }
     }
 
-    private static boolean writeToStdOut(List<Pair<String, List<ValidationResult>>> results) {
+    private static boolean writeToStdOut(Set<String> keys, Path spool) {
 
-        try ( StringWriter sw = new StringWriter()) {
-            try ( BufferedWriter bw = new BufferedWriter(sw)) {
-                writeToWriter(bw, results);
-            }
-            sw.flush();
-            log.info(sw.toString());
+        try ( Stream<String> rows = Files.lines(spool)) {
+            log.info(String.join("\t", keys));
+            rows.forEach((t) -> {
+                log.info(padRow(t, keys.size()));
+            });
             return true;
-        } catch (IOException ex) {
+        } catch (IOException | UncheckedIOException ex) {
             log.error("Caught exception while trying to write validation results string!", ex);
             return false;
         }
     }
 
-    private static boolean writeToFile(File f, List<Pair<String, List<ValidationResult>>> results) {
+    private static boolean writeToFile(File f, Set<String> keys, Path spool) {
 
-        try ( BufferedWriter bw = Files.newBufferedWriter(f.toPath())) {
-            writeToWriter(bw, results);
+        try ( BufferedWriter bw = Files.newBufferedWriter(f.toPath()); Stream<String> rows = Files.lines(spool)) {
+            bw.write(String.join("\t", keys));
+            bw.newLine();
+            for (String row : (Iterable<String>) rows::iterator) {
+                bw.write(padRow(row, keys.size()));
+                bw.newLine();
+            }
             return true;
-        } catch (IOException ex) {
+        } catch (IOException | UncheckedIOException ex) {
             log.error("Caught exception while trying to write validation results to file " + f, ex);
             return false;
         }
     }
+
+    // rows spooled before the last column was added lack the trailing empty columns
+    private static String padRow(String row, int columns) {
+        int missing = columns - row.split("\t", -1).length;
+        return missing > 0 ? row + "\t".repeat(missing) : row;
+    }
     
     private static void initColumns(Map<String, String> map) {
         String[] columns = {
@@ -295,78 +317,95 @@ public class CmdLineParser {
         });
     }
 
-    private static String toTable(List<Pair<String, List<ValidationResult>>> results) {
-        StringBuilder sb = new StringBuilder();
-        HashSet<String> keys = new LinkedHashSet<>();
-        List<ValidationResult> validationResults = results.stream().map((t) -> {
-            return t.getValue();
-        }).flatMap(List::stream).toList();
-        List<Map<String, String>> entries = validationResults.stream().map((t) -> {
-            Map<String, String> m = new LinkedHashMap<>();
-            initColumns(m);
-            m.put("Normalized Name", Optional.ofNullable(t.canonicalName).orElse(""));
-            m.put("Original Name", t.lipidName);
-            m.put("Grammar", t.grammar.name());
-            m.put("Message", t.messages.stream().collect(Collectors.joining(" | ")));
-            if (t.lipidAdduct != null) {
-                m.put("Adduct", t.lipidAdduct.getAdduct() == null ? "" : t.lipidAdduct.getAdduct().getLipidString());
-                try {
-                    m.put("Sum Formula", t.lipidAdduct.getSumFormula());
-                } catch (ConstraintViolationException | NullPointerException cve) {
-                    log.debug("Could not calculate sum formula for lipid {}", t.lipidName);
-                    log.error("Exception:", cve);
-                    m.put("Sum Formula", "");
-                }
-                try {
-                    m.put("Mass", String.format(Locale.US, "%.4f", t.lipidAdduct.getMass()));
-                } catch (ConstraintViolationException | NullPointerException cve) {
-                    log.debug("Could not calculate mass for lipid {}", t.lipidName);
-                    log.error("Exception:", cve);
-                    m.put("Mass", "");
+    private static long spoolRows(Stream<Pair<String, List<ValidationResult>>> results, Set<String> keys, Path spool) throws IOException {
+        long rows = 0;
+        try ( BufferedWriter bw = Files.newBufferedWriter(spool)) {
+            for (ValidationResult t : (Iterable<ValidationResult>) results.flatMap((t) -> {
+                return t.getValue().stream();
+            })::iterator) {
+                Map<String, String> m = toRow(t);
+                // the keys keep their insertion order, so the columns of earlier rows keep their positions
+                keys.addAll(m.keySet());
+                List<String> l = new LinkedList();
+                for (String key : keys) {
+                    l.add(m.getOrDefault(key, ""));
                 }
-                m.put("Lipid Maps Category", t.lipidAdduct.getLipid().getHeadGroup().getLipidCategory().getFullName() + " [" + t.lipidAdduct.getLipid().getHeadGroup().getLipidCategory().name() + "]");
-                LipidClassMeta lclass = LIPID_CLASSES.get(t.lipidAdduct.getLipid().getInfo().lipidClass);
-                m.put("Lipid Maps Main Class", lclass.description);
-                String lclassAbbr = getLipidMapsClassAbbreviation(lclass.description);
-                m.put("Functional Class Abbr", lclassAbbr);
-                m.put("Functional Class Synonyms", "[" + lclass.synonyms.stream().collect(Collectors.joining(", ")) + "]");
-                m.put("Level", t.level.name());
-                m.put("Total #C", t.lipidSpeciesInfo.getNumCarbon() + "");
-                m.put("Total #DB", t.lipidSpeciesInfo.getDoubleBonds().getNumDoubleBonds() + "");
-                Map<String, ArrayList<FunctionalGroup>> functionalGroups = t.lipidSpeciesInfo.getFunctionalGroups();
-                for (String functionalGroupKey : functionalGroups.keySet()) {
-                    ArrayList<FunctionalGroup> fg = functionalGroups.get(functionalGroupKey);
+                bw.write(l.stream().collect(Collectors.joining("\t")));
+                bw.newLine();
+                ++rows;
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, String> toRow(ValidationResult t) {
+        Map<String, String> m = new LinkedHashMap<>();
+        initColumns(m);
+        m.put("Normalized Name", Optional.ofNullable(t.canonicalName).orElse(""));
+        m.put("Original Name", t.lipidName);
+        m.put("Grammar", t.grammar.name());
+        m.put("Message", t.messages.stream().collect(Collectors.joining(" | ")));
+        if (t.lipidAdduct != null) {
+            m.put("Adduct", t.lipidAdduct.getAdduct() == null ? "" : t.lipidAdduct.getAdduct().getLipidString());
+            try {
+                m.put("Sum Formula", t.lipidAdduct.getSumFormula());
+            } catch (ConstraintViolationException | NullPointerException cve) {
+                log.debug("Could not calculate sum formula for lipid {}", t.lipidName);
+                log.error("Exception:", cve);
+                m.put("Sum Formula", "");
+            }
+            try {
+                m.put("Mass", String.format(Locale.US, "%.4f", t.lipidAdduct.getMass()));
+            } catch (ConstraintViolationException | NullPointerException cve) {
+                log.debug("Could not calculate mass for lipid {}", t.lipidName);
+                log.error("Exception:", cve);
+                m.put("Mass", "");
+            }
+            m.put("Lipid Maps Category", t.lipidAdduct.getLipid().getHeadGroup().getLipidCategory().getFullName() + " [" + t.lipidAdduct.getLipid().getHeadGroup().getLipidCategory().name() + "]");
+            LipidClassMeta lclass = LIPID_CLASSES.get(t.lipidAdduct.getLipid().getInfo().lipidClass);
+            m.put("Lipid Maps Main Class", lclass.description);
+            String lclassAbbr = getLipidMapsClassAbbreviation(lclass.description);
+            m.put("Functional Class Abbr", lclassAbbr);
+            m.put("Functional Class Synonyms", "[" + lclass.synonyms.stream().collect(Collectors.joining(", ")) + "]");
+            m.put("Level", t.level.name());
+            m.put("Total #C", t.lipidSpeciesInfo.getNumCarbon() + "");
+            m.put("Total #DB", t.lipidSpeciesInfo.peekDoubleBonds().getNumDoubleBonds() + "");
+            Map<String, ArrayList<FunctionalGroup>> functionalGroups = t.lipidSpeciesInfo.peekFunctionalGroups();
+            for (String functionalGroupKey : functionalGroups.keySet()) {
+                ArrayList<FunctionalGroup> fg = functionalGroups.get(functionalGroupKey);
+                String fgCounts = fg.stream().map((sfg) -> {
+                    return "" + sfg.getCount();
+                }).collect(Collectors.joining("|"));
+                m.put("Total #" + functionalGroupKey, fgCounts);
+            }
+            for (FattyAcid fa : t.fattyAcids()) {
+                String faName = fa.getName();
+                m.put(faName + " SN Position", fa.getPosition() + "");
+                m.put(faName + " #C", fa.getNumCarbon() + "");
+                m.put(faName + " #DB", fa.peekDoubleBonds().getNumDoubleBonds() + "");
+                m.put(faName + " Bond Type", fa.getLipidFaBondType().name() + "");
+                String dbPositions = fa.peekDoubleBonds().getDoubleBondPositions().entrySet().stream().map((entry) -> {
+                    return entry.getKey() + "" + entry.getValue();
+                }).collect(Collectors.joining("|"));
+                m.put(faName + " DB Positions", dbPositions + "");
+                for (String functionalGroupKey : fa.peekFunctionalGroups().keySet()) {
+                    ArrayList<FunctionalGroup> fg = fa.peekFunctionalGroups().get(functionalGroupKey);
                     String fgCounts = fg.stream().map((sfg) -> {
                         return "" + sfg.getCount();
                     }).collect(Collectors.joining("|"));
                     m.put("Total #" + functionalGroupKey, fgCounts);
                 }
-                for (FattyAcid fa : t.fattyAcids()) {
-                    String faName = fa.getName();
-                    m.put(faName + " SN Position", fa.getPosition() + "");
-                    m.put(faName + " #C", fa.getNumCarbon() + "");
-                    m.put(faName + " #DB", fa.getDoubleBonds().getNumDoubleBonds() + "");
-                    m.put(faName + " Bond Type", fa.getLipidFaBondType().name() + "");
-                    String dbPositions = fa.getDoubleBonds().getDoubleBondPositions().entrySet().stream().map((entry) -> {
-                        return entry.getKey() + "" + entry.getValue();
-                    }).collect(Collectors.joining("|"));
-                    m.put(faName + " DB Positions", dbPositions + "");
-                    for (String functionalGroupKey : fa.getFunctionalGroups().keySet()) {
-                        ArrayList<FunctionalGroup> fg = fa.getFunctionalGroups().get(functionalGroupKey);
-                        String fgCounts = fg.stream().map((sfg) -> {
-                            return "" + sfg.getCount();
-                        }).collect(Collectors.joining("|"));
-                        m.put("Total #" + functionalGroupKey, fgCounts);
-                    }
-                }
-                m.put("Lipid Shorthand " + LipidLevel.CATEGORY.name(), nameForLevel(t.lipidAdduct, LipidLevel.CATEGORY));
-                m.put("Lipid Shorthand " + LipidLevel.CLASS.name(), nameForLevel(t.lipidAdduct, LipidLevel.CLASS));
-                m.put("Lipid Shorthand " + LipidLevel.SPECIES.name(), nameForLevel(t.lipidAdduct, LipidLevel.SPECIES));
-                m.put("Lipid Shorthand " + LipidLevel.MOLECULAR_SPECIES.name(), nameForLevel(t.lipidAdduct, LipidLevel.MOLECULAR_SPECIES));
-                m.put("Lipid Shorthand " + LipidLevel.SN_POSITION.name(), nameForLevel(t.lipidAdduct, LipidLevel.SN_POSITION));
-                m.put("Lipid Shorthand " + LipidLevel.STRUCTURE_DEFINED.name(), nameForLevel(t.lipidAdduct, LipidLevel.STRUCTURE_DEFINED));
-                m.put("Lipid Shorthand " + LipidLevel.FULL_STRUCTURE.name(), nameForLevel(t.lipidAdduct, LipidLevel.FULL_STRUCTURE));
-                m.put("Lipid Shorthand " + LipidLevel.COMPLETE_STRUCTURE.name(), nameForLevel(t.lipidAdduct, LipidLevel.COMPLETE_STRUCTURE));
+            }
+            // all names of the row are rendered together and cached on the lipid
+            Map<LipidLevel, String> lipidStrings = t.lipidAdduct.getLipidStrings();
+            m.put("Lipid Shorthand " + LipidLevel.CATEGORY.name(), lipidStrings.getOrDefault(LipidLevel.CATEGORY, ""));
+            m.put("Lipid Shorthand " + LipidLevel.CLASS.name(), lipidStrings.getOrDefault(LipidLevel.CLASS, ""));
+            m.put("Lipid Shorthand " + LipidLevel.SPECIES.name(), lipidStrings.getOrDefault(LipidLevel.SPECIES, ""));
+            m.put("Lipid Shorthand " + LipidLevel.MOLECULAR_SPECIES.name(), lipidStrings.getOrDefault(LipidLevel.MOLECULAR_SPECIES, ""));
+            m.put("Lipid Shorthand " + LipidLevel.SN_POSITION.name(), lipidStrings.getOrDefault(LipidLevel.SN_POSITION, ""));
+            m.put("Lipid Shorthand " + LipidLevel.STRUCTURE_DEFINED.name(), lipidStrings.getOrDefault(LipidLevel.STRUCTURE_DEFINED, ""));
+            m.put("Lipid Shorthand " + LipidLevel.FULL_STRUCTURE.name(), lipidStrings.getOrDefault(LipidLevel.FULL_STRUCTURE, ""));
+            m.put("Lipid Shorthand " + LipidLevel.COMPLETE_STRUCTURE.name(), lipidStrings.getOrDefault(LipidLevel.COMPLETE_STRUCTURE, ""));
 //            } else {
 //                m.put("Lipid Maps Category", "");
 //                m.put("Lipid Maps Main Class", "");
@@ -375,52 +414,27 @@ public class CmdLineParser {
 //                m.put("Level", "");
 //                m.put("Total #C", "");
 //                m.put("Total #DB", "");
-            }
-            keys.addAll(m.keySet());
-            return m;
-        }).toList();
-        sb.append(keys.stream().collect(Collectors.joining("\t"))).append("\n");
-        for (Map<String, String> m : entries) {
-            List<String> l = new LinkedList();
-            for (String key : keys) {
-                l.add(m.getOrDefault(key, ""));
-            }
-            sb.append(l.stream().collect(Collectors.joining("\t"))).append("\n");
         }
-        return sb.toString();
+        return m;
     }
 
-    private static String nameForLevel(LipidAdduct la, LipidLevel level) {
-        if (level.level <= la.getLipidLevel().level) {
-            return la.getLipidString(level);
-        }
-        return "";
-    }
-
-    private static void writeToWriter(BufferedWriter bw, List<Pair<String, List<ValidationResult>>> results) {
-        try {
-            bw.write(toTable(results));
-            bw.newLine();
-        } catch (IOException ex) {
-            log.error("Caught exception while trying to write validation results to buffered writer.", ex);
-        }
-    }
-
-    private static List<Pair<String, List<ValidationResult>>> parseNames(Stream<String> lipidNames, boolean stripWhitespace) {
-        LipidParser lipidParser = new LipidParser();
-        return lipidNames.map((t) -> {
-            return parseName(stripWhitespace ? t.strip() : t, lipidParser);
-        }).toList().stream().map((t) -> {
+    private static Stream<Pair<String, List<ValidationResult>>> parseNames(Stream<String> lipidNames, boolean stripWhitespace) {
+        StreamingLipidParser lipidParser = new StreamingLipidParser(new LipidParser());
+        return lipidParser.stream(lipidNames.map((t) -> {
+            return stripWhitespace ? t.strip() : t;
+        })).map((t) -> {
+            return parseName(t);
+        }).map((t) -> {
             return Pair.of(t.getKey(), Arrays.asList(t.getValue()));
-        }).toList();
+        });
     }
 
-    private static List<Pair<String, List<ValidationResult>>> parseNamesWith(Stream<String> lipidNames, Grammar grammar, boolean stripWhitespace) {
+    private static Stream<Pair<String, List<ValidationResult>>> parseNamesWith(Stream<String> lipidNames, Grammar grammar, boolean stripWhitespace) {
         return lipidNames.map((t) -> {
             return parseNameWith(stripWhitespace ? t.strip() : t, grammar);
-        }).toList().stream().map((t) -> {
+        }).map((t) -> {
             return Pair.of(t.getKey(), Arrays.asList(t.getValue()));
-        }).toList();
+        });
     }
 
     private static Pair<String, ValidationResult> parseNameWith(String lipidName, Grammar grammar) {
@@ -488,11 +502,12 @@ public class CmdLineParser {
         }
     }
 
-    private static Pair<String, ValidationResult> parseName(String lipidName, LipidParser parser) {
+    private static Pair<String, ValidationResult> parseName(LipidParserResult result) {
+        String lipidName = result.getLipidName();
         Pair<String, ValidationResult> shorthandResult = null;
         ValidationResult validationResult;
         try {
-            LipidAdduct la = parser.parse(lipidName);
+            LipidAdduct la = result.getLipidAdductOrThrow();
             String canonicalName;
             try {
                 canonicalName = la.getLipidString();
@@ -503,7 +518,7 @@ public class CmdLineParser {
             List<FattyAcid> fas = extractFas(la);
             validationResult = new ValidationResult(
                     lipidName,
-                    Grammar.valueOf(parser.getLastSuccessfulGrammar().toUpperCase()),
+                    Grammar.valueOf(result.getGrammar().get().toUpperCase()),
                     la.getLipidLevel(),
                     Arrays.asList(""),
                     la,
@@ -590,7 +605,7 @@ public class CmdLineParser {
 
     private static Map<Grammar, Parser<LipidAdduct>> loadParsers() {
         if (parsers.isEmpty()) {
-            KnownFunctionalGroups kfg = new KnownFunctionalGroups();
+            KnownFunctionalGroups kfg = GrammarRegistry.getKnownFunctionalGroups();
             for (Grammar grammar : Grammar.values()) {
                 switch (grammar) {
                     case FATTYACIDS ->
@@ -57,6 +57,7 @@ public final class AcylAlkylGroup extends FunctionalGroup {
 
     public void setAlkyl(boolean alkyl) {
         this.alkyl = alkyl;
+        modified();
     }
 
     public boolean isAlkyl() {
@@ -65,14 +66,15 @@ public final class AcylAlkylGroup extends FunctionalGroup {
 
     public void setNitrogenBond(boolean _N_bond) {
         nitrogenBond = _N_bond;
+        modified();
 
         if (nitrogenBond) {
-            elements.put(Element.H, (alkyl ? 2 : 0));
-            elements.put(Element.O, (alkyl ? -1 : 0));
-            elements.put(Element.N, 1);
+            elements.setCount(Element.H, (alkyl ? 2 : 0));
+            elements.setCount(Element.O, (alkyl ? -1 : 0));
+            elements.setCount(Element.N, 1);
         } else {
-            elements.put(Element.H, (alkyl ? 1 : -1));
-            elements.put(Element.O, (alkyl ? 0 : 1));
+            elements.setCount(Element.H, (alkyl ? 1 : -1));
+            elements.setCount(Element.O, (alkyl ? 0 : 1));
         }
     }
 
@@ -81,8 +83,7 @@ public final class AcylAlkylGroup extends FunctionalGroup {
     }
 
     @Override
-    public String toString(LipidLevel level) {
-        StringBuilder acyl_alkyl_string = new StringBuilder();
+    public StringBuilder appendTo(StringBuilder acyl_alkyl_string, LipidLevel level) {
         if (level == LipidLevel.FULL_STRUCTURE) {
             acyl_alkyl_string.append(getPosition());
         }
@@ -91,9 +92,9 @@ public final class AcylAlkylGroup extends FunctionalGroup {
             acyl_alkyl_string.append("FA ");
         }
         String key = alkyl ? "alkyl" : "acyl";
-        acyl_alkyl_string.append(((FattyAcid) functionalGroups.get(key).get(0)).toString(level)).append(")");
+        functionalGroups.get(key).get(0).appendName(acyl_alkyl_string, level).append(")");
 
-        return acyl_alkyl_string.toString();
+        return acyl_alkyl_string;
     }
 
 }
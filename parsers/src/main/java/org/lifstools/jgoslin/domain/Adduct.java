@@ -34,6 +34,8 @@ public final class Adduct {
     private int charge;
     private int chargeSign;
     private ElementTable heavyElements = new ElementTable();
+    // value of the modification sequence when this adduct was created or last modified, see Modifications
+    private long modification = Modifications.current();
 
     public static final Map<String, ElementTable> ADDUCTS = Map.ofEntries(
             entry("+H", ElementTable.of(Map.entry(Element.H, 1))),
@@ -79,15 +81,33 @@ public final class Adduct {
         setChargeSign(_sign);
     }
 
+    /**
+     * Returns a deep copy of this adduct, sharing no mutable state with it.
+     *
+     * @return the copy.
+     */
+    public Adduct copy() {
+        Adduct copy = new Adduct(sumFormula, adductString, charge, chargeSign);
+        copy.heavyElements = heavyElements.copy();
+        return copy;
+    }
+
     public void setSumFormula(String sumFormula) {
+        modification = Modifications.current();
         this.sumFormula = sumFormula;
     }
 
+    // the latest modification of this adduct, see Modifications
+    long lastModification() {
+        return modification;
+    }
+
     public String getSumFormula() {
         return this.sumFormula;
     }
 
     public void setAdductString(String adductString) {
+        modification = Modifications.current();
         this.adductString = adductString;
     }
 
@@ -96,10 +116,12 @@ public final class Adduct {
     }
     
     public ElementTable getHeavyElements(){
+        modification = Modifications.current();
         return heavyElements;
     }
 
     public void setChargeSign(int _sign) {
+        modification = Modifications.current();
         if (-1 <= _sign && _sign <= 1) {
             chargeSign = _sign;
         } else {
@@ -112,6 +134,7 @@ public final class Adduct {
     }
 
     public void setCharge(int charge) {
+        modification = Modifications.current();
         if (charge > 0) {
             this.chargeSign = 1;
         } else {
@@ -122,25 +145,39 @@ public final class Adduct {
     
     
     public String getHeavyIsotopeString(){
-        StringBuilder sb = new StringBuilder();
+        return appendHeavyIsotopes(new StringBuilder()).toString();
+    }
+
+    private StringBuilder appendHeavyIsotopes(StringBuilder sb) {
         for (Element e : Elements.ELEMENT_ORDER) {
             if (heavyElements.get(e) > 0){
                 if (heavyElements.get(e) == 1) sb.append(Elements.HEAVY_SHORTCUT.get(e));
                 else sb.append(Elements.HEAVY_SHORTCUT.get(e)).append(heavyElements.get(e));
             }
         }
-        return sb.toString();
+        return sb;
     }
     
 
     public String getLipidString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the adduct string, e.g. [M+H]1+, to the string builder, see
+     * {@link #getLipidString()}.
+     *
+     * @param sb the string builder to append to.
+     * @return the string builder.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        appendHeavyIsotopes(sb.append("[M"));
         if (charge == 0) {
-            return "[M" +getHeavyIsotopeString() + "]";
+            return sb.append("]");
         }
-        StringBuilder sb = new StringBuilder();
-        sb.append("[M").append(getHeavyIsotopeString()).append(sumFormula).append(adductString).append("]").append(charge).append(((chargeSign > 0) ? "+" : "-"));
+        sb.append(sumFormula).append(adductString).append("]").append(charge).append(((chargeSign > 0) ? "+" : "-"));
 
-        return sb.toString();
+        return sb;
     }
 
     @JsonIgnore
@@ -148,10 +185,10 @@ public final class Adduct {
         ElementTable elements = new ElementTable();
         
         for (Entry<Element, Integer> kv : heavyElements.entrySet()){
-            if (kv.getValue() > 0){
-                Element regular = Elements.HEAVY_TO_REGULAR.get(kv.getKey());
-                elements.put(regular, elements.get(regular) - kv.getValue());
-                elements.put(kv.getKey(), elements.get(kv.getKey()) + kv.getValue());
+            int count = kv.getValue();
+            if (count > 0){
+                elements.increment(Elements.HEAVY_TO_REGULAR.get(kv.getKey()), -count);
+                elements.increment(kv.getKey(), count);
             }
         }
         
@@ -40,8 +40,8 @@ public final class CarbonChain extends FunctionalGroup {
             functionalGroups.get("cc").add(_fa);
         }
 
-        elements.put(Element.H, 1);
-        elements.put(Element.O, -1);
+        elements.setCount(Element.H, 1);
+        elements.setCount(Element.O, -1);
     }
 
     @Override
@@ -50,8 +50,12 @@ public final class CarbonChain extends FunctionalGroup {
     }
 
     @Override
-    public String toString(LipidLevel level) {
-        return (LipidLevel.isLevel(level, LipidLevel.COMPLETE_STRUCTURE.level | LipidLevel.FULL_STRUCTURE.level) ? Integer.toString(getPosition()) : "") + "(" + ((FattyAcid) functionalGroups.get("cc").get(0)).toString(level) + ")";
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
+        if (LipidLevel.isLevel(level, LipidLevel.COMPLETE_STRUCTURE.level | LipidLevel.FULL_STRUCTURE.level)) {
+            sb.append(getPosition());
+        }
+        sb.append("(");
+        return functionalGroups.get("cc").get(0).appendName(sb, level).append(")");
     }
 
 }
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 
 /**
@@ -57,7 +58,7 @@ public final class Cycle extends FunctionalGroup {
         cycle = _cycle;
         start = _start;
         end = _end;
-        elements.put(Element.H, elements.get(Element.H) - 2);
+        elements.increment(Element.H, -2);
         bridgeChain = (_bridge_chain == null) ? new ArrayList<>() : _bridge_chain;
     }
 
@@ -87,6 +88,7 @@ public final class Cycle extends FunctionalGroup {
 
     public void setCycle(int cycle) {
         this.cycle = cycle;
+        modified();
     }
 
     public int getStart() {
@@ -95,6 +97,7 @@ public final class Cycle extends FunctionalGroup {
 
     public void setStart(int start) {
         this.start = start;
+        modified();
     }
 
     public int getEnd() {
@@ -103,6 +106,7 @@ public final class Cycle extends FunctionalGroup {
 
     public void setEnd(int end) {
         this.end = end;
+        modified();
     }
 
     public ArrayList<Element> getBridgeChain() {
@@ -122,45 +126,51 @@ public final class Cycle extends FunctionalGroup {
     }
 
     public void rearrangeFunctionalGroups(FunctionalGroup parent, int shift) {
+        // all state is accessed through the getters, which take ownership of state shared with a template
+        DoubleBonds parentDoubleBonds = parent.getDoubleBonds();
+        Map<String, ArrayList<FunctionalGroup>> parentFunctionalGroups = parent.getFunctionalGroupsInternal();
+
         // put everything back into parent
-        for (Entry<Integer, String> kv : doubleBonds.doubleBondPositions.entrySet()) {
-            parent.doubleBonds.doubleBondPositions.put(kv.getKey(), kv.getValue());
+        for (Entry<Integer, String> kv : getDoubleBonds().doubleBondPositions.entrySet()) {
+            parentDoubleBonds.doubleBondPositions.put(kv.getKey(), kv.getValue());
         }
-        doubleBonds = new DoubleBonds();
+        setDoubleBonds(new DoubleBonds());
 
-        for (Entry<String, ArrayList<FunctionalGroup>> kv : functionalGroups.entrySet()) {
-            if (!parent.functionalGroups.containsKey(kv.getKey())) {
-                parent.functionalGroups.put(kv.getKey(), new ArrayList<>());
+        for (Entry<String, ArrayList<FunctionalGroup>> kv : getFunctionalGroupsInternal().entrySet()) {
+            if (!parentFunctionalGroups.containsKey(kv.getKey())) {
+                parentFunctionalGroups.put(kv.getKey(), new ArrayList<>());
             }
-            parent.functionalGroups.get(kv.getKey()).addAll(functionalGroups.get(kv.getKey()));
+            parentFunctionalGroups.get(kv.getKey()).addAll(kv.getValue());
         }
-        functionalGroups = new HashMap<>();
+        setFunctionalGroups(new HashMap<>());
 
         // shift the cycle
         shiftPositions(shift);
 
         // take back what's mine# check double bonds
-        parent.doubleBonds.doubleBondPositions.entrySet().stream().filter(kv -> (start <= kv.getKey() && kv.getKey() <= end)).forEachOrdered(kv -> {
-            doubleBonds.doubleBondPositions.put(kv.getKey(), kv.getValue());
+        DoubleBonds cycleDoubleBonds = getDoubleBonds();
+        parentDoubleBonds.doubleBondPositions.entrySet().stream().filter(kv -> (start <= kv.getKey() && kv.getKey() <= end)).forEachOrdered(kv -> {
+            cycleDoubleBonds.doubleBondPositions.put(kv.getKey(), kv.getValue());
         });
-        doubleBonds.setNumDoubleBonds(doubleBonds.doubleBondPositions.size());
+        cycleDoubleBonds.setNumDoubleBonds(cycleDoubleBonds.doubleBondPositions.size());
 
-        doubleBonds.doubleBondPositions.entrySet().forEach(kv -> {
-            parent.doubleBonds.doubleBondPositions.remove(kv.getKey());
+        cycleDoubleBonds.doubleBondPositions.entrySet().forEach(kv -> {
+            parentDoubleBonds.doubleBondPositions.remove(kv.getKey());
         });
-        parent.doubleBonds.setNumDoubleBonds(parent.doubleBonds.doubleBondPositions.size());
+        parentDoubleBonds.setNumDoubleBonds(parentDoubleBonds.doubleBondPositions.size());
 
+        Map<String, ArrayList<FunctionalGroup>> cycleFunctionalGroups = getFunctionalGroupsInternal();
         HashSet<String> remove_list = new HashSet<>();
-        for (Entry<String, ArrayList<FunctionalGroup>> kv : parent.functionalGroups.entrySet()) {
+        for (Entry<String, ArrayList<FunctionalGroup>> kv : parentFunctionalGroups.entrySet()) {
             ArrayList<Integer> remove_item = new ArrayList<>();
 
             int i = 0;
             for (FunctionalGroup func_group : kv.getValue()) {
                 if (start <= func_group.getPosition() && func_group.getPosition() <= end && func_group != this) {
-                    if (!functionalGroups.containsKey(kv.getKey())) {
-                        functionalGroups.put(kv.getKey(), new ArrayList<>());
+                    if (!cycleFunctionalGroups.containsKey(kv.getKey())) {
+                        cycleFunctionalGroups.put(kv.getKey(), new ArrayList<>());
                     }
-                    functionalGroups.get(kv.getKey()).add(func_group);
+                    cycleFunctionalGroups.get(kv.getKey()).add(func_group);
                     remove_item.add(i);
                 }
                 ++i;
@@ -177,7 +187,7 @@ public final class Cycle extends FunctionalGroup {
         }
 
         for (String fg : remove_list) {
-            parent.functionalGroups.remove(fg);
+            parentFunctionalGroups.remove(fg);
         }
     }
 
@@ -197,37 +207,37 @@ public final class Cycle extends FunctionalGroup {
     @Override
     public void computeElements() {
         elements = new ElementTable();
-        elements.put(Element.H, -2 - 2 * doubleBonds.getNumDoubleBonds());
+        elements.setCount(Element.H, -2 - 2 * doubleBonds.getNumDoubleBonds());
 
         for (Element chain_element : bridgeChain) {
             try {
                 switch (chain_element) {
                     case C:
-                        elements.put(Element.C, elements.get(Element.C) + 1);
-                        elements.put(Element.H, elements.get(Element.H) + 2);
+                        elements.increment(Element.C, 1);
+                        elements.increment(Element.H, 2);
                         break;
 
                     case N:
-                        elements.put(Element.N, elements.get(Element.N) + 1);
-                        elements.put(Element.H, elements.get(Element.H) + 1);
+                        elements.increment(Element.N, 1);
+                        elements.increment(Element.H, 1);
                         break;
 
                     case P:
-                        elements.put(Element.P, elements.get(Element.P) + 1);
-                        elements.put(Element.H, elements.get(Element.H) + 1);
+                        elements.increment(Element.P, 1);
+                        elements.increment(Element.H, 1);
                         break;
 
                     case As:
-                        elements.put(Element.As, elements.get(Element.As) + 1);
-                        elements.put(Element.H, elements.get(Element.H) + 1);
+                        elements.increment(Element.As, 1);
+                        elements.increment(Element.H, 1);
                         break;
 
                     case O:
-                        elements.put(Element.O, elements.get(Element.O) + 1);
+                        elements.increment(Element.O, 1);
                         break;
 
                     case S:
-                        elements.put(Element.S, elements.get(Element.S) + 1);
+                        elements.increment(Element.S, 1);
                         break;
 
                 }
@@ -239,14 +249,13 @@ public final class Cycle extends FunctionalGroup {
         // add all implicit carbon chain elements
         if (start != -1 && end != -1) {
             int n = Math.max(0, cycle - (end - start + 1 + bridgeChain.size()));
-            elements.put(Element.C, elements.get(Element.C) + n);
-            elements.put(Element.H, elements.get(Element.H) + 2 * n);
+            elements.increment(Element.C, n);
+            elements.increment(Element.H, 2 * n);
         }
     }
 
     @Override
-    public String toString(LipidLevel level) {
-        StringBuilder cycle_string = new StringBuilder();
+    public StringBuilder appendTo(StringBuilder cycle_string, LipidLevel level) {
         cycle_string.append("[");
         if (start != -1 && LipidLevel.isLevel(level, LipidLevel.COMPLETE_STRUCTURE.level | LipidLevel.FULL_STRUCTURE.level)) {
             cycle_string.append(start).append("-").append(end);
@@ -298,7 +307,7 @@ public final class Cycle extends FunctionalGroup {
                     if (i++ > 0) {
                         cycle_string.append(",");
                     }
-                    cycle_string.append(func_group.toString(level));
+                    func_group.appendName(cycle_string, level);
                 }
             }
         } else if (level == LipidLevel.STRUCTURE_DEFINED) {
@@ -309,7 +318,7 @@ public final class Cycle extends FunctionalGroup {
                 ArrayList<FunctionalGroup> fg_list = functionalGroups.get(fg);
                 if (fg_list.size() > 0) {
                     if (fg_list.size() == 1 && fg_list.get(0).getCount() == 1) {
-                        cycle_string.append(";").append(fg_list.get(0).toString(level));
+                        fg_list.get(0).appendName(cycle_string.append(";"), level);
                     } else {
                         int fg_count = 0;
                         for (FunctionalGroup func_group : fg_list) {
@@ -330,6 +339,6 @@ public final class Cycle extends FunctionalGroup {
             cycle_string.append("[").append(getStereochemistry()).append("]");
         }
 
-        return cycle_string.toString();
+        return cycle_string;
     }
 }
@@ -26,7 +26,7 @@ import java.util.TreeMap;
  */
 public final class DoubleBonds {
 
-    private int numDoubleBonds;
+    protected int numDoubleBonds;
     protected final Map<Integer, String> doubleBondPositions;
 
     public DoubleBonds() {
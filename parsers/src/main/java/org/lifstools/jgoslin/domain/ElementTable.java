@@ -15,30 +15,60 @@
  */
 package org.lifstools.jgoslin.domain;
 
-import java.util.EnumMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Accounting table for chemical element frequency. This is used to calculate
  * sum formulas and total masses for a given chemical element distribution, e.g.
  * in a lipid.
  *
+ * The counts are kept in a primitive array indexed by the element ordinal. The
+ * count methods {@link #getCount(Element)}, {@link #setCount(Element, int)},
+ * {@link #increment(Element, int)}, the add methods and the mass calculations
+ * work on that array directly and do not allocate. The {@link java.util.Map}
+ * methods are a view of the same counts, with the elements of
+ * {@link Elements#ELEMENT_MASSES} as the initial keys.
+ *
  * @author Dominik Kopczynski
  * @author Nils Hoffmann
  */
-public final class ElementTable extends EnumMap<Element, Integer> {
+public final class ElementTable extends AbstractMap<Element, Integer> {
+
+    private static final Element[] ELEMENTS = Element.values();
+    private static final Element[] ELEMENT_ORDER = Elements.ELEMENT_ORDER.toArray(new Element[0]);
+    private static final double[] MASSES = new double[ELEMENTS.length];
+    private static final long DEFAULT_KEYS;
 
-    private ElementTable(Class<Element> keyType) {
-        super(keyType);
+    static {
+        long keys = 0;
+        for (Element e : Elements.ELEMENT_MASSES.keySet()) {
+            MASSES[e.ordinal()] = Elements.ELEMENT_MASSES.get(e);
+            keys |= 1L << e.ordinal();
+        }
+        DEFAULT_KEYS = keys;
     }
 
+    private final int[] counts;
+    // bit per element ordinal, set if the element is a key of the map view
+    private long keys;
+    private Set<Entry<Element, Integer>> entrySet;
+
     /**
      * Create a new element table.
      */
     public ElementTable() {
-        this(Element.class);
-        Elements.ELEMENT_MASSES.keySet().forEach(e -> {
-            put(e, 0);
-        });
+        this.counts = new int[ELEMENTS.length];
+        this.keys = DEFAULT_KEYS;
+    }
+
+    private ElementTable(ElementTable elements) {
+        this.counts = elements.counts.clone();
+        this.keys = elements.keys;
     }
 
     /**
@@ -49,20 +79,51 @@ public final class ElementTable extends EnumMap<Element, Integer> {
     public static ElementTable of(Entry<Element, Integer>... entries) {
         ElementTable et = new ElementTable();
         for (Entry<Element, Integer> e : entries) {
-            et.put(e.getKey(), e.getValue());
+            et.setCount(e.getKey(), e.getValue());
         }
         return et;
     }
 
+    /**
+     * Returns the count of the provided element.
+     *
+     * @param element the element.
+     * @return the count of the element, or 0.
+     */
+    public int getCount(Element element) {
+        return counts[element.ordinal()];
+    }
+
+    /**
+     * Sets the count of the provided element.
+     *
+     * @param element the element.
+     * @param count the new count.
+     */
+    public void setCount(Element element, int count) {
+        counts[element.ordinal()] = count;
+        keys |= 1L << element.ordinal();
+    }
+
+    /**
+     * Adds the provided, possibly negative, count to the count of the provided
+     * element.
+     *
+     * @param element the element.
+     * @param count the count to add.
+     */
+    public void increment(Element element, int count) {
+        counts[element.ordinal()] += count;
+        keys |= 1L << element.ordinal();
+    }
+
     /**
      * Add all elements and counts to those in this element table.
      *
      * @param elements the table to add to this one.
      */
     public void add(ElementTable elements) {
-        elements.entrySet().forEach(kv -> {
-            put(kv.getKey(), get(kv.getKey()) + kv.getValue());
-        });
+        add(elements, 1);
     }
 
     /**
@@ -73,9 +134,22 @@ public final class ElementTable extends EnumMap<Element, Integer> {
      * @param multiplier
      */
     public void add(ElementTable elements, int multiplier) {
-        elements.entrySet().forEach(kv -> {
-            put(kv.getKey(), get(kv.getKey()) + kv.getValue() * multiplier);
-        });
+        int[] other = elements.counts;
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] += other[i] * multiplier;
+        }
+        keys |= elements.keys;
+    }
+
+    /**
+     * Multiply all counts in this element table by the provided factor.
+     *
+     * @param factor the factor.
+     */
+    public void multiply(int factor) {
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] *= factor;
+        }
     }
 
     /**
@@ -85,13 +159,9 @@ public final class ElementTable extends EnumMap<Element, Integer> {
      * @return a copy of this element table.
      */
     public ElementTable copy() {
-        ElementTable e = new ElementTable();
-        entrySet().forEach(kv -> {
-            e.put(kv.getKey(), kv.getValue());
-        });
-        return e;
+        return new ElementTable(this);
     }
-    
+
     /**
      * Returns the sum formula for all elements in this table.
      *
@@ -99,14 +169,15 @@ public final class ElementTable extends EnumMap<Element, Integer> {
      */
     public String getSumFormula() {
         StringBuilder ss = new StringBuilder();
-        Elements.ELEMENT_ORDER.stream().map(e -> {
-            if (get(e) > 0) {
+        for (Element e : ELEMENT_ORDER) {
+            int count = counts[e.ordinal()];
+            if (count > 0) {
                 ss.append(Elements.ELEMENT_SHORTCUT.get(e));
+                if (count > 1) {
+                    ss.append(count);
+                }
             }
-            return e;
-        }).filter(e -> (get(e) > 1)).forEachOrdered(e -> {
-            ss.append(get(e));
-        });
+        }
         return ss.toString();
     }
 
@@ -117,8 +188,7 @@ public final class ElementTable extends EnumMap<Element, Integer> {
      * @return the total mass for the given element, or 0.
      */
     public Double getMass(Element element) {
-        Integer count = getOrDefault(element, 0);
-        return count.doubleValue() * Elements.ELEMENT_MASSES.get(element);
+        return counts[element.ordinal()] * MASSES[element.ordinal()];
     }
 
     /**
@@ -128,11 +198,13 @@ public final class ElementTable extends EnumMap<Element, Integer> {
      * table is empty.
      */
     public Double getMass() {
-        return keySet().stream().map((key) -> {
-            return getMass(key);
-        }).reduce(0.0d, Double::sum);
+        double mass = 0.0d;
+        for (int i = 0; i < counts.length; ++i) {
+            mass += counts[i] * MASSES[i];
+        }
+        return mass;
     }
-    
+
     /**
      * Returns the total summed mass per number of elements, corrected for charge counts * electron rest mass.
      *
@@ -141,10 +213,113 @@ public final class ElementTable extends EnumMap<Element, Integer> {
      * table is empty.
      */
     public Double getChargedMass(int charge) {
-        Double mass = getMass();
+        double mass = getMass();
         if (charge != 0) {
             mass = (mass - charge * Elements.ELECTRON_REST_MASS) / Math.abs(charge);
         }
         return mass;
     }
+
+    private boolean isKey(Object key) {
+        return key instanceof Element && (keys & (1L << ((Element) key).ordinal())) != 0;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        return isKey(key) ? counts[((Element) key).ordinal()] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return isKey(key);
+    }
+
+    @Override
+    public Integer put(Element key, Integer value) {
+        Integer previous = get(key);
+        setCount(key, value);
+        return previous;
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        Integer previous = get(key);
+        if (previous != null) {
+            int ordinal = ((Element) key).ordinal();
+            counts[ordinal] = 0;
+            keys &= ~(1L << ordinal);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(counts, 0);
+        keys = 0;
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(keys);
+    }
+
+    @Override
+    public Set<Entry<Element, Integer>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Element, Integer>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return ElementTable.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    // iterates the keys in element order, like an EnumMap
+    private final class EntryIterator implements Iterator<Entry<Element, Integer>> {
+
+        private int next = nextKey(0);
+        private int last = -1;
+
+        private int nextKey(int from) {
+            return from < ELEMENTS.length ? Long.numberOfTrailingZeros(keys >>> from) + from : ELEMENTS.length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < ELEMENTS.length;
+        }
+
+        @Override
+        public Entry<Element, Integer> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = nextKey(next + 1);
+            Element element = ELEMENTS[last];
+            return new SimpleEntry<>(element, counts[last]) {
+                @Override
+                public Integer setValue(Integer value) {
+                    super.setValue(value);
+                    return put(element, value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            ElementTable.this.remove(ELEMENTS[last]);
+            last = -1;
+        }
+    }
 }
@@ -102,8 +102,17 @@ public class FattyAcid extends FunctionalGroup {
         return new FattyAcid(getName(), numCarbon, db, fg, lipidFaBondType, getPosition(), knownFunctionalGroups);
     }
 
+    @Override
+    FunctionalGroup deepCopy() {
+        // copy() rejects the position -1 of fatty acids without a position
+        FattyAcid copy = (FattyAcid) deepCopyInto(new FattyAcid(getName(), numCarbon, null, null, lipidFaBondType, 0, knownFunctionalGroups));
+        copy.unresolvedHiddenFa = unresolvedHiddenFa;
+        return copy;
+    }
+
     public void setType(LipidFaBondType _lipid_FA_bond_type) {
         lipidFaBondType = _lipid_FA_bond_type;
+        modified();
         if (lipidFaBondType == LipidFaBondType.LCB_REGULAR && !functionalGroups.containsKey("[X]")) {
             functionalGroups.put("[X]", new ArrayList<>());
             functionalGroups.get("[X]").add(knownFunctionalGroups.get("X"));
@@ -136,19 +145,18 @@ public class FattyAcid extends FunctionalGroup {
     
 
     @Override
-    public String toString(LipidLevel level) {
-        StringBuilder fa_string = new StringBuilder();
-        fa_string.append(getPrefix(lipidFaBondType));
+    public StringBuilder appendTo(StringBuilder fa_string, LipidLevel level) {
         int num_carbons = numCarbon;
         int num_double_bonds = doubleBonds.getNumDoubleBonds();
 
         if (num_carbons == 0 && num_double_bonds == 0 && !LipidLevel.isLevel(level, LipidLevel.COMPLETE_STRUCTURE.level | LipidLevel.FULL_STRUCTURE.level | LipidLevel.STRUCTURE_DEFINED.level | LipidLevel.SN_POSITION.level)) {
-            return "";
+            return fa_string;
         }
 
+        fa_string.append(getPrefix(lipidFaBondType));
         if (LipidLevel.isLevel(level, LipidLevel.SN_POSITION.level | LipidLevel.MOLECULAR_SPECIES.level)) {
             ElementTable e = computeAndCopyElements();
-            num_carbons = e.get(Element.C);
+            num_carbons = e.getCount(Element.C);
             num_double_bonds = getNDoubleBonds() - ((lipidFaBondType == LipidFaBondType.ETHER_PLASMENYL) ? 1 : 0);
         }
 
@@ -202,7 +210,7 @@ public class FattyAcid extends FunctionalGroup {
                     if (i++ > 0) {
                         fa_string.append(",");
                     }
-                    fa_string.append(func_group.toString(level));
+                    func_group.appendName(fa_string, level);
                 }
             }
         } else if (level == LipidLevel.STRUCTURE_DEFINED) {
@@ -228,7 +236,7 @@ public class FattyAcid extends FunctionalGroup {
                         if (i++ > 0) {
                             fa_string.append(",");
                         }
-                        fa_string.append(func_group.toString(level));
+                        func_group.appendName(fa_string, level);
                     }
                 } else {
                     int fg_count = 0;
@@ -236,8 +244,10 @@ public class FattyAcid extends FunctionalGroup {
                         fg_count += func_group.getCount();
                     }
 
-                    if (fg_count > 1) {
-                        fa_string.append(";").append(!fg_list.get(0).atomic ? ("(" + fg + ")" + Integer.toString(fg_count)) : (fg + Integer.toString(fg_count)));
+                    if (fg_count > 1 && !fg_list.get(0).atomic) {
+                        fa_string.append(";(").append(fg).append(")").append(fg_count);
+                    } else if (fg_count > 1) {
+                        fa_string.append(";").append(fg).append(fg_count);
                     } else {
                         fa_string.append(";").append(fg);
                     }
@@ -257,7 +267,7 @@ public class FattyAcid extends FunctionalGroup {
             }
         }
 
-        return fa_string.toString();
+        return fa_string;
     }
 
     @JsonIgnore
@@ -267,7 +277,7 @@ public class FattyAcid extends FunctionalGroup {
 
         // subtract the invisible [X] functional group for regular LCBs
         if (lipidFaBondType == LipidFaBondType.LCB_REGULAR && functionalGroups.containsKey("O")) {
-            fgElements.put(Element.O, fgElements.get(Element.O) - 1);
+            fgElements.increment(Element.O, -1);
         }
 
         return fgElements;
@@ -278,8 +288,8 @@ public class FattyAcid extends FunctionalGroup {
         elements = new ElementTable();
         
         if (unresolvedHiddenFa){
-            elements.put(Element.O, 1);
-            elements.put(Element.H, -1);
+            elements.setCount(Element.O, 1);
+            elements.setCount(Element.H, -1);
             return;
         }
 
@@ -289,34 +299,34 @@ public class FattyAcid extends FunctionalGroup {
         }
 
         if (numCarbon == 0 && num_double_bonds == 0) {
-            elements.put(Element.H, 1);
+            elements.setCount(Element.H, 1);
             return;
         }
 
         if (lipidFaBondType != LipidFaBondType.LCB_EXCEPTION && lipidFaBondType != LipidFaBondType.LCB_REGULAR) {
-            elements.put(Element.C, numCarbon); // carbon
+            elements.setCount(Element.C, numCarbon); // carbon
             switch (lipidFaBondType) {
                 case ESTER:
-                    elements.put(Element.H, (2 * numCarbon - 1 - 2 * num_double_bonds)); // hydrogen
-                    elements.put(Element.O, 1); // oxygen
+                    elements.setCount(Element.H, (2 * numCarbon - 1 - 2 * num_double_bonds)); // hydrogen
+                    elements.setCount(Element.O, 1); // oxygen
                     break;
                 case ETHER_PLASMENYL:
-                    elements.put(Element.H, (2 * numCarbon - 1 - 2 * num_double_bonds + 2)); // hydrogen
+                    elements.setCount(Element.H, (2 * numCarbon - 1 - 2 * num_double_bonds + 2)); // hydrogen
                     break;
                 case ETHER, ETHER_PLASMANYL:
-                    elements.put(Element.H, ((numCarbon + 1) * 2 - 1 - 2 * num_double_bonds)); // hydrogen
+                    elements.setCount(Element.H, ((numCarbon + 1) * 2 - 1 - 2 * num_double_bonds)); // hydrogen
                     break;
                 case AMIDE:
-                    elements.put(Element.H, (2 * numCarbon + 1 - 2 * num_double_bonds) - 1); // hydrogen
+                    elements.setCount(Element.H, (2 * numCarbon + 1 - 2 * num_double_bonds) - 1); // hydrogen
                     break;
                 default:
                     throw new LipidException("Mass cannot be computed for fatty acyl chain with this bond type");
             }
         } else {
             // long chain base
-            elements.put(Element.C, numCarbon); // carbon
-            elements.put(Element.H, (2 * (numCarbon - num_double_bonds) + 1)); // hydrogen
-            elements.put(Element.N, 1); // nitrogen
+            elements.setCount(Element.C, numCarbon); // carbon
+            elements.setCount(Element.H, (2 * (numCarbon - num_double_bonds) + 1)); // hydrogen
+            elements.setCount(Element.N, 1); // nitrogen
         }
     }
 
@@ -326,6 +336,7 @@ public class FattyAcid extends FunctionalGroup {
 
     public void setNumCarbon(int numCarbon) {
         this.numCarbon = numCarbon;
+        modified();
     }
 
     public LipidFaBondType getLipidFaBondType() {
@@ -334,6 +345,7 @@ public class FattyAcid extends FunctionalGroup {
 
     public void setLipidFaBondType(LipidFaBondType lipidFaBondType) {
         this.lipidFaBondType = lipidFaBondType;
+        modified();
     }
     
 }
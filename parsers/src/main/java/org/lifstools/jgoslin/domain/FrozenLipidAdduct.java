@@ -0,0 +1,629 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.domain;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.lifstools.jgoslin.parser.GrammarRegistry;
+
+/**
+ * Compact, immutable form of a {@link LipidAdduct}, for keeping large numbers
+ * of parsed lipids in memory. The complete structure of the lipid, i.e. head
+ * group, fatty acyl chains, functional groups, double bonds, element counts
+ * and the adduct, is packed into a single byte array. Names of head groups,
+ * functional groups and other strings are kept in a bounded string pool and
+ * referenced by number, strings arriving after the pool is full are stored in
+ * the byte array. {@link #thaw()} restores an equivalent, mutable lipid
+ * adduct.
+ *
+ * Instances are created with {@link LipidAdduct#freeze()}, they are equal if
+ * they were created from lipid adducts with equal structures. Functional
+ * groups and fatty acyl chains are stored in the order of their names, so
+ * that the order of the maps holding them does not matter.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class FrozenLipidAdduct {
+
+    // the functional group classes
+    private static final int FUNCTIONAL_GROUP = 0;
+    private static final int HEADGROUP_DECORATOR = 1;
+    private static final int FATTY_ACID = 2;
+    private static final int LIPID_SPECIES_INFO = 3;
+    private static final int CYCLE = 4;
+    private static final int ACYL_ALKYL_GROUP = 5;
+    private static final int CARBON_CHAIN = 6;
+
+    private static final Element[] ELEMENTS = Element.values();
+    private static final LipidLevel[] LEVELS = LipidLevel.values();
+    private static final LipidCategory[] CATEGORIES = LipidCategory.values();
+    private static final LipidFaBondType[] BOND_TYPES = LipidFaBondType.values();
+    private static final List<Class<? extends LipidSpecies>> LIPID_TYPES = List.of(LipidSpecies.class, LipidMolecularSpecies.class, LipidSnPosition.class, LipidStructureDefined.class, LipidFullStructure.class, LipidCompleteStructure.class);
+
+    // strings referenced from the structures, the vocabulary of lipid names is small
+    private static final StringPool DEFAULT_POOL = new StringPool(1 << 16);
+    // the element keys of a new element table
+    private static final long NEW_TABLE_KEYS = new ElementTable().keySet().stream().mapToLong(e -> 1L << e.ordinal()).reduce(0, (a, b) -> a | b);
+
+    private final byte[] structure;
+    private final StringPool pool;
+    private final String className;
+    private final LipidLevel lipidLevel;
+    // rendered on first request
+    private volatile String lipidString;
+
+    private FrozenLipidAdduct(byte[] structure, StringPool pool, String className, LipidLevel lipidLevel) {
+        this.structure = structure;
+        this.pool = pool;
+        this.className = className;
+        this.lipidLevel = lipidLevel;
+    }
+
+    /**
+     * Strings referenced by number from frozen lipid adducts. Strings are
+     * added until the capacity is reached and never removed, so that a string
+     * is either always or never referenced by number, and equal structures
+     * are stored in equal byte arrays.
+     */
+    static final class StringPool {
+
+        private final int capacity;
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Integer, String> strings = new ConcurrentHashMap<>();
+
+        StringPool(int capacity) {
+            this.capacity = capacity;
+        }
+
+        // the number of the string, or -1 if the pool is full
+        int id(String s) {
+            Integer id = ids.get(s);
+            if (id == null) {
+                synchronized (this) {
+                    id = ids.get(s);
+                    if (id == null) {
+                        if (strings.size() >= capacity) {
+                            return -1;
+                        }
+                        id = strings.size();
+                        strings.put(id, s);
+                        ids.put(s, id);
+                    }
+                }
+            }
+            return id;
+        }
+
+        String string(int id) {
+            return strings.get(id);
+        }
+
+        int size() {
+            return strings.size();
+        }
+    }
+
+    static FrozenLipidAdduct of(LipidAdduct lipidAdduct) {
+        return of(lipidAdduct, DEFAULT_POOL);
+    }
+
+    static FrozenLipidAdduct of(LipidAdduct lipidAdduct, StringPool pool) {
+        Writer writer = new Writer(pool);
+        writer.writeLipidAdduct(lipidAdduct);
+        LipidSpecies lipid = lipidAdduct.getLipid();
+        String className = lipidAdduct.getClassName();
+        int classNameId = pool.id(className);
+        return new FrozenLipidAdduct(writer.toByteArray(), pool, classNameId >= 0 ? pool.string(classNameId) : className, lipid != null ? lipid.getLipidLevel() : LipidLevel.NO_LEVEL);
+    }
+
+    /**
+     * Returns a new lipid adduct with the structure of this frozen lipid
+     * adduct. Its functional groups refer to the known functional groups
+     * shared by the default parsers.
+     *
+     * @return the new lipid adduct.
+     */
+    public LipidAdduct thaw() {
+        return thaw(GrammarRegistry.getKnownFunctionalGroups());
+    }
+
+    /**
+     * Returns a new lipid adduct with the structure of this frozen lipid
+     * adduct.
+     *
+     * @param knownFunctionalGroups the known functional groups for the
+     * functional groups of the lipid to refer to.
+     * @return the new lipid adduct.
+     */
+    public LipidAdduct thaw(KnownFunctionalGroups knownFunctionalGroups) {
+        return new Reader(structure, pool, knownFunctionalGroups).readLipidAdduct();
+    }
+
+    /**
+     * Returns the class name of the lipid.
+     *
+     * @return the class name, or an empty string if there is no lipid.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Returns the level of the lipid.
+     *
+     * @return the lipid level.
+     */
+    public LipidLevel getLipidLevel() {
+        return lipidLevel;
+    }
+
+    /**
+     * Returns the normalized name of the lipid adduct on its native level.
+     * The name is rendered from a thawed copy on the first request and kept
+     * for later requests.
+     *
+     * @return the normalized lipid name.
+     */
+    public String getLipidString() {
+        String name = lipidString;
+        if (name == null) {
+            name = thaw().getLipidString();
+            lipidString = name;
+        }
+        return name;
+    }
+
+    /**
+     * Returns the number of bytes used for the packed structure.
+     *
+     * @return the size of the structure in bytes.
+     */
+    public int getStructureSize() {
+        return structure.length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FrozenLipidAdduct)) {
+            return false;
+        }
+        FrozenLipidAdduct other = (FrozenLipidAdduct) obj;
+        return pool == other.pool && Arrays.equals(structure, other.structure);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(structure);
+    }
+
+    @Override
+    public String toString() {
+        return getLipidString();
+    }
+
+    // variable length encoding of the structure, signed values are zigzag encoded
+    private static final class Writer extends ByteArrayOutputStream {
+
+        private final StringPool pool;
+
+        private Writer(StringPool pool) {
+            super(128);
+            this.pool = pool;
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeUnsigned(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeSigned(int value) {
+            writeUnsigned((value << 1) ^ (value >> 31));
+        }
+
+        private void writeBoolean(boolean value) {
+            write(value ? 1 : 0);
+        }
+
+        // 0 for null, 1 for a string not in the pool followed by its characters, otherwise its number + 2
+        private void writeString(String value) {
+            if (value == null) {
+                writeUnsigned(0);
+                return;
+            }
+            int id = pool.id(value);
+            if (id >= 0) {
+                writeUnsigned(id + 2);
+            } else {
+                writeUnsigned(1);
+                writeUnsigned(value.length());
+                for (int i = 0; i < value.length(); ++i) {
+                    writeUnsigned(value.charAt(i));
+                }
+            }
+        }
+
+        private void writeLipidAdduct(LipidAdduct lipidAdduct) {
+            LipidSpecies lipid = lipidAdduct.getLipid();
+            Adduct adduct = lipidAdduct.getAdduct();
+            writeBoolean(lipid != null);
+            if (lipid != null) {
+                writeLipid(lipid);
+            }
+            writeBoolean(adduct != null);
+            if (adduct != null) {
+                writeString(adduct.getSumFormula());
+                writeString(adduct.getAdductString());
+                writeSigned(adduct.getCharge());
+                writeSigned(adduct.getChargeSign());
+                writeElements(adduct.getHeavyElements());
+            }
+        }
+
+        private void writeLipid(LipidSpecies lipid) {
+            int type = LIPID_TYPES.indexOf(lipid.getClass());
+            if (type < 0) {
+                throw new ConstraintViolationException("Cannot freeze lipid of type '" + lipid.getClass().getName() + "'");
+            }
+            writeUnsigned(type);
+            writeHeadgroup(lipid.headGroup);
+            writeFunctionalGroup(lipid.info);
+            IdentityHashMap<FattyAcid, Integer> indices = new IdentityHashMap<>();
+            writeUnsigned(lipid.faList.size());
+            for (FattyAcid fattyAcid : lipid.faList) {
+                indices.putIfAbsent(fattyAcid, indices.size());
+                writeFunctionalGroup(fattyAcid);
+            }
+            // the fatty acids in the map are usually those of the list
+            writeUnsigned(lipid.fa.size());
+            for (String name : new TreeSet<>(lipid.fa.keySet())) {
+                writeString(name);
+                FattyAcid fattyAcid = lipid.fa.get(name);
+                Integer index = indices.get(fattyAcid);
+                writeUnsigned(index == null ? 0 : index + 1);
+                if (index == null) {
+                    writeFunctionalGroup(fattyAcid);
+                }
+            }
+        }
+
+        private void writeHeadgroup(Headgroup headgroup) {
+            writeString(headgroup.getHeadgroup());
+            writeUnsigned(headgroup.getLipidCategory().ordinal());
+            writeSigned(headgroup.getLipidClass());
+            writeBoolean(headgroup.isUseHeadgroup());
+            writeBoolean(headgroup.isSpException());
+            writeUnsigned(headgroup.getDecorators().size());
+            for (HeadgroupDecorator decorator : headgroup.getDecorators()) {
+                writeFunctionalGroup(decorator);
+            }
+        }
+
+        private void writeFunctionalGroup(FunctionalGroup fg) {
+            Class<?> type = fg.getClass();
+            if (type == FunctionalGroup.class) {
+                writeUnsigned(FUNCTIONAL_GROUP);
+            } else if (type == HeadgroupDecorator.class) {
+                HeadgroupDecorator decorator = (HeadgroupDecorator) fg;
+                writeUnsigned(HEADGROUP_DECORATOR);
+                writeBoolean(decorator.isSuffix());
+                writeUnsigned(decorator.getLowestVisibleLevel().ordinal());
+            } else if (type == FattyAcid.class) {
+                writeUnsigned(FATTY_ACID);
+                writeFattyAcid((FattyAcid) fg);
+            } else if (type == LipidSpeciesInfo.class) {
+                LipidSpeciesInfo info = (LipidSpeciesInfo) fg;
+                writeUnsigned(LIPID_SPECIES_INFO);
+                writeSigned(info.lipidClass);
+                writeUnsigned(info.getLevel().ordinal());
+                writeSigned(info.numEthers);
+                writeSigned(info.numSpecifiedFa);
+                writeSigned(info.possFa);
+                writeSigned(info.totalFa);
+                writeUnsigned(info.extendedClass.ordinal());
+                writeFattyAcid(info);
+            } else if (type == Cycle.class) {
+                Cycle cycle = (Cycle) fg;
+                writeUnsigned(CYCLE);
+                writeSigned(cycle.getCycle());
+                writeSigned(cycle.getStart());
+                writeSigned(cycle.getEnd());
+                writeUnsigned(cycle.getBridgeChain().size());
+                for (Element element : cycle.getBridgeChain()) {
+                    writeUnsigned(element.ordinal());
+                }
+            } else if (type == AcylAlkylGroup.class) {
+                AcylAlkylGroup group = (AcylAlkylGroup) fg;
+                writeUnsigned(ACYL_ALKYL_GROUP);
+                writeBoolean(group.isAlkyl());
+                writeBoolean(group.isNitrogenBond());
+            } else if (type == CarbonChain.class) {
+                writeUnsigned(CARBON_CHAIN);
+            } else {
+                throw new ConstraintViolationException("Cannot freeze functional group of type '" + type.getName() + "'");
+            }
+            writeString(fg.name);
+            writeSigned(fg.position);
+            writeSigned(fg.count);
+            writeString(fg.stereochemistry);
+            writeString(fg.ringStereo);
+            writeUnsigned((fg.atomic ? 1 : 0) | (fg.stereoBound ? 2 : 0));
+            writeSigned(fg.doubleBonds.numDoubleBonds);
+            writeUnsigned(fg.doubleBonds.doubleBondPositions.size());
+            for (Entry<Integer, String> kv : fg.doubleBonds.doubleBondPositions.entrySet()) {
+                writeSigned(kv.getKey());
+                writeString(kv.getValue());
+            }
+            writeElements(fg.elements);
+            writeUnsigned(fg.functionalGroups.size());
+            for (String key : new TreeSet<>(fg.functionalGroups.keySet())) {
+                ArrayList<FunctionalGroup> children = fg.functionalGroups.get(key);
+                writeString(key);
+                writeUnsigned(children.size());
+                for (FunctionalGroup child : children) {
+                    writeFunctionalGroup(child);
+                }
+            }
+        }
+
+        private void writeFattyAcid(FattyAcid fattyAcid) {
+            writeSigned(fattyAcid.numCarbon);
+            writeUnsigned(fattyAcid.lipidFaBondType.ordinal());
+            writeBoolean(fattyAcid.unresolvedHiddenFa);
+        }
+
+        // the keys only if they differ from those of a new table, then the non-zero counts
+        private void writeElements(ElementTable elements) {
+            long keys = 0;
+            int nonZero = 0;
+            for (Entry<Element, Integer> kv : elements.entrySet()) {
+                keys |= 1L << kv.getKey().ordinal();
+                nonZero += kv.getValue() != 0 ? 1 : 0;
+            }
+            boolean defaultKeys = keys == NEW_TABLE_KEYS;
+            writeUnsigned(nonZero << 1 | (defaultKeys ? 0 : 1));
+            if (!defaultKeys) {
+                writeVarLong(keys);
+            }
+            for (Entry<Element, Integer> kv : elements.entrySet()) {
+                if (kv.getValue() != 0) {
+                    writeUnsigned(kv.getKey().ordinal());
+                    writeSigned(kv.getValue());
+                }
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private final StringPool pool;
+        private final KnownFunctionalGroups knownFunctionalGroups;
+        private int offset = 0;
+
+        private Reader(byte[] data, StringPool pool, KnownFunctionalGroups knownFunctionalGroups) {
+            this.data = data;
+            this.pool = pool;
+            this.knownFunctionalGroups = knownFunctionalGroups;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private int readUnsigned() {
+            return (int) readVarLong();
+        }
+
+        private int readSigned() {
+            int value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private boolean readBoolean() {
+            return data[offset++] != 0;
+        }
+
+        private String readString() {
+            int id = readUnsigned();
+            if (id == 0) {
+                return null;
+            } else if (id > 1) {
+                return pool.string(id - 2);
+            }
+            char[] chars = new char[readUnsigned()];
+            for (int i = 0; i < chars.length; ++i) {
+                chars[i] = (char) readUnsigned();
+            }
+            return new String(chars);
+        }
+
+        private LipidAdduct readLipidAdduct() {
+            LipidSpecies lipid = readBoolean() ? readLipid() : null;
+            Adduct adduct = null;
+            if (readBoolean()) {
+                adduct = new Adduct(readString(), readString(), readSigned(), readSigned());
+                readElementsInto(adduct.getHeavyElements());
+            }
+            return new LipidAdduct(lipid, adduct);
+        }
+
+        private LipidSpecies readLipid() {
+            int type = readUnsigned();
+            Headgroup headgroup = readHeadgroup();
+            LipidSpeciesInfo info = (LipidSpeciesInfo) readFunctionalGroup();
+            int numFa = readUnsigned();
+            ArrayList<FattyAcid> faList = new ArrayList<>(numFa);
+            for (int i = 0; i < numFa; ++i) {
+                faList.add((FattyAcid) readFunctionalGroup());
+            }
+            int numNamedFa = readUnsigned();
+            HashMap<String, FattyAcid> fa = new HashMap<>();
+            for (int i = 0; i < numNamedFa; ++i) {
+                String name = readString();
+                int index = readUnsigned();
+                fa.put(name, index == 0 ? (FattyAcid) readFunctionalGroup() : faList.get(index - 1));
+            }
+            switch (type) {
+                case 0:
+                    return new LipidSpecies(headgroup, info, faList, fa);
+                case 1:
+                    return new LipidMolecularSpecies(headgroup, info, faList, fa);
+                case 2:
+                    return new LipidSnPosition(headgroup, info, faList, fa);
+                case 3:
+                    return new LipidStructureDefined(headgroup, info, faList, fa);
+                case 4:
+                    return new LipidFullStructure(headgroup, info, faList, fa);
+                default:
+                    return new LipidCompleteStructure(headgroup, info, faList, fa);
+            }
+        }
+
+        private Headgroup readHeadgroup() {
+            String name = readString();
+            LipidCategory category = CATEGORIES[readUnsigned()];
+            int lipidClass = readSigned();
+            boolean useHeadgroup = readBoolean();
+            boolean spException = readBoolean();
+            int numDecorators = readUnsigned();
+            ArrayList<HeadgroupDecorator> decorators = new ArrayList<>(numDecorators);
+            for (int i = 0; i < numDecorators; ++i) {
+                decorators.add((HeadgroupDecorator) readFunctionalGroup());
+            }
+            return new Headgroup(name, category, lipidClass, useHeadgroup, decorators, spException);
+        }
+
+        private FunctionalGroup readFunctionalGroup() {
+            FunctionalGroup fg;
+            switch (readUnsigned()) {
+                case FUNCTIONAL_GROUP:
+                    fg = new FunctionalGroup("", knownFunctionalGroups);
+                    break;
+                case HEADGROUP_DECORATOR:
+                    fg = new HeadgroupDecorator("", -1, 1, null, readBoolean(), LEVELS[readUnsigned()], knownFunctionalGroups);
+                    break;
+                case FATTY_ACID:
+                    fg = readFattyAcid(new FattyAcid("", knownFunctionalGroups));
+                    break;
+                case LIPID_SPECIES_INFO:
+                    LipidSpeciesInfo info = new LipidSpeciesInfo(readSigned(), knownFunctionalGroups);
+                    info.setLevel(LEVELS[readUnsigned()]);
+                    info.numEthers = readSigned();
+                    info.numSpecifiedFa = readSigned();
+                    info.possFa = readSigned();
+                    info.totalFa = readSigned();
+                    info.extendedClass = BOND_TYPES[readUnsigned()];
+                    fg = readFattyAcid(info);
+                    break;
+                case CYCLE:
+                    int cycle = readSigned();
+                    int start = readSigned();
+                    int end = readSigned();
+                    int bridgeLength = readUnsigned();
+                    ArrayList<Element> bridgeChain = new ArrayList<>(bridgeLength);
+                    for (int i = 0; i < bridgeLength; ++i) {
+                        bridgeChain.add(ELEMENTS[readUnsigned()]);
+                    }
+                    fg = new Cycle(cycle, start, end, null, null, bridgeChain, knownFunctionalGroups);
+                    break;
+                case ACYL_ALKYL_GROUP:
+                    fg = new AcylAlkylGroup(null, -1, 1, readBoolean(), readBoolean(), knownFunctionalGroups);
+                    break;
+                case CARBON_CHAIN:
+                    fg = new CarbonChain(null, knownFunctionalGroups);
+                    break;
+                default:
+                    throw new ConstraintViolationException("Unknown functional group type in frozen lipid");
+            }
+            fg.name = readString();
+            fg.position = readSigned();
+            fg.count = readSigned();
+            fg.stereochemistry = readString();
+            fg.ringStereo = readString();
+            int flags = readUnsigned();
+            fg.atomic = (flags & 1) != 0;
+            fg.stereoBound = (flags & 2) != 0;
+            fg.doubleBonds = new DoubleBonds(readSigned());
+            int numPositions = readUnsigned();
+            for (int i = 0; i < numPositions; ++i) {
+                fg.doubleBonds.doubleBondPositions.put(readSigned(), readString());
+            }
+            fg.elements = new ElementTable();
+            readElementsInto(fg.elements);
+            int numKeys = readUnsigned();
+            fg.functionalGroups = new HashMap<>();
+            for (int i = 0; i < numKeys; ++i) {
+                String key = readString();
+                int numGroups = readUnsigned();
+                ArrayList<FunctionalGroup> groups = new ArrayList<>(numGroups);
+                for (int j = 0; j < numGroups; ++j) {
+                    groups.add(readFunctionalGroup());
+                }
+                fg.functionalGroups.put(key, groups);
+            }
+            return fg;
+        }
+
+        private FattyAcid readFattyAcid(FattyAcid fattyAcid) {
+            fattyAcid.numCarbon = readSigned();
+            fattyAcid.lipidFaBondType = BOND_TYPES[readUnsigned()];
+            fattyAcid.unresolvedHiddenFa = readBoolean();
+            return fattyAcid;
+        }
+
+        private void readElementsInto(ElementTable elements) {
+            int header = readUnsigned();
+            if ((header & 1) != 0) {
+                long keys = readVarLong();
+                elements.clear();
+                for (Element element : ELEMENTS) {
+                    if ((keys & (1L << element.ordinal())) != 0) {
+                        elements.setCount(element, 0);
+                    }
+                }
+            }
+            for (int i = header >>> 1; i > 0; --i) {
+                elements.setCount(ELEMENTS[readUnsigned()], readSigned());
+            }
+        }
+    }
+}
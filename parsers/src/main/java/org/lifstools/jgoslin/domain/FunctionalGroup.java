@@ -17,6 +17,7 @@ package org.lifstools.jgoslin.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -40,6 +41,10 @@ public class FunctionalGroup {
     protected ElementTable elements;
     protected HashMap<String, ArrayList<FunctionalGroup>> functionalGroups;
     protected KnownFunctionalGroups knownFunctionalGroups;
+    // true while doubleBonds, elements and functionalGroups belong to a template of the known functional groups
+    private boolean shared = false;
+    // value of the modification sequence when this group was created or last modified, see Modifications
+    private long modification = Modifications.current();
 
     public FunctionalGroup(String _name, KnownFunctionalGroups knownFunctionalGroups) {
         this(_name, -1, 1, null, false, "", false, null, null, knownFunctionalGroups);
@@ -67,7 +72,87 @@ public class FunctionalGroup {
         this.knownFunctionalGroups = knownFunctionalGroups;
     }
 
+    /**
+     * Create a new functional group that shares the double bonds, elements
+     * and functional groups of the provided template until they are accessed
+     * for modification.
+     *
+     * @param template the template, which must not be modified afterwards.
+     */
+    protected FunctionalGroup(FunctionalGroup template) {
+        name = template.name;
+        position = template.position;
+        count = template.count;
+        stereochemistry = template.stereochemistry;
+        ringStereo = template.ringStereo;
+        doubleBonds = template.doubleBonds;
+        atomic = template.atomic;
+        stereoBound = template.stereoBound;
+        elements = template.elements;
+        functionalGroups = template.functionalGroups;
+        knownFunctionalGroups = template.knownFunctionalGroups;
+        shared = true;
+    }
+
+    /**
+     * Returns a copy of this functional group that shares its double bonds,
+     * elements and functional groups until either of them is accessed for
+     * modification. Used to hand out the templates of
+     * {@link KnownFunctionalGroups}.
+     *
+     * @return the copy.
+     */
+    FunctionalGroup sharedCopy() {
+        return new FunctionalGroup(this);
+    }
+
+    boolean isShared() {
+        return shared;
+    }
+
+    // takes ownership of the state shared with a template before it is modified
+    private void unshare() {
+        if (shared) {
+            shared = false;
+            doubleBonds = doubleBonds.copy();
+            elements = elements.copy();
+            HashMap<String, ArrayList<FunctionalGroup>> fg = new HashMap<>();
+            for (Entry<String, ArrayList<FunctionalGroup>> kv : functionalGroups.entrySet()) {
+                ArrayList<FunctionalGroup> groups = new ArrayList<>(kv.getValue().size());
+                for (FunctionalGroup func_group : kv.getValue()) {
+                    groups.add(func_group.copy());
+                }
+                fg.put(kv.getKey(), groups);
+            }
+            functionalGroups = fg;
+        }
+    }
+
+    // records a modification of this group, see Modifications
+    final void modified() {
+        modification = Modifications.current();
+    }
+
+    /**
+     * Returns the value of the modification sequence when this group or any
+     * of its functional groups was created or last modified.
+     *
+     * @return the latest modification.
+     */
+    long lastModification() {
+        long last = modification;
+        for (ArrayList<FunctionalGroup> groups : functionalGroups.values()) {
+            for (FunctionalGroup func_group : groups) {
+                last = Math.max(last, func_group.lastModification());
+            }
+        }
+        return last;
+    }
+
     public FunctionalGroup copy() {
+        if (shared) {
+            return sharedCopy();
+        }
         DoubleBonds db = doubleBonds.copy();
         HashMap<String, ArrayList<FunctionalGroup>> fg = new HashMap<>();
         functionalGroups.entrySet().stream().map(kv -> {
@@ -78,16 +163,40 @@ public class FunctionalGroup {
                 fg.get(kv.getKey()).add(func_group.copy());
             });
         });
-        ElementTable e = new ElementTable();
-        elements.entrySet().forEach(kv -> {
-            e.put(kv.getKey(), kv.getValue());
-        });
+        ElementTable e = elements.copy();
 
         FunctionalGroup func_group_new = new FunctionalGroup(name, position, count, db, atomic, stereochemistry, stereoBound, e, fg, knownFunctionalGroups);
         func_group_new.ringStereo = ringStereo;
         return func_group_new;
     }
     
+    // copy() keeps what is needed for templates and drops some state, e.g. the stereo chemistry, which is kept here
+    FunctionalGroup deepCopy() {
+        return deepCopyInto(copy());
+    }
+
+    FunctionalGroup deepCopyInto(FunctionalGroup copy) {
+        copy.name = name;
+        copy.position = position;
+        copy.count = count;
+        copy.stereochemistry = stereochemistry;
+        copy.ringStereo = ringStereo;
+        copy.doubleBonds = doubleBonds.copy();
+        copy.atomic = atomic;
+        copy.stereoBound = stereoBound;
+        copy.elements = elements.copy();
+        copy.functionalGroups = new HashMap<>();
+        copy.shared = false;
+        for (Entry<String, ArrayList<FunctionalGroup>> kv : functionalGroups.entrySet()) {
+            ArrayList<FunctionalGroup> groups = new ArrayList<>(kv.getValue().size());
+            for (FunctionalGroup func_group : kv.getValue()) {
+                groups.add(func_group.deepCopy());
+            }
+            copy.functionalGroups.put(kv.getKey(), groups);
+        }
+        return copy;
+    }
+
     public boolean stereoInformationMissing(){
         boolean missing = stereoBound && stereochemistry.isEmpty();
         for (ArrayList<FunctionalGroup> fgList : functionalGroups.values()){
@@ -102,6 +211,7 @@ public class FunctionalGroup {
 
     public void setName(String name) {
         this.name = name;
+        modified();
     }
 
     public String getName() {
@@ -110,6 +220,7 @@ public class FunctionalGroup {
 
     public void setStereoBound(boolean stereoBound) {
         this.stereoBound = stereoBound;
+        modified();
     }
 
     public boolean getStereoBound() {
@@ -118,6 +229,7 @@ public class FunctionalGroup {
 
     public void setPosition(int position) {
         this.position = position;
+        modified();
     }
 
     public int getPosition() {
@@ -126,6 +238,7 @@ public class FunctionalGroup {
 
     public void setCount(int count) {
         this.count = count;
+        modified();
     }
 
     public int getCount() {
@@ -139,6 +252,7 @@ public class FunctionalGroup {
 
     public void setStereochemistry(String stereochemistry) {
         this.stereochemistry = stereochemistry;
+        modified();
     }
 
     @JsonIgnore
@@ -148,18 +262,37 @@ public class FunctionalGroup {
 
     public void setRingStereo(String ringStereo) {
         this.ringStereo = ringStereo;
+        modified();
     }
 
     public DoubleBonds getDoubleBonds() {
+        unshare();
+        modified();
+        return this.doubleBonds;
+    }
+
+    /**
+     * Returns the double bonds for reading. In contrast to
+     * {@link #getDoubleBonds()}, double bonds shared with a template of the
+     * known functional groups are not copied, so the returned double bonds
+     * must not be modified.
+     *
+     * @return the double bonds by reference.
+     */
+    @JsonIgnore
+    public DoubleBonds peekDoubleBonds() {
         return this.doubleBonds;
     }
 
     public void setDoubleBonds(DoubleBonds doubleBonds) {
+        unshare();
+        modified();
         this.doubleBonds = doubleBonds;
     }
 
     public void setAtomic(boolean atomic) {
         this.atomic = atomic;
+        modified();
     }
 
     @JsonIgnore
@@ -169,10 +302,14 @@ public class FunctionalGroup {
 
     @JsonIgnore
     public ElementTable getElements() {
+        unshare();
+        modified();
         return this.elements;
     }
 
     public void setElements(ElementTable elements) {
+        unshare();
+        modified();
         this.elements = elements;
     }
 
@@ -186,6 +323,10 @@ public class FunctionalGroup {
 
     public void shiftPositions(int shift) {
         position += shift;
+        modified();
+        if (!functionalGroups.isEmpty()) {
+            unshare();
+        }
         functionalGroups.entrySet().forEach(kv -> {
             kv.getValue().forEach(fg -> {
                 fg.shiftPositions(shift);
@@ -214,17 +355,39 @@ public class FunctionalGroup {
      * @see #getFunctionalGroupsInternal() to obtain the internal datastructure by reference.
      */
     public Map<String, ArrayList<FunctionalGroup>> getFunctionalGroups() {
+        unshare();
+        modified();
         Map<String, ArrayList<FunctionalGroup>> mapCopy = new HashMap<>(functionalGroups);
         mapCopy.remove("[X]");
         return mapCopy;
     }
     
+    /**
+     * Returns an unmodifiable view of the functional groups for reading, with
+     * the virtual [X] group for regular LCBs removed. In contrast to
+     * {@link #getFunctionalGroups()}, functional groups shared with a template
+     * of the known functional groups are not copied, so the returned
+     * functional groups must not be modified.
+     * @return an unmodifiable view of the functional groups.
+     */
+    @JsonIgnore
+    public Map<String, ArrayList<FunctionalGroup>> peekFunctionalGroups() {
+        if (!functionalGroups.containsKey("[X]")) {
+            return Collections.unmodifiableMap(functionalGroups);
+        }
+        Map<String, ArrayList<FunctionalGroup>> mapCopy = new HashMap<>(functionalGroups);
+        mapCopy.remove("[X]");
+        return Collections.unmodifiableMap(mapCopy);
+    }
+
     /**
      * Returns the internal representation of the functional groups, including the virtual [X] group for regular LCBs.
      * @return the internal datastructure by reference.
      */
     @JsonIgnore
     public Map<String, ArrayList<FunctionalGroup>> getFunctionalGroupsInternal() {
+        unshare();
+        modified();
         return functionalGroups;
     }
 
@@ -233,6 +396,8 @@ public class FunctionalGroup {
      * @param functionalGroups the functional groups to set
      */
     public void setFunctionalGroups(HashMap<String, ArrayList<FunctionalGroup>> functionalGroups) {
+        unshare();
+        modified();
         this.functionalGroups = functionalGroups;
     }
 
@@ -258,21 +423,47 @@ public class FunctionalGroup {
     }
 
     public String toString(LipidLevel level) {
-        String fg_string = "";
+        return appendTo(new StringBuilder(), level).toString();
+    }
+
+    /**
+     * Appends the name of this functional group on the provided level to the
+     * string builder, see {@link #toString(LipidLevel)}. Subclasses customize
+     * their names by overriding this method. Names of subclasses overriding
+     * {@link #toString(LipidLevel)} instead are rendered through that method,
+     * when nested in other names.
+     *
+     * @param sb the string builder to append to.
+     * @param level the lipid level at which the name should be generated.
+     * @return the string builder.
+     */
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
         if (LipidLevel.isLevel(level, LipidLevel.COMPLETE_STRUCTURE.level | LipidLevel.FULL_STRUCTURE.level)) {
-            if ('0' <= name.charAt(0) && name.charAt(0) <= '9') {
-                fg_string = (position > -1) ? (Integer.toString(position) + ringStereo + "(" + name + ")") : name;
+            if (position > -1) {
+                sb.append(position).append(ringStereo);
+                if ('0' <= name.charAt(0) && name.charAt(0) <= '9') {
+                    sb.append("(").append(name).append(")");
+                } else {
+                    sb.append(name);
+                }
             } else {
-                fg_string = (position > -1) ? (Integer.toString(position) + ringStereo + name) : name;
+                sb.append(name);
             }
+        } else if (count > 1) {
+            sb.append("(").append(name).append(")").append(count);
         } else {
-            fg_string = (count > 1) ? ("(" + name + ")" + Integer.toString(count)) : name;
+            sb.append(name);
         }
         if (stereochemistry.length() > 0 && level == LipidLevel.COMPLETE_STRUCTURE) {
-            fg_string += "[" + stereochemistry + "]";
+            sb.append("[").append(stereochemistry).append("]");
         }
 
-        return fg_string;
+        return sb;
+    }
+
+    // appends the name of this group nested in another name, through toString(LipidLevel) if a subclass overrides it
+    final StringBuilder appendName(StringBuilder sb, LipidLevel level) {
+        return NameOverrides.FUNCTIONAL_GROUP_TO_STRING.get(getClass()) ? sb.append(toString(level)) : appendTo(sb, level);
     }
 
     public int getNDoubleBonds() throws ConstraintViolationException {
@@ -288,6 +479,10 @@ public class FunctionalGroup {
 
     public void addPosition(int pos) {
         position += (position >= pos) ? 1 : 0;
+        modified();
+        if (!functionalGroups.isEmpty()) {
+            unshare();
+        }
 
         functionalGroups.entrySet().forEach(kv -> {
             kv.getValue().forEach(fg -> {
@@ -20,10 +20,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import static java.util.Map.entry;
+import org.lifstools.jgoslin.parser.GrammarRegistry;
 
 /**
  * This class represents functional head groups of lipids. This is where the
@@ -34,11 +34,26 @@ import static java.util.Map.entry;
  */
 public final class Headgroup {
     
-    public final static HashMap<String, LipidCategory> StringCategory = new HashMap<>();
-    public final static HashMap<String, Integer> StringClass = new HashMap<>();
-    public final static HashMap<Integer, String> ClassString = new HashMap<>();
+    /**
+     * @deprecated unmodifiable view of the head group categories, use
+     * {@link #getCategory(String)}.
+     */
+    @Deprecated
+    public final static Map<String, LipidCategory> StringCategory = LipidClassIndex.getInstance().stringCategory();
+    /**
+     * @deprecated unmodifiable view of the head group classes, use
+     * {@link #getClass(String)}.
+     */
+    @Deprecated
+    public final static Map<String, Integer> StringClass = LipidClassIndex.getInstance().stringClass();
+    /**
+     * @deprecated unmodifiable view of the default head groups of the
+     * classes, use {@link #getClassString(int)}.
+     */
+    @Deprecated
+    public final static Map<Integer, String> ClassString = LipidClassIndex.getInstance().classString();
     public final static HashSet<String> exceptionHeadgroups = new HashSet<>(Arrays.asList("Cer", "SPB"));
-    private final static KnownFunctionalGroups knownFunctionalGroups = new KnownFunctionalGroups();
+    private final static KnownFunctionalGroups knownFunctionalGroups = GrammarRegistry.getKnownFunctionalGroups();
 
     private String headgroup;
     private LipidCategory lipidCategory;
@@ -46,6 +61,8 @@ public final class Headgroup {
     private boolean useHeadgroup;
     private ArrayList<HeadgroupDecorator> decorators = new ArrayList<>();
     private boolean spException;
+    // value of the modification sequence when this head group was created or last modified, see Modifications
+    private long modification = Modifications.current();
 
     public static final Map<LipidCategory, String> CategoryString = Map.ofEntries(
             entry(LipidCategory.NO_CATEGORY, "NO_CATEGORY"),
@@ -100,7 +117,7 @@ public final class Headgroup {
                     throw new LipidParsingException("Carbohydrate '" + carbohydrate + "' unknown");
                 }
 
-                functional_group.getElements().put(Element.O, functional_group.getElements().get(Element.O) - 1);
+                functional_group.getElements().increment(Element.O, -1);
                 decorators.add((HeadgroupDecorator) functional_group);
 
             }
@@ -117,44 +134,47 @@ public final class Headgroup {
         spException = (lipidCategory == LipidCategory.SP) && exceptionHeadgroups.contains(LipidClasses.getInstance().get(lipidClass).lipidClassName) && (decorators.isEmpty());
     }
 
-    public static LipidCategory getCategory(String _headgroup) {
-        if (StringCategory.isEmpty()) {
+    // restores a head group from its parts, see FrozenLipidAdduct
+    Headgroup(String headgroup, LipidCategory lipidCategory, int lipidClass, boolean useHeadgroup, ArrayList<HeadgroupDecorator> decorators, boolean spException) {
+        this.headgroup = headgroup;
+        this.lipidCategory = lipidCategory;
+        this.lipidClass = lipidClass;
+        this.useHeadgroup = useHeadgroup;
+        this.decorators = decorators;
+        this.spException = spException;
+    }
 
-            for (LipidClassMeta lipid_class : LipidClasses.getInstance()) {
-                LipidCategory category = lipid_class.lipidCategory;
-                lipid_class.synonyms.forEach(hg -> {
-                    StringCategory.put(hg, category);
-                });
-            }
+    private Headgroup(Headgroup other) {
+        headgroup = other.headgroup;
+        lipidCategory = other.lipidCategory;
+        lipidClass = other.lipidClass;
+        useHeadgroup = other.useHeadgroup;
+        for (HeadgroupDecorator hgd : other.decorators) {
+            decorators.add((HeadgroupDecorator) hgd.deepCopy());
         }
-
-        return StringCategory.containsKey(_headgroup) ? StringCategory.get(_headgroup) : LipidCategory.UNDEFINED;
+        spException = other.spException;
     }
 
-    public static int getClass(String _headgroup) {
+    /**
+     * Returns a deep copy of this head group, sharing no mutable state with
+     * it.
+     *
+     * @return the copy.
+     */
+    public Headgroup copy() {
+        return new Headgroup(this);
+    }
 
-        if (StringClass.isEmpty()) {
-            int l_class = 0;
-            for (LipidClassMeta lipid_class : LipidClasses.getInstance()) {
-                for (String hg : lipid_class.synonyms) {
-                    StringClass.put(hg, l_class);
-                }
-                l_class += 1;
-            }
-        }
+    public static LipidCategory getCategory(String _headgroup) {
+        return LipidClassIndex.getInstance().getCategory(_headgroup);
+    }
 
-        return StringClass.containsKey(_headgroup) ? (int) StringClass.get(_headgroup) : LipidClasses.UNDEFINED_CLASS;
+    public static int getClass(String _headgroup) {
+        return LipidClassIndex.getInstance().getLipidClass(_headgroup);
     }
 
     public static String getClassString(int _lipid_class) {
-        if (ClassString.isEmpty()) {
-            int l_class = 0;
-            for (LipidClassMeta lipid_class : LipidClasses.getInstance()) {
-                ClassString.put(l_class++, lipid_class.synonyms.get(0));
-            }
-        }
-
-        return ClassString.containsKey(_lipid_class) ? ClassString.get(_lipid_class) : "UNDEFINED";
+        return LipidClassIndex.getInstance().getClassString(_lipid_class);
     }
 
     @JsonGetter("lipidClass")
@@ -167,8 +187,21 @@ public final class Headgroup {
     }
 
     public String getLipidString(LipidLevel level) {
+        return appendTo(new StringBuilder(), level).toString();
+    }
+
+    /**
+     * Appends the head group string on the provided level, including its
+     * decorators, to the string builder, see {@link #getLipidString(LipidLevel)}.
+     *
+     * @param headgoup_string the string builder to append to.
+     * @param level the lipid level at which the head group string should be
+     * generated.
+     * @return the string builder.
+     */
+    public StringBuilder appendTo(StringBuilder headgoup_string, LipidLevel level) {
         if (level == LipidLevel.CATEGORY) {
-            return getCategoryString(lipidCategory);
+            return headgoup_string.append(getCategoryString(lipidCategory));
         }
 
         String hgs = useHeadgroup ? headgroup : getClassString(lipidClass);
@@ -179,8 +212,6 @@ public final class Headgroup {
         }
         */
 
-        StringBuilder headgoup_string = new StringBuilder();
-
         // adding prefixes to the headgroup
         if (!LipidLevel.isLevel(level, LipidLevel.COMPLETE_STRUCTURE.level | LipidLevel.FULL_STRUCTURE.level | LipidLevel.STRUCTURE_DEFINED.level)) {
             ArrayList<HeadgroupDecorator> decoratorsTmp = new ArrayList<>();
@@ -203,12 +234,12 @@ public final class Headgroup {
                 }
             }
             for (HeadgroupDecorator hge : decoratorsTmp) {
-                headgoup_string.append(hge.toString(level));
+                hge.appendName(headgoup_string, level);
             }
         } else {
             for (HeadgroupDecorator hgd : decorators) {
                 if (!hgd.isSuffix()) {
-                    headgoup_string.append(hgd.toString(level)).append("-");
+                    hgd.appendName(headgoup_string, level).append("-");
                 }
             }
         }
@@ -219,14 +250,14 @@ public final class Headgroup {
         // ading suffixes to the headgroup
         for (HeadgroupDecorator hgd : decorators) {
             if (hgd.isSuffix()) {
-                headgoup_string.append(hgd.toString(level));
+                hgd.appendName(headgoup_string, level);
             }
         }
         if (LipidLevel.isLevel(level, LipidLevel.COMPLETE_STRUCTURE.level | LipidLevel.FULL_STRUCTURE.level) && lipidCategory == LipidCategory.SP && !spException) {
             headgoup_string.append("(1)");
         }
 
-        return headgoup_string.toString();
+        return headgoup_string;
     }
 
     @JsonIgnore
@@ -250,6 +281,7 @@ public final class Headgroup {
     }
 
     public void setHeadgroup(String headgroup) {
+        modification = Modifications.current();
         this.headgroup = headgroup;
     }
 
@@ -258,6 +290,7 @@ public final class Headgroup {
     }
 
     public void setLipidCategory(LipidCategory lipidCategory) {
+        modification = Modifications.current();
         this.lipidCategory = lipidCategory;
     }
 
@@ -267,6 +300,7 @@ public final class Headgroup {
     }
 
     public void setLipidClass(int lipidClass) {
+        modification = Modifications.current();
         this.lipidClass = lipidClass;
     }
 
@@ -276,6 +310,7 @@ public final class Headgroup {
     }
 
     public void setUseHeadgroup(boolean useHeadgroup) {
+        modification = Modifications.current();
         this.useHeadgroup = useHeadgroup;
     }
 
@@ -285,15 +320,26 @@ public final class Headgroup {
     }
 
     public void setSpException(boolean spException) {
+        modification = Modifications.current();
         this.spException = spException;
     }
 
+    // the latest modification of this head group or its decorators, see Modifications
+    long lastModification() {
+        long last = modification;
+        for (HeadgroupDecorator decorator : decorators) {
+            last = Math.max(last, decorator.lastModification());
+        }
+        return last;
+    }
+
     @JsonIgnore
     public ArrayList<HeadgroupDecorator> getDecorators() {
         return decorators;
     }
 
     public void setDecorators(ArrayList<HeadgroupDecorator> decorators) {
+        modification = Modifications.current();
         this.decorators = decorators;
     }
 
@@ -15,7 +15,6 @@
  */
 package org.lifstools.jgoslin.domain;
 
-import java.util.Map.Entry;
 
 /**
  *
@@ -52,40 +51,53 @@ public final class HeadgroupDecorator extends FunctionalGroup implements Compara
         lowestVisibleLevel = _level;
     }
 
+    private HeadgroupDecorator(HeadgroupDecorator template) {
+        super(template);
+        suffix = template.suffix;
+        lowestVisibleLevel = template.lowestVisibleLevel;
+    }
+
+    @Override
+    FunctionalGroup sharedCopy() {
+        return new HeadgroupDecorator(this);
+    }
+
     @Override
     public FunctionalGroup copy() {
-        ElementTable e = new ElementTable();
-        for (Entry<Element, Integer> kv : computeAndCopyElements().entrySet()) {
-            e.put(kv.getKey(), e.get(kv.getKey()) + kv.getValue());
+        if (isShared()) {
+            return sharedCopy();
         }
+        ElementTable e = new ElementTable();
+        e.add(computeAndCopyElements());
         return new HeadgroupDecorator(getName(), getPosition(), getCount(), e, suffix, lowestVisibleLevel, knownFunctionalGroups);
     }
 
     @Override
-    public String toString(LipidLevel level) {
+    public StringBuilder appendTo(StringBuilder decorator_string, LipidLevel level) {
         if (!suffix) {
-            return getName() + (count > 1 ? Integer.toString(count) : "");
+            decorator_string.append(getName());
+            if (count > 1) {
+                decorator_string.append(count);
+            }
+            return decorator_string;
         }
-        String decorator_string = "";
         if ((lowestVisibleLevel == LipidLevel.NO_LEVEL) || (lowestVisibleLevel.level <= level.level)) {
-
+            decorator_string.append("(");
             if (functionalGroups.containsKey("decorator_alkyl")) {
-                if (functionalGroups.get("decorator_alkyl").size() > 0) {
-                    decorator_string = (level.level > LipidLevel.SPECIES.level) ? functionalGroups.get("decorator_alkyl").get(0).toString(level) : "Alk";
+                if (functionalGroups.get("decorator_alkyl").size() > 0 && level.level > LipidLevel.SPECIES.level) {
+                    functionalGroups.get("decorator_alkyl").get(0).appendName(decorator_string, level);
                 } else {
-                    decorator_string = "Alk";
+                    decorator_string.append("Alk");
                 }
             } else if (functionalGroups.containsKey("decorator_acyl")) {
-                if (functionalGroups.get("decorator_acyl").size() > 0) {
-                    decorator_string = (level.level > LipidLevel.SPECIES.level) ? ("FA " + functionalGroups.get("decorator_acyl").get(0).toString(level))
-                            : "FA";
-                } else {
-                    decorator_string = "FA";
+                decorator_string.append("FA");
+                if (functionalGroups.get("decorator_acyl").size() > 0 && level.level > LipidLevel.SPECIES.level) {
+                    functionalGroups.get("decorator_acyl").get(0).appendName(decorator_string.append(" "), level);
                 }
             } else {
-                decorator_string = getName();
+                decorator_string.append(getName());
             }
-            decorator_string = "(" + decorator_string + ")";
+            decorator_string.append(")");
         }
 
         return decorator_string;
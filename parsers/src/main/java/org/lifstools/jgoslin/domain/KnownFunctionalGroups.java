@@ -106,8 +106,17 @@ public final class KnownFunctionalGroups extends HashMap<String, FunctionalGroup
         loadData(lines, StringFunctions.getResourceAsStringList(new ClassPathResource("trivial_mediators.csv")), sumFormulaParser);
     }
 
+    /**
+     * Returns a new functional group for the provided name. The known
+     * functional groups are templates that are never modified, the returned
+     * group shares their double bonds, elements and nested functional groups
+     * until it accesses them for modification.
+     *
+     * @param s the functional group name.
+     * @return the new functional group.
+     */
     public FunctionalGroup get(String s) {
-        return super.get(s).copy();
+        return super.get(s).sharedCopy();
     }
 
     public HashMap<String, ArrayList<Integer>> getTmDb() {
@@ -16,7 +16,9 @@
 package org.lifstools.jgoslin.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import java.util.Map.Entry;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Base class for lipid names parsed using the different grammars. This can
@@ -29,23 +31,205 @@ public final class LipidAdduct {
 
     private final LipidSpecies lipid;
     private final Adduct adduct;
+    // values computed on first access, replaced on update and never modified,
+    // so that it may be read by any thread
+    private volatile Cache cache;
+
+    /**
+     * The element composition of a lipid adduct and the values derived from
+     * it.
+     */
+    private static final class Composition {
+
+        private final ElementTable elements;
+        private final double mass;
+        private final String sumFormula;
+
+        private Composition(ElementTable elements, int charge) {
+            this.elements = elements;
+            this.mass = elements.getChargedMass(charge);
+            this.sumFormula = elements.getSumFormula();
+        }
+    }
+
+    /**
+     * The values computed for a lipid adduct since the last modification of
+     * its parts, see {@link Modifications}.
+     */
+    private static final class Cache {
+
+        private final long modification;
+        private final Composition composition;
+        // normalized names indexed by the ordinal of their level
+        private final String[] names;
+
+        private Cache(long modification, Composition composition, String[] names) {
+            this.modification = modification;
+            this.composition = composition;
+            this.names = names;
+        }
+    }
 
     public LipidAdduct(LipidSpecies lipid, Adduct adduct) {
         this.lipid = lipid;
         this.adduct = adduct;
     }
 
+    /**
+     * Returns a deep copy of this lipid adduct, sharing no mutable state with
+     * it.
+     *
+     * @return the copy.
+     */
+    public LipidAdduct copy() {
+        return new LipidAdduct(lipid == null ? null : lipid.copy(), adduct == null ? null : adduct.copy());
+    }
+
+    /**
+     * Returns the compact, immutable form of this lipid adduct. Use it to
+     * keep large numbers of lipids in memory, and {@link FrozenLipidAdduct#thaw()}
+     * to get a mutable lipid adduct back.
+     *
+     * @return the frozen lipid adduct.
+     */
+    public FrozenLipidAdduct freeze() {
+        return FrozenLipidAdduct.of(this);
+    }
+
+    /**
+     * Discards the element composition, mass, sum formula and lipid names
+     * computed for this lipid adduct. They are computed on first access and
+     * computed again after the head group, a fatty acyl chain, a functional
+     * group or the adduct was modified through its setters or through the
+     * accessors returning its internal state. This must only be called after
+     * other modifications, e.g. removing a fatty acyl chain from
+     * {@link LipidSpecies#getFaList()} or modifying internal state obtained
+     * before the values were computed.
+     */
+    public void invalidate() {
+        cache = null;
+    }
+
+    // the latest modification of the parts of this lipid adduct
+    private long lastModification() {
+        long last = (lipid != null) ? lipid.lastModification() : 0;
+        return (adduct != null) ? Math.max(last, adduct.lastModification()) : last;
+    }
+
+    // the values computed since the last modification, or null if there are none
+    private Cache validCache() {
+        Cache c = cache;
+        return (c != null && lastModification() < c.modification) ? c : null;
+    }
+
+    // the values computed since the last modification, possibly none
+    private Cache currentCache() {
+        Cache c = validCache();
+        if (c == null) {
+            c = new Cache(Modifications.next(), null, new String[LipidLevel.values().length]);
+            cache = c;
+        }
+        return c;
+    }
+
+    private Composition getComposition() {
+        Cache c = currentCache();
+        if (c.composition == null) {
+            ElementTable elements = new ElementTable();
+            int charge = 0;
+
+            if (lipid != null) {
+                elements.add(lipid.getElements());
+            }
+
+            if (adduct != null) {
+                elements.add(adduct.getElements());
+                charge = adduct.getCharge();
+            }
+            c = new Cache(c.modification, new Composition(elements, charge), c.names);
+            cache = c;
+        }
+        return c.composition;
+    }
+
     public String getLipidString() {
         return getLipidString(LipidLevel.NO_LEVEL);
     }
 
+    /**
+     * Returns the normalized name of this lipid adduct on the provided level.
+     * The name is rendered on the first request for the level and then
+     * reused, see {@link #invalidate()}.
+     *
+     * @param level the lipid level at which the name should be generated.
+     * @return the normalized name.
+     */
     public String getLipidString(LipidLevel level) {
-        StringBuilder sb = new StringBuilder();
-        if (lipid != null) {
-            sb.append(lipid.getLipidString(level));
-        } else {
-            return "";
+        Cache c = currentCache();
+        String name = c.names[level.ordinal()];
+        if (name == null) {
+            name = renderLipidString(level);
+            String[] updated = c.names.clone();
+            updated[level.ordinal()] = name;
+            cache = new Cache(c.modification, c.composition, updated);
+        }
+        return name;
+    }
+
+    /**
+     * Returns the normalized names of this lipid adduct on its native level
+     * ({@link LipidLevel#NO_LEVEL}) and on every level from
+     * {@link LipidLevel#CATEGORY} up to the level of the lipid. Missing names
+     * are rendered together and reused by later requests, e.g. when writing
+     * all names of a lipid to a table.
+     *
+     * @return the names by level, levels that can not be rendered for the
+     * lipid are left out.
+     */
+    @JsonIgnore
+    public Map<LipidLevel, String> getLipidStrings() {
+        Cache c = currentCache();
+        String[] updated = c.names.clone();
+        EnumMap<LipidLevel, String> lipidStrings = new EnumMap<>(LipidLevel.class);
+        int maxLevel = (lipid != null) ? lipid.getLipidLevel().level : LipidLevel.NO_LEVEL.level;
+        for (LipidLevel level : LipidLevel.values()) {
+            if (level != LipidLevel.NO_LEVEL && (level.level < LipidLevel.CATEGORY.level || level.level > maxLevel)) {
+                continue;
+            }
+            if (updated[level.ordinal()] == null) {
+                try {
+                    updated[level.ordinal()] = renderLipidString(level);
+                } catch (IllegalArgumentException | LipidException e) {
+                    // not cached, rendered and reported on request
+                    continue;
+                }
+            }
+            lipidStrings.put(level, updated[level.ordinal()]);
         }
+        cache = new Cache(c.modification, c.composition, updated);
+        return Collections.unmodifiableMap(lipidStrings);
+    }
+
+    /**
+     * Appends the normalized name of this lipid adduct on the provided level
+     * to the string builder. Names already computed by
+     * {@link #getLipidString(LipidLevel)} are reused, otherwise the name is
+     * rendered directly into the string builder without being cached.
+     *
+     * @param sb the string builder to append to.
+     * @param level the lipid level at which the name should be generated.
+     * @return the string builder.
+     */
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
+        Cache c = validCache();
+        String name = (c != null) ? c.names[level.ordinal()] : null;
+        if (name != null) {
+            return sb.append(name);
+        }
+        if (lipid == null) {
+            return sb;
+        }
+        lipid.appendLipidString(sb, level);
 
         switch (level) {
             case CLASS:
@@ -54,12 +238,16 @@ public final class LipidAdduct {
 
             default:
                 if (adduct != null) {
-                    sb.append(adduct.getLipidString());
+                    adduct.appendTo(sb);
                 }
                 break;
         }
 
-        return sb.toString();
+        return sb;
+    }
+
+    private String renderLipidString(LipidLevel level) {
+        return appendTo(new StringBuilder(), level).toString();
     }
 
     public String getClassName() {
@@ -99,44 +287,26 @@ public final class LipidAdduct {
         return (lipid != null) ? lipid.getExtendedClass() : "";
     }
 
+    /**
+     * Returns the mass of this lipid adduct, corrected for the charge of the
+     * adduct. Computed on first access, see {@link #invalidate()}.
+     *
+     * @return the mass.
+     */
     public double getMass() {
-        ElementTable elements = getElements();
-        int charge = 0;
-        double mass = 0;
-
-        if (adduct != null) {
-            charge = adduct.getCharge();
-        }
-
-        for (Entry<Element, Integer> kvp : elements.entrySet()) {
-            mass += Elements.ELEMENT_MASSES.get(kvp.getKey()) * kvp.getValue();
-        }
-
-        if (charge != 0) {
-            mass = (mass - charge * Elements.ELECTRON_REST_MASS) / Math.abs(charge);
-        }
-
-        return mass;
+        return getComposition().mass;
     }
 
+    /**
+     * Returns the element composition of this lipid adduct. Computed on first
+     * access, see {@link #invalidate()}.
+     *
+     * @return a new element table, modifying it does not affect this lipid
+     * adduct.
+     */
     @JsonIgnore
     public ElementTable getElements() {
-        ElementTable elements = new ElementTable();
-
-        if (lipid != null) {
-            ElementTable lipid_elements = lipid.getElements();
-            for (Entry<Element, Integer> kv : lipid_elements.entrySet()) {
-                elements.put(kv.getKey(), elements.get(kv.getKey()) + kv.getValue());
-            }
-        }
-
-        if (adduct != null) {
-            ElementTable adduct_elements = adduct.getElements();
-            for (Entry<Element, Integer> kv : adduct_elements.entrySet()) {
-                elements.put(kv.getKey(), elements.get(kv.getKey()) + kv.getValue());
-            }
-        }
-        return elements;
+        return getComposition().elements.copy();
     }
 
     @Override
@@ -144,8 +314,14 @@ public final class LipidAdduct {
         return LipidAdduct.this.getLipidString();
     }
 
+    /**
+     * Returns the sum formula of this lipid adduct. Computed on first access,
+     * see {@link #invalidate()}.
+     *
+     * @return the sum formula.
+     */
     public String getSumFormula() {
-        return getElements().getSumFormula();
+        return getComposition().sumFormula;
     }
 
     public LipidSpecies getLipid() {
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.domain;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup index from head group synonyms to lipid classes and
+ * categories, built once from {@link LipidClasses}. Lookups may be done from
+ * any thread.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class LipidClassIndex {
+
+    private static final LipidClassIndex INSTANCE = new LipidClassIndex(LipidClasses.getInstance());
+
+    private final Map<String, Integer> stringClass;
+    private final Map<String, LipidCategory> stringCategory;
+    private final Map<Integer, String> classString;
+
+    LipidClassIndex(List<LipidClassMeta> lipidClasses) {
+        // like for a map, a synonym listed for several classes belongs to the last one
+        HashMap<String, Integer> _stringClass = new HashMap<>();
+        HashMap<String, LipidCategory> _stringCategory = new HashMap<>();
+        HashMap<Integer, String> _classString = new HashMap<>();
+        for (int l_class = 0; l_class < lipidClasses.size(); ++l_class) {
+            LipidClassMeta lipid_class = lipidClasses.get(l_class);
+            for (String hg : lipid_class.synonyms) {
+                _stringClass.put(hg, l_class);
+                _stringCategory.put(hg, lipid_class.lipidCategory);
+            }
+            _classString.put(l_class, lipid_class.synonyms.get(0));
+        }
+        stringClass = Map.copyOf(_stringClass);
+        stringCategory = Map.copyOf(_stringCategory);
+        classString = Map.copyOf(_classString);
+    }
+
+    public static LipidClassIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the lipid class of a head group synonym.
+     *
+     * @param headgroup the head group.
+     * @return the index of the lipid class in {@link LipidClasses}, or
+     * {@link LipidClasses#UNDEFINED_CLASS} for an unknown head group.
+     */
+    public int getLipidClass(String headgroup) {
+        // immutable maps reject null keys, which are unknown head groups here
+        return (headgroup != null) ? stringClass.getOrDefault(headgroup, LipidClasses.UNDEFINED_CLASS) : LipidClasses.UNDEFINED_CLASS;
+    }
+
+    /**
+     * Returns the lipid category of a head group synonym.
+     *
+     * @param headgroup the head group.
+     * @return the lipid category, or {@link LipidCategory#UNDEFINED} for an
+     * unknown head group.
+     */
+    public LipidCategory getCategory(String headgroup) {
+        return (headgroup != null) ? stringCategory.getOrDefault(headgroup, LipidCategory.UNDEFINED) : LipidCategory.UNDEFINED;
+    }
+
+    /**
+     * Returns the default head group of a lipid class, which is its first
+     * synonym.
+     *
+     * @param lipidClass the index of the lipid class in {@link LipidClasses}.
+     * @return the default head group, or "UNDEFINED" for an unknown lipid
+     * class.
+     */
+    public String getClassString(int lipidClass) {
+        return classString.getOrDefault(lipidClass, "UNDEFINED");
+    }
+
+    // the unmodifiable maps behind the lookups, see Headgroup.StringClass
+    Map<String, Integer> stringClass() {
+        return stringClass;
+    }
+
+    Map<String, LipidCategory> stringCategory() {
+        return stringCategory;
+    }
+
+    Map<Integer, String> classString() {
+        return classString;
+    }
+}
@@ -15,8 +15,10 @@
  */
 package org.lifstools.jgoslin.domain;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 
 /**
  * Complete structure level according to the 2020 update of the Liebisch
@@ -37,6 +39,20 @@ public class LipidCompleteStructure extends LipidFullStructure {
         info.setLevel(LipidLevel.COMPLETE_STRUCTURE);
     }
 
+    // restores a lipid from its parts, see FrozenLipidAdduct
+    LipidCompleteStructure(Headgroup headGroup, LipidSpeciesInfo info, ArrayList<FattyAcid> faList, HashMap<String, FattyAcid> fa) {
+        super(headGroup, info, faList, fa);
+    }
+
+    protected LipidCompleteStructure(LipidCompleteStructure other) {
+        super(other);
+    }
+
+    @Override
+    public LipidCompleteStructure copy() {
+        return new LipidCompleteStructure(this);
+    }
+
     @Override
     public LipidLevel getLipidLevel() {
         return LipidLevel.COMPLETE_STRUCTURE;
@@ -48,13 +64,13 @@ public class LipidCompleteStructure extends LipidFullStructure {
     }
 
     @Override
-    public String getLipidString(LipidLevel level) {
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
         switch (level) {
             case NO_LEVEL, COMPLETE_STRUCTURE -> {
-                return super.buildLipidSubspeciesName(LipidLevel.COMPLETE_STRUCTURE);
+                return appendSubspeciesName(sb, LipidLevel.COMPLETE_STRUCTURE);
             }
             case FULL_STRUCTURE, STRUCTURE_DEFINED, SN_POSITION, MOLECULAR_SPECIES, SPECIES, CATEGORY, CLASS -> {
-                return super.getLipidString(level);
+                return super.appendTo(sb, level);
             }
 
             default ->
@@ -15,8 +15,10 @@
  */
 package org.lifstools.jgoslin.domain;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 
 /**
  * Full structure level according to the 2020 update of the Liebisch shorthand
@@ -37,6 +39,20 @@ public class LipidFullStructure extends LipidStructureDefined {
         info.setLevel(LipidLevel.FULL_STRUCTURE);
     }
 
+    // restores a lipid from its parts, see FrozenLipidAdduct
+    LipidFullStructure(Headgroup headGroup, LipidSpeciesInfo info, ArrayList<FattyAcid> faList, HashMap<String, FattyAcid> fa) {
+        super(headGroup, info, faList, fa);
+    }
+
+    protected LipidFullStructure(LipidFullStructure other) {
+        super(other);
+    }
+
+    @Override
+    public LipidFullStructure copy() {
+        return new LipidFullStructure(this);
+    }
+
     @Override
     public LipidLevel getLipidLevel() {
         return LipidLevel.FULL_STRUCTURE;
@@ -48,13 +64,13 @@ public class LipidFullStructure extends LipidStructureDefined {
     }
 
     @Override
-    public String getLipidString(LipidLevel level) {
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
         switch (level) {
             case NO_LEVEL, FULL_STRUCTURE -> {
-                return super.buildLipidSubspeciesName(LipidLevel.FULL_STRUCTURE);
+                return appendSubspeciesName(sb, LipidLevel.FULL_STRUCTURE);
             }
             case STRUCTURE_DEFINED, SN_POSITION, MOLECULAR_SPECIES, SPECIES, CATEGORY, CLASS -> {
-                return super.getLipidString(level);
+                return super.appendTo(sb, level);
             }
 
             default ->
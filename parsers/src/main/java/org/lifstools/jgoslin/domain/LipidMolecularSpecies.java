@@ -16,8 +16,10 @@
 package org.lifstools.jgoslin.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 
 /**
  * Molecular species level according to the 2020 update of the Liebisch shorthand
@@ -55,18 +57,47 @@ public class LipidMolecularSpecies extends LipidSpecies {
         }
     }
 
+    // restores a lipid from its parts, see FrozenLipidAdduct
+    LipidMolecularSpecies(Headgroup headGroup, LipidSpeciesInfo info, ArrayList<FattyAcid> faList, HashMap<String, FattyAcid> fa) {
+        super(headGroup, info, faList, fa);
+    }
+
+    protected LipidMolecularSpecies(LipidMolecularSpecies other) {
+        super(other);
+    }
+
+    @Override
+    public LipidMolecularSpecies copy() {
+        return new LipidMolecularSpecies(this);
+    }
+
     public String buildLipidSubspeciesName() {
         return buildLipidSubspeciesName(LipidLevel.NO_LEVEL);
     }
 
     public String buildLipidSubspeciesName(LipidLevel level) {
+        return appendLipidSubspeciesName(new StringBuilder(), level).toString();
+    }
+
+    /**
+     * Appends the lipid name with its fatty acyl chains on the provided level
+     * to the string builder, see {@link #buildLipidSubspeciesName(LipidLevel)}.
+     * Subclasses customize the name by overriding this method. Names of
+     * subclasses overriding {@link #buildLipidSubspeciesName(LipidLevel)}
+     * instead are rendered through that method.
+     *
+     * @param lipid_name the string builder to append to.
+     * @param level the lipid level at which the lipid name should be
+     * generated.
+     * @return the string builder.
+     */
+    protected StringBuilder appendLipidSubspeciesName(StringBuilder lipid_name, LipidLevel level) {
         if (level == LipidLevel.NO_LEVEL) {
             level = LipidLevel.MOLECULAR_SPECIES;
         }
 
         String fa_separator = (level != LipidLevel.MOLECULAR_SPECIES || headGroup.getLipidCategory() == LipidCategory.SP) ? "/" : "_";
-        StringBuilder lipid_name = new StringBuilder();
-        lipid_name.append(headGroup.getLipidString(level));
+        headGroup.appendTo(lipid_name, level);
 
         String fa_headgroup_separator = (headGroup.getLipidCategory() != LipidCategory.ST) ? " " : "/";
 
@@ -80,7 +111,7 @@ public class LipidMolecularSpecies extends LipidSpecies {
                         if (i++ > 0) {
                             lipid_name.append(fa_separator);
                         }
-                        lipid_name.append(fatty_acid.toString(level));
+                        fatty_acid.appendName(lipid_name, level);
                     }
                 }
             }
@@ -101,13 +132,18 @@ public class LipidMolecularSpecies extends LipidSpecies {
                             if (i++ > 0) {
                                 lipid_name.append(fa_separator);
                             }
-                            lipid_name.append(fatty_acid.toString(level));
+                            fatty_acid.appendName(lipid_name, level);
                         }
                     }
                 }
             }
         }
-        return lipid_name.toString();
+        return lipid_name;
+    }
+
+    // appends the lipid name with its fatty acyl chains, through buildLipidSubspeciesName(LipidLevel) if a subclass overrides it
+    final StringBuilder appendSubspeciesName(StringBuilder lipid_name, LipidLevel level) {
+        return NameOverrides.SUBSPECIES_NAME.get(getClass()) ? lipid_name.append(buildLipidSubspeciesName(level)) : appendLipidSubspeciesName(lipid_name, level);
     }
 
     @Override
@@ -135,13 +171,13 @@ public class LipidMolecularSpecies extends LipidSpecies {
     }
 
     @Override
-    public String getLipidString(LipidLevel level) {
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
         switch (level) {
             case NO_LEVEL, MOLECULAR_SPECIES -> {
-                return buildLipidSubspeciesName(LipidLevel.MOLECULAR_SPECIES);
+                return appendSubspeciesName(sb, LipidLevel.MOLECULAR_SPECIES);
             }
             case CATEGORY, CLASS, SPECIES -> {
-                return super.getLipidString(level);
+                return super.appendTo(sb, level);
             }
 
             default -> throw new IllegalArgumentException("LipidMolecularSpecies does not know how to create a lipid string for level " + level.toString());
@@ -15,8 +15,10 @@
  */
 package org.lifstools.jgoslin.domain;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 
 /**
  * Sn position level according to the 2020 update of the Liebisch shorthand
@@ -42,6 +44,20 @@ public class LipidSnPosition extends LipidMolecularSpecies {
         }
     }
 
+    // restores a lipid from its parts, see FrozenLipidAdduct
+    LipidSnPosition(Headgroup headGroup, LipidSpeciesInfo info, ArrayList<FattyAcid> faList, HashMap<String, FattyAcid> fa) {
+        super(headGroup, info, faList, fa);
+    }
+
+    protected LipidSnPosition(LipidSnPosition other) {
+        super(other);
+    }
+
+    @Override
+    public LipidSnPosition copy() {
+        return new LipidSnPosition(this);
+    }
+
     @Override
     public LipidLevel getLipidLevel() {
         return LipidLevel.SN_POSITION;
@@ -53,13 +69,13 @@ public class LipidSnPosition extends LipidMolecularSpecies {
     }
 
     @Override
-    public String getLipidString(LipidLevel level) {
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
         switch (level) {
             case NO_LEVEL, SN_POSITION -> {
-                return buildLipidSubspeciesName(LipidLevel.SN_POSITION);
+                return appendSubspeciesName(sb, LipidLevel.SN_POSITION);
             }
             case MOLECULAR_SPECIES, CATEGORY, CLASS, SPECIES -> {
-                return super.getLipidString(level);
+                return super.appendTo(sb, level);
             }
 
             default ->
@@ -20,6 +20,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map.Entry;
 
 /**
  * A lipid species is the factual root of the object hierarchy. Lipid category
@@ -66,6 +68,42 @@ public class LipidSpecies {
         }
     }
 
+    // restores a lipid from its parts, see FrozenLipidAdduct
+    LipidSpecies(Headgroup headGroup, LipidSpeciesInfo info, ArrayList<FattyAcid> faList, HashMap<String, FattyAcid> fa) {
+        this.headGroup = headGroup;
+        this.info = info;
+        this.faList = faList;
+        this.fa = fa;
+    }
+
+    /**
+     * Creates a deep copy of the provided lipid, sharing no mutable state
+     * with it.
+     *
+     * @param other the lipid to copy.
+     */
+    protected LipidSpecies(LipidSpecies other) {
+        headGroup = other.headGroup.copy();
+        info = (LipidSpeciesInfo) other.info.deepCopy();
+        // the fatty acids in the list and in the map are the same instances
+        IdentityHashMap<FattyAcid, FattyAcid> copies = new IdentityHashMap<>();
+        for (FattyAcid fattyAcid : other.faList) {
+            faList.add(copies.computeIfAbsent(fattyAcid, f -> (FattyAcid) f.deepCopy()));
+        }
+        for (Entry<String, FattyAcid> kv : other.fa.entrySet()) {
+            fa.put(kv.getKey(), copies.computeIfAbsent(kv.getValue(), f -> (FattyAcid) f.deepCopy()));
+        }
+    }
+
+    /**
+     * Returns a deep copy of this lipid, sharing no mutable state with it.
+     *
+     * @return the copy.
+     */
+    public LipidSpecies copy() {
+        return new LipidSpecies(this);
+    }
+
     public LipidLevel getLipidLevel() {
         return LipidLevel.SPECIES;
     }
@@ -97,34 +135,56 @@ public class LipidSpecies {
      * supported.
      */
     public String getLipidString(LipidLevel level) {
+        return appendTo(new StringBuilder(), level).toString();
+    }
+
+    /**
+     * Appends the normalized lipid string on the provided level to the string
+     * builder, see {@link #getLipidString(LipidLevel)}. Subclasses customize
+     * their lipid strings by overriding this method. Lipid strings of
+     * subclasses overriding {@link #getLipidString(LipidLevel)} instead are
+     * rendered through that method by {@link LipidAdduct}.
+     *
+     * @param lipid_string the string builder to append to.
+     * @param level the lipid level at which the lipid string should be
+     * generated.
+     * @return the string builder.
+     * @throws IllegalArgumentException when the provided level is not
+     * supported.
+     */
+    public StringBuilder appendTo(StringBuilder lipid_string, LipidLevel level) {
         switch (level) {
             case UNDEFINED_LEVEL ->
                 throw new IllegalArgumentException("LipidSpecies does not know how to create a lipid string for level " + level.toString());
             case CLASS, CATEGORY -> {
-                return headGroup.getLipidString(level);
+                return headGroup.appendTo(lipid_string, level);
             }
             case NO_LEVEL, SPECIES -> {
-                StringBuilder lipid_string = new StringBuilder();
-                lipid_string.append(headGroup.getLipidString(level));
+                headGroup.appendTo(lipid_string, level);
 
-                if (info.getElements().get(Element.C) > 0 || info.numCarbon > 0) {
+                if (info.getElements().getCount(Element.C) > 0 || info.numCarbon > 0) {
                     LipidSpeciesInfo lsi = info.copy();
                     for (HeadgroupDecorator decorator : headGroup.getDecorators()) {
                         if (decorator.getName().equals("decorator_alkyl") || decorator.getName().equals("decorator_acyl")) {
                             ElementTable e = decorator.computeAndCopyElements();
-                            lsi.numCarbon += e.get(Element.C);
+                            lsi.numCarbon += e.getCount(Element.C);
                             lsi.doubleBonds.setNumDoubleBonds(lsi.doubleBonds.getNumDoubleBonds() + decorator.getNDoubleBonds());
                         }
                     }
-                    lipid_string.append(headGroup.getLipidCategory() != LipidCategory.ST ? " " : "/").append(lsi.toString());
+                    lsi.appendTo(lipid_string.append(headGroup.getLipidCategory() != LipidCategory.ST ? " " : "/"));
                 }
-                return lipid_string.toString();
+                return lipid_string;
             }
             default ->
                 throw new IllegalArgumentException("LipidSpecies does not know how to create a lipid string for level " + level.toString());
         }
     }
 
+    // appends the lipid string for a lipid adduct, through getLipidString(LipidLevel) if a subclass overrides it
+    final StringBuilder appendLipidString(StringBuilder sb, LipidLevel level) {
+        return NameOverrides.LIPID_SPECIES_LIPID_STRING.get(getClass()) ? sb.append(getLipidString(level)) : appendTo(sb, level);
+    }
+
     public String getExtendedClass() {
         boolean special_case = (info.numCarbon > 0) ? (headGroup.getLipidCategory() == LipidCategory.GP) : false;
         String class_name = headGroup.getClassName();
@@ -137,6 +197,15 @@ public class LipidSpecies {
         return class_name;
     }
 
+    // the latest modification of the head group or the fatty acyl chains, see Modifications
+    long lastModification() {
+        long last = Math.max(headGroup.lastModification(), info.lastModification());
+        for (FattyAcid fatty_acid : faList) {
+            last = Math.max(last, fatty_acid.lastModification());
+        }
+        return last;
+    }
+
     public ArrayList<FattyAcid> getFaList() {
         return faList;
     }
@@ -166,12 +235,12 @@ public class LipidSpecies {
         int remaining_H = meta.maxNumFa - additional_fa;
         int hydrochain = meta.specialCases.contains("HC") ? 1 : 0;
 
-        elements.put(Element.O, elements.get(Element.O) - (-additional_fa + info.numEthers + (headGroup.isSpException() ? 1 : 0) + hydrochain));
-        elements.put(Element.H, elements.get(Element.H) + (-additional_fa + remaining_H + 2 * info.numEthers + 2 * hydrochain));
+        elements.increment(Element.O, -(-additional_fa + info.numEthers + (headGroup.isSpException() ? 1 : 0) + hydrochain));
+        elements.increment(Element.H, (-additional_fa + remaining_H + 2 * info.numEthers + 2 * hydrochain));
 
         if (meta.specialCases.contains("Amide")) {
-            elements.put(Element.O, elements.get(Element.O) - meta.maxNumFa);
-            elements.put(Element.H, elements.get(Element.H) + meta.maxNumFa);
+            elements.increment(Element.O, -meta.maxNumFa);
+            elements.increment(Element.H, meta.maxNumFa);
         }
         return elements;
     }
@@ -75,14 +75,21 @@ public final class LipidSpeciesInfo extends FattyAcid {
         return lsi;
     }
 
+    @Override
+    FunctionalGroup deepCopy() {
+        LipidSpeciesInfo copy = (LipidSpeciesInfo) deepCopyInto(copy());
+        copy.unresolvedHiddenFa = unresolvedHiddenFa;
+        return copy;
+    }
+
     @JsonIgnore
     @Override
     public ElementTable getElements() {
         ElementTable elements = super.computeAndCopyElements();
         if (lipidFaBondType != LipidFaBondType.LCB_EXCEPTION) {
-            elements.put(Element.O, elements.get(Element.O) - ((numEthers == 0) ? 1 : 0));
+            elements.increment(Element.O, -((numEthers == 0) ? 1 : 0));
         }
-        elements.put(Element.H, elements.get(Element.H) + (numEthers == 0 ? 1 : -1));
+        elements.increment(Element.H, (numEthers == 0 ? 1 : -1));
 
         return elements;
     }
@@ -107,14 +114,24 @@ public final class LipidSpeciesInfo extends FattyAcid {
         }
 
         ElementTable e = _fa.computeAndCopyElements();
-        numCarbon += e.get(Element.C);
+        numCarbon += e.getCount(Element.C);
         doubleBonds.setNumDoubleBonds(doubleBonds.getNumDoubleBonds() + _fa.getNDoubleBonds());
-
+        modified();
     }
 
     @Override
     public String toString() {
-        StringBuilder info_string = new StringBuilder();
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the species level summary of this info, e.g. 34:1;O2, to the
+     * string builder, see {@link #toString()}.
+     *
+     * @param info_string the string builder to append to.
+     * @return the string builder.
+     */
+    public StringBuilder appendTo(StringBuilder info_string) {
         info_string.append(ETHER_PREFIX[numEthers]);
         info_string.append(numCarbon).append(":").append(doubleBonds.getNumDoubleBonds());
 
@@ -129,7 +146,7 @@ public final class LipidSpeciesInfo extends FattyAcid {
             }
         }
 
-        return info_string.toString();
+        return info_string;
     }
 
     public LipidLevel getLevel() {
@@ -138,6 +155,7 @@ public final class LipidSpeciesInfo extends FattyAcid {
 
     public void setLevel(LipidLevel level) {
         this.level = level;
+        modified();
     }
 
     public int getNumEthers() {
@@ -146,6 +164,7 @@ public final class LipidSpeciesInfo extends FattyAcid {
 
     public void setNumEthers(int numEthers) {
         this.numEthers = numEthers;
+        modified();
     }
 
     public int getNumSpecifiedFa() {
@@ -154,6 +173,7 @@ public final class LipidSpeciesInfo extends FattyAcid {
 
     public void setNumSpecifiedFa(int numSpecifiedFa) {
         this.numSpecifiedFa = numSpecifiedFa;
+        modified();
     }
 
     public int getTotalFa() {
@@ -162,6 +182,7 @@ public final class LipidSpeciesInfo extends FattyAcid {
 
     public void setTotalFa(int totalFa) {
         this.totalFa = totalFa;
+        modified();
     }
 
     public LipidFaBondType getExtendedClass() {
@@ -170,6 +191,7 @@ public final class LipidSpeciesInfo extends FattyAcid {
 
     public void setExtendedClass(LipidFaBondType extendedClass) {
         this.extendedClass = extendedClass;
+        modified();
     }
 
     public int getLipidClass() {
@@ -178,6 +200,7 @@ public final class LipidSpeciesInfo extends FattyAcid {
 
     public void setLipidClass(int lipidClass) {
         this.lipidClass = lipidClass;
+        modified();
     }
     
 }
@@ -15,8 +15,10 @@
  */
 package org.lifstools.jgoslin.domain;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 
 /**
  * Structure defined level according to the 2020 update of the Liebisch
@@ -37,6 +39,20 @@ public class LipidStructureDefined extends LipidSnPosition {
         info.setLevel(LipidLevel.STRUCTURE_DEFINED);
     }
 
+    // restores a lipid from its parts, see FrozenLipidAdduct
+    LipidStructureDefined(Headgroup headGroup, LipidSpeciesInfo info, ArrayList<FattyAcid> faList, HashMap<String, FattyAcid> fa) {
+        super(headGroup, info, faList, fa);
+    }
+
+    protected LipidStructureDefined(LipidStructureDefined other) {
+        super(other);
+    }
+
+    @Override
+    public LipidStructureDefined copy() {
+        return new LipidStructureDefined(this);
+    }
+
     @Override
     public LipidLevel getLipidLevel() {
         return LipidLevel.STRUCTURE_DEFINED;
@@ -48,13 +64,13 @@ public class LipidStructureDefined extends LipidSnPosition {
     }
 
     @Override
-    public String getLipidString(LipidLevel level) {
+    public StringBuilder appendTo(StringBuilder sb, LipidLevel level) {
         switch (level) {
             case NO_LEVEL, STRUCTURE_DEFINED -> {
-                return buildLipidSubspeciesName(LipidLevel.STRUCTURE_DEFINED);
+                return appendSubspeciesName(sb, LipidLevel.STRUCTURE_DEFINED);
             }
             case SN_POSITION, MOLECULAR_SPECIES, CATEGORY, CLASS, SPECIES -> {
-                return super.getLipidString(level);
+                return super.appendTo(sb, level);
             }
 
             default ->
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global sequence used to detect modifications of the parts of a lipid after
+ * values were computed from them. Parts record the current value of the
+ * sequence when they are created or modified, while a cache of computed
+ * values advances the sequence when it is started. The cached values are
+ * valid as long as all parts of the lipid carry a smaller value than the
+ * cache. Recording only reads the sequence, so that parsing threads do not
+ * contend on it.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class Modifications {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private Modifications() {
+    }
+
+    /**
+     * Returns the value to record for a created or modified part.
+     *
+     * @return the current value of the sequence.
+     */
+    static long current() {
+        return SEQUENCE.get();
+    }
+
+    /**
+     * Advances the sequence for a new cache of computed values.
+     *
+     * @return the value of the cache, larger than that of every part created
+     * or modified before.
+     */
+    static long next() {
+        return SEQUENCE.incrementAndGet();
+    }
+}
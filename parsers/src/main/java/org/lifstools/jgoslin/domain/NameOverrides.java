@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.domain;
+
+/**
+ * Detects subclasses that customize their names by overriding the methods
+ * returning strings, which were the extension points before names were
+ * appended to a shared string builder. Names of such subclasses are rendered
+ * through the overridden methods, so that their customizations are kept.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class NameOverrides {
+
+    static final ClassValue<Boolean> FUNCTIONAL_GROUP_TO_STRING = overrides(FunctionalGroup.class, "toString");
+    static final ClassValue<Boolean> LIPID_SPECIES_LIPID_STRING = overrides(LipidSpecies.class, "getLipidString");
+    static final ClassValue<Boolean> SUBSPECIES_NAME = overrides(LipidMolecularSpecies.class, "buildLipidSubspeciesName");
+
+    private NameOverrides() {
+    }
+
+    // true for classes declaring the method with a lipid level parameter below the base class
+    private static ClassValue<Boolean> overrides(Class<?> base, String method) {
+        return new ClassValue<>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                try {
+                    return type.getMethod(method, LipidLevel.class).getDeclaringClass() != base;
+                } catch (NoSuchMethodException ex) {
+                    return false;
+                }
+            }
+        };
+    }
+}
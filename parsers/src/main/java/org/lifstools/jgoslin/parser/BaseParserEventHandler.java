@@ -37,9 +37,13 @@ public abstract class BaseParserEventHandler<T> {
     private static final Logger log = LoggerFactory.getLogger(BaseParserEventHandler.class);
 
     protected Map<String, Consumer<TreeNode>> registeredEvents = new HashMap<>();
+    // the rule names of the grammar, filled when the registered events are checked against it
     protected Set<String> ruleNames = new HashSet<>();
     protected T content = null;
     protected String errorMessage = "";
+    private EventBinding binding = null;
+    private Consumer<TreeNode>[] preEvents;
+    private Consumer<TreeNode>[] postEvents;
 
     protected BaseParserEventHandler() {
         registeredEvents = new HashMap<>();
@@ -59,24 +63,72 @@ public abstract class BaseParserEventHandler<T> {
         }
     }
 
+    /**
+     * Calls the event registered under the given name for a node of the parse
+     * tree. The parser no longer calls this method: it dispatches events
+     * through the slots bound to the grammar, so overriding it has no effect
+     * on parsing.
+     *
+     * @param event_name the name of the event.
+     * @param node the node of the parse tree.
+     * @deprecated register events in {@link #registeredEvents} instead, they
+     * are resolved once per grammar and called by the parser.
+     */
+    @Deprecated
     protected void handleEvent(String event_name, TreeNode node) {
-        if (log.isDebugEnabled()) {
-            String reg_event = registeredEvents.containsKey(event_name) ? "*" : "";
-            log.debug(event_name + reg_event + ": \"" + node.getText() + "\"");
+        Consumer<TreeNode> event = registeredEvents.get(event_name);
+        if (event != null) {
+            handleEvent(event_name, event, node);
         }
+    }
 
-        if (registeredEvents.containsKey(event_name)) {
-            if (log.isDebugEnabled()) {
-                log.debug(event_name + ": \"" + node.getText() + "\"");
+    // resolving the registered events into the slots of the binding, done once per handler and grammar
+    @SuppressWarnings("unchecked")
+    void bind(EventBinding _binding) {
+        if (binding == _binding) {
+            return;
+        }
+        binding = _binding;
+        preEvents = new Consumer[binding.size()];
+        postEvents = new Consumer[binding.size()];
+        for (int slot = 0; slot < binding.size(); ++slot) {
+            if (binding.preEvent(slot) != null) {
+                preEvents[slot] = registeredEvents.get(binding.preEvent(slot));
             }
-            try {
-                registeredEvents.get(event_name).accept(node);
-            } catch (Exception e) {
-                throw new LipidParsingException(e.toString(), e);
+            if (binding.postEvent(slot) != null) {
+                postEvents[slot] = registeredEvents.get(binding.postEvent(slot));
             }
         }
     }
 
+    // slot of the events of a rule in the current binding, or -1 if no event is registered for the rule
+    int eventSlot(int rule) {
+        return binding.slot(rule);
+    }
+
+    void handlePreEvent(int slot, TreeNode node) {
+        if (preEvents[slot] != null) {
+            handleEvent(binding.preEvent(slot), preEvents[slot], node);
+        }
+    }
+
+    void handlePostEvent(int slot, TreeNode node) {
+        if (postEvents[slot] != null) {
+            handleEvent(binding.postEvent(slot), postEvents[slot], node);
+        }
+    }
+
+    private void handleEvent(String event_name, Consumer<TreeNode> event, TreeNode node) {
+        if (log.isDebugEnabled()) {
+            log.debug(event_name + ": \"" + node.getText() + "\"");
+        }
+        try {
+            event.accept(node);
+        } catch (Exception e) {
+            throw new LipidParsingException(e.toString(), e);
+        }
+    }
+
     protected abstract void resetParser(TreeNode node);
 
     public String getErrorMessage() {
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+/**
+ * Immutable snapshot of the metrics of a {@link CachingLipidParser}.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class CacheStatistics {
+
+    private final long hits;
+    private final long negativeHits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int maximumSize;
+
+    CacheStatistics(long hits, long negativeHits, long misses, long evictions, int size, int maximumSize) {
+        this.hits = hits;
+        this.negativeHits = negativeHits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the number of lookups answered with a cached parsed lipid.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups answered with a cached parsing failure.
+     *
+     * @return the number of negative hits.
+     */
+    public long getNegativeHits() {
+        return negativeHits;
+    }
+
+    /**
+     * Returns the number of lookups that had to parse the lipid name.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries removed to keep the cache within its
+     * maximum size.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of cached lipid names.
+     *
+     * @return the current size.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of cached lipid names.
+     *
+     * @return the maximum size.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache, including
+     * negative hits.
+     *
+     * @return the hit rate between 0 and 1, 0 if there were no lookups yet.
+     */
+    public double getHitRate() {
+        long lookups = hits + negativeHits + misses;
+        return lookups == 0 ? 0 : (double) (hits + negativeHits) / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{" + "hits=" + hits + ", negativeHits=" + negativeHits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + ", maximumSize=" + maximumSize + '}';
+    }
+}
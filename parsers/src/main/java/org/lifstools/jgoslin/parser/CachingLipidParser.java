@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+import org.lifstools.jgoslin.domain.LipidParsingException;
+
+/**
+ * Bounded cache of parsing results in front of a {@link LipidParser}. Every
+ * lookup of a cached lipid name returns its own deep copy of the parsed lipid,
+ * so callers can neither see nor corrupt the changes of other callers. Names
+ * that no grammar can parse are cached as well, unless disabled. When the cache
+ * is full, entries are evicted in the order they were added, but entries that
+ * were looked up since the last time the eviction passed them get a second
+ * chance. Lookups of cached names do not block and a single instance may be
+ * shared by multiple threads. Two threads parsing the same new name at the
+ * same time may both parse it.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public class CachingLipidParser {
+
+    private final LipidParser lipidParser;
+    private final int maximumSize;
+    private final boolean cacheFailures;
+    private final ConcurrentHashMap<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    // every cached name in the order of insertion or last second chance, guarded by itself
+    private final ArrayDeque<String> evictionQueue = new ArrayDeque<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class CacheEntry {
+
+        private final LipidParserResult result;
+        private volatile boolean referenced = false;
+
+        private CacheEntry(LipidParserResult result) {
+            this.result = result;
+        }
+    }
+
+    /**
+     * Create a new caching lipid parser that also caches names that can not
+     * be parsed.
+     *
+     * @param lipidParser the lipid parser to delegate to on cache misses.
+     * @param maximumSize the maximum number of cached lipid names.
+     */
+    public CachingLipidParser(LipidParser lipidParser, int maximumSize) {
+        this(lipidParser, maximumSize, true);
+    }
+
+    /**
+     * Create a new caching lipid parser.
+     *
+     * @param lipidParser the lipid parser to delegate to on cache misses.
+     * @param maximumSize the maximum number of cached lipid names.
+     * @param cacheFailures if true, names that can not be parsed are cached,
+     * too.
+     */
+    public CachingLipidParser(LipidParser lipidParser, int maximumSize, boolean cacheFailures) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be at least 1, was " + maximumSize);
+        }
+        this.lipidParser = lipidParser;
+        this.maximumSize = maximumSize;
+        this.cacheFailures = cacheFailures;
+    }
+
+    /**
+     * Returns the parsed lipid for the provided lipid name, either from the
+     * cache or by parsing it.
+     *
+     * @param lipidName the lipid name to parse.
+     * @return a {@link LipidAdduct} owned by the caller.
+     * @throws LipidParsingException if no parser was able to parse the
+     * provided lipid name.
+     */
+    public LipidAdduct parse(String lipidName) {
+        return parseDetailed(lipidName).getLipidAdductOrThrow();
+    }
+
+    /**
+     * Returns the parsing result for the provided lipid name, either from the
+     * cache or by parsing it. Cached results report the failure messages and
+     * timings of the original parse.
+     *
+     * @param lipidName the lipid name to parse.
+     * @return the result holding a {@link LipidAdduct} owned by the caller, or
+     * the error messages of all grammars.
+     */
+    public LipidParserResult parseDetailed(String lipidName) {
+        CacheEntry entry = entries.get(lipidName);
+        if (entry != null) {
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            (entry.result.isSuccess() ? hits : negativeHits).increment();
+            return entry.result.copy();
+        }
+        misses.increment();
+        LipidParserResult result = lipidParser.parseDetailed(lipidName);
+        if (result.isSuccess() || cacheFailures) {
+            // the cache keeps its own copy, the caller owns the parsed lipid
+            add(lipidName, new CacheEntry(result.copy()));
+        }
+        return result;
+    }
+
+    private void add(String lipidName, CacheEntry entry) {
+        synchronized (evictionQueue) {
+            if (entries.putIfAbsent(lipidName, entry) != null) {
+                return;
+            }
+            evictionQueue.add(lipidName);
+            while (entries.size() > maximumSize) {
+                String candidate = evictionQueue.poll();
+                CacheEntry candidateEntry = entries.get(candidate);
+                if (candidateEntry.referenced) {
+                    candidateEntry.referenced = false;
+                    evictionQueue.add(candidate);
+                } else {
+                    entries.remove(candidate);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached lipid names. The metrics are kept.
+     */
+    public void clear() {
+        synchronized (evictionQueue) {
+            entries.clear();
+            evictionQueue.clear();
+        }
+    }
+
+    /**
+     * Returns the metrics of this cache.
+     *
+     * @return a snapshot of the cache metrics.
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), entries.size(), maximumSize);
+    }
+
+    /**
+     * Returns the lipid parser used on cache misses.
+     *
+     * @return the lipid parser.
+     */
+    public LipidParser getLipidParser() {
+        return lipidParser;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Immutable holder of the tables of a compiled grammar, shared by all parsers
+ * created from it. The tables are taken from the parser that compiled the
+ * grammar and are never modified afterwards.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class CompiledGrammar {
+
+    final long nextFreeRuleIndex;
+    final HashMap<Character, HashSet<Long>> TtoNT;
+    final HashMap<Character, Long> originalTtoNT;
+    final HashMap<String, Long> ruleToNT;
+    final HashMap<Long, HashSet<Long>> NTtoNT;
+    final HashMap<Long, String> NTtoRule;
+    final HashMap<Long, ArrayList<Long>> substitution;
+    final RulePairs rulePairs;
+    final GrammarFilter filter;
+    final char quote;
+    final String grammarName;
+    final boolean usedEof;
+
+    CompiledGrammar(Parser<?> compiled) {
+        nextFreeRuleIndex = compiled.nextFreeRuleIndex;
+        TtoNT = compiled.TtoNT;
+        originalTtoNT = compiled.originalTtoNT;
+        ruleToNT = compiled.ruleToNT;
+        NTtoNT = compiled.NTtoNT;
+        NTtoRule = compiled.NTtoRule;
+        substitution = compiled.substitution;
+        rulePairs = compiled.rulePairs;
+        filter = compiled.filter;
+        quote = compiled.quote;
+        grammarName = compiled.grammarName;
+        usedEof = compiled.usedEof;
+    }
+}
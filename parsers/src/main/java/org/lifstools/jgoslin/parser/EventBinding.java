@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The events of an event handler class resolved against the rules of a
+ * grammar. Every rule with at least one registered event gets a slot, the
+ * event handler keeps its pre and post events in arrays indexed by these
+ * slots. A binding is created and checked once per grammar and set of
+ * registered event names, event handlers registering the same events share
+ * it.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class EventBinding {
+
+    static final String PRE_EVENT = "_pre_event";
+    static final String POST_EVENT = "_post_event";
+
+    private final int[] slots;
+    private final String[] preEvents;
+    private final String[] postEvents;
+
+    EventBinding(Map<Long, String> NTtoRule, int numRules, Map<String, ?> registeredEvents) {
+        slots = new int[numRules];
+        Arrays.fill(slots, -1);
+        ArrayList<String> pre = new ArrayList<>();
+        ArrayList<String> post = new ArrayList<>();
+        for (Entry<Long, String> kv : NTtoRule.entrySet()) {
+            String preEvent = kv.getValue() + PRE_EVENT;
+            String postEvent = kv.getValue() + POST_EVENT;
+            boolean hasPre = registeredEvents.containsKey(preEvent);
+            boolean hasPost = registeredEvents.containsKey(postEvent);
+            if (hasPre || hasPost) {
+                slots[(int) (long) kv.getKey()] = pre.size();
+                pre.add(hasPre ? preEvent : null);
+                post.add(hasPost ? postEvent : null);
+            }
+        }
+        preEvents = pre.toArray(String[]::new);
+        postEvents = post.toArray(String[]::new);
+    }
+
+    int size() {
+        return preEvents.length;
+    }
+
+    // slot of the rule, or -1 if no event is registered for it
+    int slot(int rule) {
+        return slots[rule];
+    }
+
+    String preEvent(int slot) {
+        return preEvents[slot];
+    }
+
+    String postEvent(int slot) {
+        return postEvents[slot];
+    }
+}
@@ -27,7 +27,7 @@ import org.lifstools.jgoslin.domain.LipidAdduct;
  */
 public final class FattyAcidParser extends Parser<LipidAdduct> {
 
-    private static final String DEFAULT_GRAMMAR = "FattyAcids.g4";
+    static final String DEFAULT_GRAMMAR = "FattyAcids.g4";
 
     private final KnownFunctionalGroups knownFunctionalGroups;
     
@@ -47,24 +47,25 @@ public final class FattyAcidParser extends Parser<LipidAdduct> {
      * @param knownFunctionalGroups the known functional groups
      */
     public FattyAcidParser(KnownFunctionalGroups knownFunctionalGroups) {
-        this(knownFunctionalGroups, StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        super(GrammarRegistry.getCompiledGrammar(DEFAULT_GRAMMAR, StringFunctions.DEFAULT_QUOTE, content -> new FattyAcidParser(knownFunctionalGroups, content, StringFunctions.DEFAULT_QUOTE)));
+        this.knownFunctionalGroups = knownFunctionalGroups;
     }
 
     /**
-     * Create a new instance of a {@link FattyAcidParser} with default grammar {@link FattyAcidParser#DEFAULT_GRAMMAR} and default quote {@link StringFunctions#DEFAULT_QUOTE} and default {@link KnownFunctionalGroups}.
+     * Create a new instance of a {@link FattyAcidParser} with default grammar {@link FattyAcidParser#DEFAULT_GRAMMAR} and default quote {@link StringFunctions#DEFAULT_QUOTE} and the shared {@link GrammarRegistry#getKnownFunctionalGroups() known functional groups}.
      */    
     public FattyAcidParser() {
-        this(new KnownFunctionalGroups(), StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        this(GrammarRegistry.getKnownFunctionalGroups());
     }
 
     @Override
-    public LipidAdduct parse(String text, BaseParserEventHandler eventHandler) {
-        return super.parse(text.toLowerCase(), eventHandler, true);
+    public boolean mayParse(String text) {
+        return super.mayParse(text.toLowerCase());
     }
 
     @Override
-    public LipidAdduct parse(String text, BaseParserEventHandler eventHandler, boolean with_exception) {
-        return super.parse(text.toLowerCase(), eventHandler, with_exception);
+    public LipidAdduct parse(String text, BaseParserEventHandler<LipidAdduct> eventHandler, ParseWorkspace workspace, boolean with_exception) {
+        return super.parse(text.toLowerCase(), eventHandler, workspace, with_exception);
     }
 
     @Override
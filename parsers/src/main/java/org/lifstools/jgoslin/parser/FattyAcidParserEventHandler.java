@@ -321,8 +321,8 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
             for (int i = 0; i < s; ++i) {
                 int pos = (int) ((GenericList) tmp.get("post_adding")).get(i);
                 curr_fa_p.addPosition(pos);
-                DoubleBonds db = new DoubleBonds(curr_fa_p.getDoubleBonds().getNumDoubleBonds());
-                for (Entry<Integer, String> kv : curr_fa_p.getDoubleBonds().getDoubleBondPositions().entrySet()) {
+                DoubleBonds db = new DoubleBonds(curr_fa_p.peekDoubleBonds().getNumDoubleBonds());
+                for (Entry<Integer, String> kv : curr_fa_p.peekDoubleBonds().getDoubleBondPositions().entrySet()) {
                     db.getDoubleBondPositions().put(kv.getKey() + (kv.getKey() >= pos ? 1 : 0), kv.getValue());
                 }
                 db.setNumDoubleBonds(db.getDoubleBondPositions().size());
@@ -331,12 +331,12 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
         }
 
         FattyAcid curr_fa = fattyAcylStack.peekLast();
-        if (curr_fa.getDoubleBonds().getDoubleBondPositions().size() > 0) {
+        if (curr_fa.peekDoubleBonds().getDoubleBondPositions().size() > 0) {
             int db_right = 0;
-            for (Entry<Integer, String> kv : curr_fa.getDoubleBonds().getDoubleBondPositions().entrySet()) {
+            for (Entry<Integer, String> kv : curr_fa.peekDoubleBonds().getDoubleBondPositions().entrySet()) {
                 db_right += kv.getValue().length() > 0 ? 1 : 0;
             }
-            if (db_right != curr_fa.getDoubleBonds().getDoubleBondPositions().size()) {
+            if (db_right != curr_fa.peekDoubleBonds().getDoubleBondPositions().size()) {
                 set_lipid_level(LipidLevel.STRUCTURE_DEFINED);
             }
         }
@@ -429,7 +429,7 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
                 throw new ConstraintViolationException("Cannot determine fatty acid and double bond length in '" + node.getText() + "'");
             }
             curr_fa.setNumCarbon(curr_fa.getNumCarbon() + l);
-            if (curr_fa.getDoubleBonds().getDoubleBondPositions().isEmpty() && d > 0) {
+            if (curr_fa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && d > 0) {
                 curr_fa.getDoubleBonds().setNumDoubleBonds(d);
             }
         }
@@ -514,17 +514,17 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
 
                             curr_fa.setNumCarbon(cyclo_len + fa.getNumCarbon());
 
-                            for (Entry<Integer, String> kv : fa.getDoubleBonds().getDoubleBondPositions().entrySet()) {
+                            for (Entry<Integer, String> kv : fa.peekDoubleBonds().getDoubleBondPositions().entrySet()) {
                                 curr_fa.getDoubleBonds().getDoubleBondPositions().put(kv.getKey() + cyclo_len, kv.getValue());
                             }
-                            curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.getDoubleBonds().getDoubleBondPositions().size());
+                            curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.peekDoubleBonds().getDoubleBondPositions().size());
 
                             if (!tmp.containsKey("tetrahydrofuran") && tmp.containsKey("furan")) {
-                                curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.getDoubleBonds().getNumDoubleBonds() + 2);
-                                if (!curr_fa.getDoubleBonds().getDoubleBondPositions().containsKey(1)) {
+                                curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.peekDoubleBonds().getNumDoubleBonds() + 2);
+                                if (!curr_fa.peekDoubleBonds().getDoubleBondPositions().containsKey(1)) {
                                     curr_fa.getDoubleBonds().getDoubleBondPositions().put(1, "E");
                                 }
-                                if (!curr_fa.getDoubleBonds().getDoubleBondPositions().containsKey(3)) {
+                                if (!curr_fa.peekDoubleBonds().getDoubleBondPositions().containsKey(3)) {
                                     curr_fa.getDoubleBonds().getDoubleBondPositions().put(3, "E");
                                 }
                             }
@@ -534,7 +534,7 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
                             // add carbon chains here here
                             // special chains: i.e. ethyl, methyl
                             String fg_name = "";
-                            if (fa.getDoubleBonds().getNumDoubleBonds() == 0 && fa.getFunctionalGroupsInternal().isEmpty()) {
+                            if (fa.peekDoubleBonds().getNumDoubleBonds() == 0 && fa.getFunctionalGroupsInternal().isEmpty()) {
                                 FunctionalGroup fg = null;
                                 if (fa.getNumCarbon() == 1) {
                                     fg_name = "Me";
@@ -592,17 +592,17 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
                 }
             }
 
-            for (Entry<Integer, String> kv : fa.getDoubleBonds().getDoubleBondPositions().entrySet()) {
+            for (Entry<Integer, String> kv : fa.peekDoubleBonds().getDoubleBondPositions().entrySet()) {
                 curr_fa.getDoubleBonds().getDoubleBondPositions().put(kv.getKey() + start_pos - 1, kv.getValue());
             }
-            curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.getDoubleBonds().getDoubleBondPositions().size());
+            curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.peekDoubleBonds().getDoubleBondPositions().size());
 
             if (!tmp.containsKey("tetrahydrofuran") && tmp.containsKey("furan")) {
-                curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.getDoubleBonds().getNumDoubleBonds() + 2);
-                if (!curr_fa.getDoubleBonds().getDoubleBondPositions().containsKey(1 + curr_fa.getNumCarbon())) {
+                curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.peekDoubleBonds().getNumDoubleBonds() + 2);
+                if (!curr_fa.peekDoubleBonds().getDoubleBondPositions().containsKey(1 + curr_fa.getNumCarbon())) {
                     curr_fa.getDoubleBonds().getDoubleBondPositions().put(1 + curr_fa.getNumCarbon(), "E");
                 }
-                if (!curr_fa.getDoubleBonds().getDoubleBondPositions().containsKey(3 + curr_fa.getNumCarbon())) {
+                if (!curr_fa.peekDoubleBonds().getDoubleBondPositions().containsKey(3 + curr_fa.getNumCarbon())) {
                     curr_fa.getDoubleBonds().getDoubleBondPositions().put(3 + curr_fa.getNumCarbon(), "E");
                 }
             }
@@ -663,8 +663,8 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
 
         DoubleBonds cyclo_db = new DoubleBonds();
         // check double bonds
-        if (fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().size() > 0) {
-            for (Entry<Integer, String> kv : fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().entrySet()) {
+        if (fattyAcylStack.peekLast().peekDoubleBonds().getDoubleBondPositions().size() > 0) {
+            for (Entry<Integer, String> kv : fattyAcylStack.peekLast().peekDoubleBonds().getDoubleBondPositions().entrySet()) {
                 if (start <= kv.getKey() && kv.getKey() <= end) {
                     cyclo_db.getDoubleBondPositions().put(kv.getKey(), kv.getValue());
                 }
@@ -674,7 +674,7 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
             for (Entry<Integer, String> kv : cyclo_db.getDoubleBondPositions().entrySet()) {
                 fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().remove(kv.getKey());
             }
-            fattyAcylStack.peekLast().getDoubleBonds().setNumDoubleBonds(fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().size());
+            fattyAcylStack.peekLast().getDoubleBonds().setNumDoubleBonds(fattyAcylStack.peekLast().peekDoubleBonds().getDoubleBondPositions().size());
 
         }
         // check functionalGroups
@@ -875,9 +875,9 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
             for (Entry<String, Object> kv : ((Dictionary) ((Dictionary) tmp.get(fa_i)).get("fg_pos_summary")).entrySet()) {
                 int k = Integer.valueOf(kv.getKey());
                 String v = (String) ((Dictionary) ((Dictionary) tmp.get(fa_i)).get("fg_pos_summary")).get(kv.getKey());
-                if (k > 0 && !curr_fa.getDoubleBonds().getDoubleBondPositions().containsKey(k) && (v.equals("E") || v.equals("Z") || v.length() == 0)) {
+                if (k > 0 && !curr_fa.peekDoubleBonds().getDoubleBondPositions().containsKey(k) && (v.equals("E") || v.equals("Z") || v.length() == 0)) {
                     curr_fa.getDoubleBonds().getDoubleBondPositions().put(k, v);
-                    curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.getDoubleBonds().getDoubleBondPositions().size());
+                    curr_fa.getDoubleBonds().setNumDoubleBonds(curr_fa.peekDoubleBonds().getDoubleBondPositions().size());
                 }
             }
         }
@@ -937,15 +937,15 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
             }
 
             // shift double bonds
-            if (curr_fa.getDoubleBonds().getDoubleBondPositions().size() > 0) {
+            if (curr_fa.peekDoubleBonds().getDoubleBondPositions().size() > 0) {
                 fa.setDoubleBonds(new DoubleBonds());
-                for (Entry<Integer, String> kv : curr_fa.getDoubleBonds().getDoubleBondPositions().entrySet()) {
+                for (Entry<Integer, String> kv : curr_fa.peekDoubleBonds().getDoubleBondPositions().entrySet()) {
                     if (kv.getKey() <= l) {
                         fa.getDoubleBonds().getDoubleBondPositions().put(l + 1 - kv.getKey(), kv.getValue());
                     }
                 }
-                fa.getDoubleBonds().setNumDoubleBonds(fa.getDoubleBonds().getDoubleBondPositions().size());
-                for (Entry<Integer, String> kv : fa.getDoubleBonds().getDoubleBondPositions().entrySet()) {
+                fa.getDoubleBonds().setNumDoubleBonds(fa.peekDoubleBonds().getDoubleBondPositions().size());
+                for (Entry<Integer, String> kv : fa.peekDoubleBonds().getDoubleBondPositions().entrySet()) {
                     curr_fa.getDoubleBonds().getDoubleBondPositions().remove(kv.getKey());
                 }
             }
@@ -1107,9 +1107,9 @@ public class FattyAcidParserEventHandler extends BaseParserEventHandler<LipidAdd
         if (!cistrans.equals("E") && !cistrans.equals("Z")) {
             cistrans = "";
         }
-        if (!fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().containsKey(pos) || fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().get(pos).length() == 0) {
+        if (!fattyAcylStack.peekLast().peekDoubleBonds().getDoubleBondPositions().containsKey(pos) || fattyAcylStack.peekLast().peekDoubleBonds().getDoubleBondPositions().get(pos).length() == 0) {
             fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().put(pos, cistrans);
-            fattyAcylStack.peekLast().getDoubleBonds().setNumDoubleBonds(fattyAcylStack.peekLast().getDoubleBonds().getDoubleBondPositions().size());
+            fattyAcylStack.peekLast().getDoubleBonds().setNumDoubleBonds(fattyAcylStack.peekLast().peekDoubleBonds().getDoubleBondPositions().size());
         }
     }
 
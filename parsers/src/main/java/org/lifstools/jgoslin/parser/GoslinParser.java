@@ -27,7 +27,7 @@ import org.lifstools.jgoslin.domain.LipidAdduct;
  */
 public final class GoslinParser extends Parser<LipidAdduct> {
 
-    private static final String DEFAULT_GRAMMAR = "Goslin.g4";
+    static final String DEFAULT_GRAMMAR = "Goslin.g4";
 
     private final KnownFunctionalGroups knownFunctionalGroups;
 
@@ -51,17 +51,18 @@ public final class GoslinParser extends Parser<LipidAdduct> {
      * @param knownFunctionalGroups the known functional groups
      */
     public GoslinParser(KnownFunctionalGroups knownFunctionalGroups) {
-        this(knownFunctionalGroups, StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        super(GrammarRegistry.getCompiledGrammar(DEFAULT_GRAMMAR, StringFunctions.DEFAULT_QUOTE, content -> new GoslinParser(knownFunctionalGroups, content, StringFunctions.DEFAULT_QUOTE)));
+        this.knownFunctionalGroups = knownFunctionalGroups;
     }
 
     /**
      * Create a new instance of a {@link GoslinParser} with default grammar
      * {@link GoslinParser#DEFAULT_GRAMMAR} and default quote
-     * {@link StringFunctions#DEFAULT_QUOTE} and default
-     * {@link KnownFunctionalGroups}.
+     * {@link StringFunctions#DEFAULT_QUOTE} and the shared
+     * {@link GrammarRegistry#getKnownFunctionalGroups() known functional groups}.
      */
     public GoslinParser() {
-        this(new KnownFunctionalGroups(), StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        this(GrammarRegistry.getKnownFunctionalGroups());
     }
 
     @Override
@@ -230,7 +230,7 @@ public class GoslinParserEventHandler extends LipidBaseParserEventHandler {
     }
 
     private void cleanLcb(TreeNode node) {
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
         currentFa = null;
@@ -240,11 +240,11 @@ public class GoslinParserEventHandler extends LipidBaseParserEventHandler {
         if (currentFa.getLipidFaBondType() == LipidFaBondType.ETHER_UNSPECIFIED) {
             throw new LipidException("Lipid with unspecified ether bond cannot be treated properly.");
         }
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
 
-        if (currentFa.getDoubleBonds().getNumDoubleBonds() < 0) {
+        if (currentFa.peekDoubleBonds().getNumDoubleBonds() < 0) {
             throw new LipidException("Double bond count does not match with number of double bond positions");
         }
 
@@ -306,7 +306,7 @@ public class GoslinParserEventHandler extends LipidBaseParserEventHandler {
             currentFa.setLipidFaBondType(LipidFaBondType.ETHER_PLASMANYL);
         } else if (ether.equals("p")) {
             currentFa.setLipidFaBondType(LipidFaBondType.ETHER_PLASMENYL);
-            currentFa.getDoubleBonds().setNumDoubleBonds(Math.max(0, currentFa.getDoubleBonds().getNumDoubleBonds() - 1));
+            currentFa.getDoubleBonds().setNumDoubleBonds(Math.max(0, currentFa.peekDoubleBonds().getNumDoubleBonds() - 1));
         }
         plasmalogen = '\0';
     }
@@ -564,16 +564,16 @@ public class GoslinParserEventHandler extends LipidBaseParserEventHandler {
 
     private void addMediator(TreeNode node) {
         if (!mediatorSuffix) {
-            currentFa.getDoubleBonds().setNumDoubleBonds(currentFa.getDoubleBonds().getNumDoubleBonds() - 1);
+            currentFa.getDoubleBonds().setNumDoubleBonds(currentFa.peekDoubleBonds().getNumDoubleBonds() - 1);
         }
     }
 
     private void setHeavyDElement(TreeNode node) {
-        adduct.getHeavyElements().put(Element.H2, 1);
+        adduct.getHeavyElements().setCount(Element.H2, 1);
     }
 
     private void setHeavyDNumber(TreeNode node) {
-        adduct.getHeavyElements().put(Element.H2, node.getInt());
+        adduct.getHeavyElements().setCount(Element.H2, node.getInt());
     }
         
     private void setHeavyElement(TreeNode node) {
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Necessary conditions for a text to be parsed by a compiled grammar, derived
+ * from the rule tables: the alphabet of the grammar, the characters a word of
+ * the start rule can begin and end with, the pairs of characters that can
+ * follow each other within such a word and the minimal and maximal length of
+ * such a word. Texts violating any of them are rejected without filling a
+ * chart.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class GrammarFilter {
+
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final BitSet alphabet = new BitSet();
+    private final BitSet firstChars = new BitSet();
+    private final BitSet lastChars = new BitSet();
+    private final int minLength;
+    private final int maxLength;
+    // sorted alphabet, characters are numbered by their position
+    private final char[] symbols;
+    // (first symbol * number of symbols + second symbol) of all adjacent pairs
+    private final BitSet pairs = new BitSet();
+
+    GrammarFilter(Map<Character, HashSet<Long>> TtoNT, Map<Long, HashSet<Long>> NTtoNT, int numRules, int startRule) {
+        int[] minYield = new int[numRules];
+        Arrays.fill(minYield, UNBOUNDED);
+        boolean[] terminal = new boolean[numRules];
+        for (Entry<Character, HashSet<Long>> kv : TtoNT.entrySet()) {
+            alphabet.set(kv.getKey());
+            for (long rule : kv.getValue()) {
+                minYield[(int) rule] = 1;
+                terminal[(int) rule] = true;
+            }
+        }
+
+        // flattening all binary rules into (parent, left, right) triples
+        ArrayList<int[]> productions = new ArrayList<>();
+        for (Entry<Long, HashSet<Long>> kv : NTtoNT.entrySet()) {
+            if (kv.getKey() <= Parser.MASK) {
+                continue;
+            }
+            int left = (int) (kv.getKey() >>> Parser.SHIFT);
+            int right = (int) (kv.getKey() & Parser.MASK);
+            for (long rule : kv.getValue()) {
+                productions.add(new int[]{(int) rule, left, right});
+            }
+        }
+
+        // shortest word of every rule, iterating until nothing changes anymore
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int[] p : productions) {
+                if (minYield[p[1]] != UNBOUNDED && minYield[p[2]] != UNBOUNDED && minYield[p[1]] + minYield[p[2]] < minYield[p[0]]) {
+                    minYield[p[0]] = minYield[p[1]] + minYield[p[2]];
+                    changed = true;
+                }
+            }
+        }
+        minLength = minYield[startRule];
+
+        // only rules deriving at least one word take part in a parse
+        ArrayList<ArrayList<int[]>> children = new ArrayList<>(numRules);
+        for (int i = 0; i < numRules; ++i) {
+            children.add(new ArrayList<>());
+        }
+        for (int[] p : productions) {
+            if (minYield[p[1]] != UNBOUNDED && minYield[p[2]] != UNBOUNDED) {
+                children.get(p[0]).add(p);
+            }
+        }
+
+        symbols = new char[alphabet.cardinality()];
+        for (int c = alphabet.nextSetBit(0), i = 0; c >= 0; c = alphabet.nextSetBit(c + 1)) {
+            symbols[i++] = (char) c;
+        }
+        if (minLength == UNBOUNDED) {
+            maxLength = 0;
+            return;
+        }
+        maxLength = maxYield(startRule, children, terminal, new int[numRules], new int[numRules]);
+
+        // characters at the left (right) corner of the start rule
+        BitSet leftCorner = corner(startRule, children, 1, numRules);
+        BitSet rightCorner = corner(startRule, children, 2, numRules);
+        for (Entry<Character, HashSet<Long>> kv : TtoNT.entrySet()) {
+            for (long rule : kv.getValue()) {
+                if (leftCorner.get((int) rule)) {
+                    firstChars.set(kv.getKey());
+                }
+                if (rightCorner.get((int) rule)) {
+                    lastChars.set(kv.getKey());
+                }
+            }
+        }
+        collectPairs(TtoNT, children, numRules, startRule);
+    }
+
+    // any word of a parent rule joins the last character of its left child to the first character of its right child
+    private void collectPairs(Map<Character, HashSet<Long>> TtoNT, ArrayList<ArrayList<int[]>> children, int numRules, int startRule) {
+        BitSet[] first = new BitSet[numRules];
+        BitSet[] last = new BitSet[numRules];
+        for (int i = 0; i < numRules; ++i) {
+            first[i] = new BitSet(symbols.length);
+            last[i] = new BitSet(symbols.length);
+        }
+        for (Entry<Character, HashSet<Long>> kv : TtoNT.entrySet()) {
+            int symbol = symbol(kv.getKey());
+            for (long rule : kv.getValue()) {
+                first[(int) rule].set(symbol);
+                last[(int) rule].set(symbol);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (ArrayList<int[]> productions : children) {
+                for (int[] p : productions) {
+                    changed |= union(first[p[0]], first[p[1]]);
+                    changed |= union(last[p[0]], last[p[2]]);
+                }
+            }
+        }
+
+        BitSet reachable = new BitSet(numRules);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        reachable.set(startRule);
+        queue.add(startRule);
+        while (!queue.isEmpty()) {
+            for (int[] p : children.get(queue.poll())) {
+                for (int side = 1; side <= 2; ++side) {
+                    if (!reachable.get(p[side])) {
+                        reachable.set(p[side]);
+                        queue.add(p[side]);
+                    }
+                }
+                for (int a = last[p[1]].nextSetBit(0); a >= 0; a = last[p[1]].nextSetBit(a + 1)) {
+                    for (int b = first[p[2]].nextSetBit(0); b >= 0; b = first[p[2]].nextSetBit(b + 1)) {
+                        pairs.set(a * symbols.length + b);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean union(BitSet target, BitSet source) {
+        int before = target.cardinality();
+        target.or(source);
+        return target.cardinality() != before;
+    }
+
+    private int symbol(char c) {
+        return Arrays.binarySearch(symbols, c);
+    }
+
+    // longest word of a rule, any cycle among productive rules makes the words unbounded
+    private static int maxYield(int rule, ArrayList<ArrayList<int[]>> children, boolean[] terminal, int[] state, int[] maxYield) {
+        if (state[rule] == 2) {
+            return maxYield[rule];
+        }
+        if (state[rule] == 1) {
+            return UNBOUNDED;
+        }
+        state[rule] = 1;
+        long max = terminal[rule] ? 1 : 0;
+        for (int[] p : children.get(rule)) {
+            long l = maxYield(p[1], children, terminal, state, maxYield);
+            long r = maxYield(p[2], children, terminal, state, maxYield);
+            max = Math.max(max, Math.min(l + r, UNBOUNDED));
+        }
+        state[rule] = 2;
+        maxYield[rule] = (int) max;
+        return maxYield[rule];
+    }
+
+    private static BitSet corner(int startRule, ArrayList<ArrayList<int[]>> children, int side, int numRules) {
+        BitSet visited = new BitSet(numRules);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        visited.set(startRule);
+        queue.add(startRule);
+        while (!queue.isEmpty()) {
+            for (int[] p : children.get(queue.poll())) {
+                if (!visited.get(p[side])) {
+                    visited.set(p[side]);
+                    queue.add(p[side]);
+                }
+            }
+        }
+        return visited;
+    }
+
+    int minLength() {
+        return minLength;
+    }
+
+    int maxLength() {
+        return maxLength;
+    }
+
+    BitSet alphabet() {
+        return alphabet;
+    }
+
+    BitSet firstChars() {
+        return firstChars;
+    }
+
+    BitSet lastChars() {
+        return lastChars;
+    }
+
+    boolean mayFollow(char first, char second) {
+        int a = symbol(first);
+        int b = symbol(second);
+        return a >= 0 && b >= 0 && pairs.get(a * symbols.length + b);
+    }
+
+    /**
+     * Checks the text against all conditions. Like the parser, a word of the
+     * start rule of at least two characters may also cover only a prefix of
+     * the text.
+     *
+     * @param eof the character appended to the text by the parser, or 0.
+     * @return false if the text cannot be parsed by the grammar.
+     */
+    boolean accepts(String text, char eof) {
+        int n = text.length() + (eof != 0 ? 1 : 0);
+        if (n < 2 || minLength > n || !firstChars.get(text.charAt(0))) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); ++i) {
+            if (!alphabet.get(text.charAt(i))) {
+                return false;
+            }
+        }
+        if (eof != 0 && !alphabet.get(eof)) {
+            return false;
+        }
+        // words can only end before the first pair of characters no word contains
+        int lastEnd = Math.min(n, maxLength);
+        for (int i = 1; i < lastEnd; ++i) {
+            if (!mayFollow(text.charAt(i - 1), i < text.length() ? text.charAt(i) : eof)) {
+                lastEnd = i;
+                break;
+            }
+        }
+        for (int end = Math.max(2, minLength); end <= lastEnd; ++end) {
+            if (lastChars.get(end <= text.length() ? text.charAt(end - 1) : eof)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
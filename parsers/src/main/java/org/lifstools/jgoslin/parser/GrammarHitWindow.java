@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding window over the successful grammars of the most recently parsed
+ * lipid names. Keeps the number of hits per grammar within the window, so
+ * that the grammars can be ordered by recent success. Recording and reading
+ * are lock-free, so that parsing threads never wait for each other. Readers
+ * see a snapshot that may be off by the names recorded at the same time.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class GrammarHitWindow {
+
+    static final int NO_GRAMMAR = -1;
+    // slots of the window hold the grammar index shifted by this offset, 0 marks an empty slot
+    private static final int OFFSET = 2;
+
+    private final String[] grammars;
+    // grammar index per recorded name, NO_GRAMMAR if the name was not parsed
+    private final AtomicIntegerArray window;
+    // hits per grammar within the window, the misses are kept in the last counter
+    private final LongAdder[] hits;
+    private final AtomicLong total = new AtomicLong();
+
+    GrammarHitWindow(List<String> grammars, int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1, was " + windowSize);
+        }
+        this.grammars = grammars.toArray(String[]::new);
+        window = new AtomicIntegerArray(windowSize);
+        hits = new LongAdder[this.grammars.length + 1];
+        Arrays.setAll(hits, i -> new LongAdder());
+    }
+
+    private LongAdder counter(int grammar) {
+        return hits[grammar == NO_GRAMMAR ? grammars.length : grammar];
+    }
+
+    void record(int grammar) {
+        int slot = (int) (total.getAndIncrement() % window.length());
+        // every recorded name is evicted exactly once, by the thread overwriting its slot
+        int evicted = window.getAndSet(slot, grammar + OFFSET);
+        if (evicted != 0) {
+            counter(evicted - OFFSET).decrement();
+        }
+        counter(grammar).increment();
+    }
+
+    // the counters of concurrently recorded names may be briefly off by one
+    private int count(int grammar) {
+        return (int) Math.max(0, counter(grammar).sum());
+    }
+
+    private int[] order(int[] hitCounts) {
+        Integer[] order = new Integer[grammars.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> -hitCounts[i]).thenComparingInt(i -> i));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private int[] hitCounts() {
+        int[] hitCounts = new int[grammars.length];
+        Arrays.setAll(hitCounts, this::count);
+        return hitCounts;
+    }
+
+    /**
+     * Returns the grammar indices ordered by hits within the window, ties are
+     * broken by the original order.
+     */
+    int[] order() {
+        return order(hitCounts());
+    }
+
+    GrammarStatistics snapshot() {
+        int[] hitCounts = hitCounts();
+        LinkedHashMap<String, Integer> hitsByGrammar = new LinkedHashMap<>();
+        for (int i = 0; i < grammars.length; ++i) {
+            hitsByGrammar.put(grammars[i], hitCounts[i]);
+        }
+        List<String> grammarOrder = new ArrayList<>();
+        for (int i : order(hitCounts)) {
+            grammarOrder.add(grammars[i]);
+        }
+        long recorded = total.get();
+        return new GrammarStatistics(window.length(), (int) Math.min(recorded, window.length()), recorded, count(NO_GRAMMAR), hitsByGrammar, grammarOrder);
+    }
+}
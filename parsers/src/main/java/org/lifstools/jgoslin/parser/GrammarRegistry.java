@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import org.lifstools.jgoslin.domain.ConstraintViolationException;
+import org.lifstools.jgoslin.domain.KnownFunctionalGroups;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ * Process-wide registry of the bundled grammars and reference data. Every
+ * bundled grammar is compiled, or loaded from its precompiled table, once per
+ * JVM on first use, and all parsers created with the default grammars share
+ * the compiled tables. The default {@link KnownFunctionalGroups} are loaded
+ * once on first use, too. All methods may be called from multiple threads.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class GrammarRegistry {
+
+    private static final ConcurrentHashMap<String, FutureTask<CompiledGrammar>> GRAMMARS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, String> GRAMMAR_NAMES = new ConcurrentHashMap<>();
+
+    private GrammarRegistry() {
+    }
+
+    // loaded when first accessed
+    private static final class KnownFunctionalGroupsHolder {
+
+        private static final KnownFunctionalGroups INSTANCE = new KnownFunctionalGroups();
+    }
+
+    /**
+     * Returns the compiled grammar of the provided bundled grammar file,
+     * compiling it if this is the first request for it. Threads requesting a
+     * grammar that is being compiled wait for it.
+     *
+     * @param grammarResource the class path resource name of the grammar.
+     * @param quote the quotation character used in the grammar.
+     * @param compiler creates a parser compiling the grammar content, only
+     * called on the first request.
+     * @return the compiled tables, to be shared by the parsers of the grammar.
+     */
+    static CompiledGrammar getCompiledGrammar(String grammarResource, char quote, Function<String, Parser<?>> compiler) {
+        FutureTask<CompiledGrammar> compilation = GRAMMARS.computeIfAbsent(grammarResource + quote, key -> new FutureTask<>(() -> new CompiledGrammar(compiler.apply(StringFunctions.getResourceAsString(grammarResource)))));
+        // no-op if another thread already compiles the grammar
+        compilation.run();
+        try {
+            return compilation.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConstraintViolationException("Interrupted while waiting for grammar '" + grammarResource + "'");
+        } catch (ExecutionException ex) {
+            // a failed compilation is not cached, the next request tries again
+            GRAMMARS.remove(grammarResource + quote, compilation);
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new ConstraintViolationException("Could not compile grammar '" + grammarResource + "': " + ex.getCause());
+        }
+    }
+
+    /**
+     * Returns the name of the provided bundled grammar file without compiling
+     * it. The grammar file is read only on the first request for its name.
+     *
+     * @param grammarResource the class path resource name of the grammar.
+     * @return the grammar name.
+     */
+    static String getGrammarName(String grammarResource) {
+        return GRAMMAR_NAMES.computeIfAbsent(grammarResource, key -> GrammarTable.grammarName(StringFunctions.getResourceAsString(key)));
+    }
+
+    /**
+     * Returns true, if the provided bundled grammar file has already been
+     * compiled by this registry.
+     *
+     * @param grammarResource the class path resource name of the grammar.
+     * @param quote the quotation character used in the grammar.
+     * @return true, if the grammar is compiled.
+     */
+    static boolean isCompiled(String grammarResource, char quote) {
+        FutureTask<CompiledGrammar> compilation = GRAMMARS.get(grammarResource + quote);
+        return compilation != null && compilation.isDone();
+    }
+
+    /**
+     * Returns the known functional groups loaded from the bundled
+     * functional-groups.csv and trivial_mediators.csv. The returned instance
+     * is shared by all default parsers and must not be modified.
+     *
+     * @return the shared known functional groups.
+     */
+    public static KnownFunctionalGroups getKnownFunctionalGroups() {
+        return KnownFunctionalGroupsHolder.INSTANCE;
+    }
+}
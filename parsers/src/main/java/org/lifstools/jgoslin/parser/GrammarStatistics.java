@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the grammar statistics of a {@link LipidParser} over
+ * the most recently parsed lipid names.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class GrammarStatistics {
+
+    private final int windowSize;
+    private final int parsedInWindow;
+    private final long parsedTotal;
+    private final int failedInWindow;
+    private final Map<String, Integer> hits;
+    private final List<String> adaptiveOrder;
+
+    GrammarStatistics(int windowSize, int parsedInWindow, long parsedTotal, int failedInWindow, LinkedHashMap<String, Integer> hits, List<String> adaptiveOrder) {
+        this.windowSize = windowSize;
+        this.parsedInWindow = parsedInWindow;
+        this.parsedTotal = parsedTotal;
+        this.failedInWindow = failedInWindow;
+        this.hits = Collections.unmodifiableMap(hits);
+        this.adaptiveOrder = Collections.unmodifiableList(adaptiveOrder);
+    }
+
+    /**
+     * Returns the maximum number of lipid names within the window.
+     *
+     * @return the window size.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the number of lipid names within the window.
+     *
+     * @return the number of names, at most the window size.
+     */
+    public int getParsedInWindow() {
+        return parsedInWindow;
+    }
+
+    /**
+     * Returns the number of lipid names since the creation of the lipid
+     * parser.
+     *
+     * @return the total number of names.
+     */
+    public long getParsedTotal() {
+        return parsedTotal;
+    }
+
+    /**
+     * Returns the number of lipid names within the window that no grammar was
+     * able to parse.
+     *
+     * @return the number of failed names.
+     */
+    public int getFailedInWindow() {
+        return failedInWindow;
+    }
+
+    /**
+     * Returns the number of lipid names within the window that each grammar
+     * parsed successfully, in the defined order of the grammars.
+     *
+     * @return the unmodifiable hits by grammar name.
+     */
+    public Map<String, Integer> getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the grammar names ordered by their hits within the window, ties
+     * are broken by the defined order of the grammars.
+     *
+     * @return the unmodifiable adaptive order of grammar names.
+     */
+    public List<String> getAdaptiveOrder() {
+        return adaptiveOrder;
+    }
+
+    @Override
+    public String toString() {
+        return "GrammarStatistics{" + "windowSize=" + windowSize + ", parsedInWindow=" + parsedInWindow + ", parsedTotal=" + parsedTotal + ", failedInWindow=" + failedInWindow + ", hits=" + hits + ", adaptiveOrder=" + adaptiveOrder + '}';
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import org.lifstools.jgoslin.domain.ConstraintViolationException;
+import org.lifstools.jgoslin.domain.StringFunctions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Binary tables of compiled grammars. During the build, every bundled grammar
+ * is compiled once and its rule tables are written to a
+ * {@code <grammar name>.gtab} resource next to the grammar. A {@link Parser}
+ * loads this table instead of compiling the grammar text, if the format
+ * version and the checksum of grammar text and quote match.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class GrammarTable {
+
+    private static final Logger log = LoggerFactory.getLogger(GrammarTable.class);
+
+    static final int MAGIC = 0x47544142; // "GTAB"
+    static final int FORMAT_VERSION = 1;
+    static final String SUFFIX = ".gtab";
+    private static final Pattern GRAMMAR_NAME = Pattern.compile("^\\s*grammar\\s+(\\w+)\\s*;", Pattern.MULTILINE);
+
+    private GrammarTable() {
+    }
+
+    /**
+     * Compiles the given grammar resources into binary grammar tables.
+     *
+     * @param args the output directory, followed by the grammar resource names.
+     * @throws IOException if a table cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: GrammarTable <output directory> <grammar resource>...");
+        }
+        Path outputDirectory = Paths.get(args[0]);
+        for (int i = 1; i < args.length; ++i) {
+            String grammarContent = StringFunctions.getResourceAsString(args[i]);
+            Path table = outputDirectory.resolve(grammarName(grammarContent) + SUFFIX);
+            // never load a stale table from a previous build
+            Files.deleteIfExists(table);
+            Parser<Object> parser = new Parser<>(grammarContent, StringFunctions.DEFAULT_QUOTE) {
+                @Override
+                public BaseParserEventHandler<Object> newEventHandler() {
+                    return null;
+                }
+            };
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(table)))) {
+                write(parser, checksum(grammarContent, parser.quote), out);
+            }
+            log.info("Compiled grammar '{}' into '{}'", args[i], table);
+        }
+    }
+
+    static String grammarName(String grammarContent) {
+        Matcher m = GRAMMAR_NAME.matcher(grammarContent);
+        if (!m.find()) {
+            throw new ConstraintViolationException("Error: first rule must start with the keyword 'grammar'");
+        }
+        return m.group(1);
+    }
+
+    static int checksum(String grammarContent, char quote) {
+        CRC32 crc = new CRC32();
+        crc.update(grammarContent.getBytes(StandardCharsets.UTF_8));
+        crc.update(quote);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Loads the bundled table for the given grammar text into the parser.
+     *
+     * @return true if a matching table was found and loaded, false if the
+     * grammar needs to be compiled.
+     */
+    static boolean load(Parser<?> parser, String grammarContent) {
+        Matcher m = GRAMMAR_NAME.matcher(grammarContent);
+        if (!m.find()) {
+            return false;
+        }
+        ClassPathResource resource = new ClassPathResource(m.group(1) + SUFFIX);
+        if (!resource.exists()) {
+            return false;
+        }
+        try {
+            return read(parser, checksum(grammarContent, parser.quote), map(resource));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Ignoring corrupted grammar table '{}'", resource.getDescription(), e);
+            return false;
+        }
+    }
+
+    private static ByteBuffer map(ClassPathResource resource) throws IOException {
+        URL url = resource.getURL();
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        // tables within jars are compressed and cannot be mapped
+        try (InputStream in = resource.getInputStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    static void write(Parser<?> parser, int checksum, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(checksum);
+        writeString(out, parser.grammarName);
+        out.writeBoolean(parser.usedEof);
+        out.writeLong(parser.nextFreeRuleIndex);
+
+        out.writeInt(parser.ruleToNT.size());
+        for (Entry<String, Long> kv : parser.ruleToNT.entrySet()) {
+            writeString(out, kv.getKey());
+            out.writeLong(kv.getValue());
+        }
+        out.writeInt(parser.NTtoRule.size());
+        for (Entry<Long, String> kv : parser.NTtoRule.entrySet()) {
+            out.writeLong(kv.getKey());
+            writeString(out, kv.getValue());
+        }
+        out.writeInt(parser.TtoNT.size());
+        for (Entry<Character, HashSet<Long>> kv : parser.TtoNT.entrySet()) {
+            out.writeChar(kv.getKey());
+            writeLongs(out, kv.getValue());
+        }
+        out.writeInt(parser.originalTtoNT.size());
+        for (Entry<Character, Long> kv : parser.originalTtoNT.entrySet()) {
+            out.writeChar(kv.getKey());
+            out.writeLong(kv.getValue());
+        }
+        out.writeInt(parser.NTtoNT.size());
+        for (Entry<Long, HashSet<Long>> kv : parser.NTtoNT.entrySet()) {
+            out.writeLong(kv.getKey());
+            writeLongs(out, kv.getValue());
+        }
+        out.writeInt(parser.substitution.size());
+        for (Entry<Long, ArrayList<Long>> kv : parser.substitution.entrySet()) {
+            out.writeLong(kv.getKey());
+            writeLongs(out, kv.getValue());
+        }
+    }
+
+    static boolean read(Parser<?> parser, int checksum, ByteBuffer in) {
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION || in.getInt() != checksum) {
+            return false;
+        }
+        String grammarName = readString(in);
+        boolean usedEof = in.get() != 0;
+        long nextFreeRuleIndex = in.getLong();
+
+        // read everything first, the parser stays untouched for corrupted tables
+        HashMap<String, Long> ruleToNT = new HashMap<>();
+        for (int i = in.getInt(); i > 0; --i) {
+            String rule = readString(in);
+            ruleToNT.put(rule, in.getLong());
+        }
+        HashMap<Long, String> NTtoRule = new HashMap<>();
+        for (int i = in.getInt(); i > 0; --i) {
+            long rule = in.getLong();
+            NTtoRule.put(rule, readString(in));
+        }
+        HashMap<Character, HashSet<Long>> TtoNT = new HashMap<>();
+        for (int i = in.getInt(); i > 0; --i) {
+            char c = in.getChar();
+            TtoNT.put(c, readLongs(in, new HashSet<>()));
+        }
+        HashMap<Character, Long> originalTtoNT = new HashMap<>();
+        for (int i = in.getInt(); i > 0; --i) {
+            char c = in.getChar();
+            originalTtoNT.put(c, in.getLong());
+        }
+        HashMap<Long, HashSet<Long>> NTtoNT = new HashMap<>();
+        for (int i = in.getInt(); i > 0; --i) {
+            long key = in.getLong();
+            NTtoNT.put(key, readLongs(in, new HashSet<>()));
+        }
+        HashMap<Long, ArrayList<Long>> substitution = new HashMap<>();
+        for (int i = in.getInt(); i > 0; --i) {
+            long key = in.getLong();
+            substitution.put(key, readLongs(in, new ArrayList<>()));
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after grammar table of grammar '" + grammarName + "'");
+        }
+
+        parser.grammarName = grammarName;
+        parser.usedEof = usedEof;
+        parser.nextFreeRuleIndex = nextFreeRuleIndex;
+        parser.ruleToNT.putAll(ruleToNT);
+        parser.NTtoRule.putAll(NTtoRule);
+        parser.TtoNT.putAll(TtoNT);
+        parser.originalTtoNT.putAll(originalTtoNT);
+        parser.NTtoNT.putAll(NTtoNT);
+        parser.substitution.putAll(substitution);
+        parser.create_right_pairs();
+        parser.create_filter();
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    private static String readString(ByteBuffer in) {
+        char[] chars = new char[in.getInt()];
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = in.getChar();
+        }
+        return new String(chars);
+    }
+
+    private static void writeLongs(DataOutputStream out, Collection<Long> values) throws IOException {
+        out.writeInt(values.size());
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static <C extends Collection<Long>> C readLongs(ByteBuffer in, C values) {
+        for (int i = in.getInt(); i > 0; --i) {
+            values.add(in.getLong());
+        }
+        return values;
+    }
+}
@@ -208,7 +208,7 @@ public class HmdbParserEventHandler extends LipidBaseParserEventHandler {
     }
 
     private void cleanLcb(TreeNode node) {
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
         currentFa = null;
@@ -222,10 +222,10 @@ public class HmdbParserEventHandler extends LipidBaseParserEventHandler {
             updateFunctionalGroup.clear();
         }
         
-        if (currentFa.getDoubleBonds().getNumDoubleBonds() < 0) {
+        if (currentFa.peekDoubleBonds().getNumDoubleBonds() < 0) {
             throw new LipidException("Double bond count does not match with number of double bond positions");
         }
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
 
@@ -85,12 +85,12 @@ public abstract class LipidBaseParserEventHandler extends BaseParserEventHandler
 
         boolean is_fa = (obj instanceof FattyAcid);
         if (is_fa && ((FattyAcid)obj).getNumCarbon() == 0) return true;
-        if (is_fa && obj.getDoubleBonds().getNumDoubleBonds() > 0 && obj.getDoubleBonds().getDoubleBondPositions().isEmpty()) return false;
-        if (is_fa && !obj.getDoubleBonds().getDoubleBondPositions().isEmpty()){
+        if (is_fa && obj.peekDoubleBonds().getNumDoubleBonds() > 0 && obj.peekDoubleBonds().getDoubleBondPositions().isEmpty()) return false;
+        if (is_fa && !obj.peekDoubleBonds().getDoubleBondPositions().isEmpty()){
             int sum = 0;
-            for (Entry<Integer, String> kv : obj.getDoubleBonds().getDoubleBondPositions().entrySet())
+            for (Entry<Integer, String> kv : obj.peekDoubleBonds().getDoubleBondPositions().entrySet())
                 sum += (kv.getValue().equals("E") || kv.getValue().equals("Z") || (kv.getValue().equals("") && kv.getKey() == ((FattyAcid)obj).getNumCarbon() - 1)) ? 1 : 0;
-            full &= (sum == obj.getDoubleBonds().getDoubleBondPositions().size());
+            full &= (sum == obj.peekDoubleBonds().getDoubleBondPositions().size());
 
         }
 
@@ -119,7 +119,7 @@ public abstract class LipidBaseParserEventHandler extends BaseParserEventHandler
 
         int true_fa = 0;
         for (FattyAcid fa : faList) {
-            true_fa += (fa.getNumCarbon() > 0 || fa.getDoubleBonds().getNumDoubleBonds() > 0) ? 1 : 0;
+            true_fa += (fa.getNumCarbon() > 0 || fa.peekDoubleBonds().getNumDoubleBonds() > 0) ? 1 : 0;
         }
         int poss_fa = (LipidClasses.getInstance().size() > headgroup.getLipidClass()) ? LipidClasses.getInstance().get(headgroup.getLipidClass()).possibleNumFa : 0;
 
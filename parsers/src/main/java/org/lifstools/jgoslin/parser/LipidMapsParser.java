@@ -27,7 +27,7 @@ import org.lifstools.jgoslin.domain.LipidAdduct;
  */
 public class LipidMapsParser extends Parser<LipidAdduct> {
 
-    private static final String DEFAULT_GRAMMAR = "LipidMaps.g4";
+    static final String DEFAULT_GRAMMAR = "LipidMaps.g4";
 
     private final KnownFunctionalGroups knownFunctionalGroups;
     
@@ -51,17 +51,18 @@ public class LipidMapsParser extends Parser<LipidAdduct> {
      * @param knownFunctionalGroups the known functional groups
      */
     public LipidMapsParser(KnownFunctionalGroups knownFunctionalGroups) {
-        this(knownFunctionalGroups, StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        super(GrammarRegistry.getCompiledGrammar(DEFAULT_GRAMMAR, StringFunctions.DEFAULT_QUOTE, content -> new LipidMapsParser(knownFunctionalGroups, content, StringFunctions.DEFAULT_QUOTE)));
+        this.knownFunctionalGroups = knownFunctionalGroups;
     }
 
     /**
      * Create a new instance of a {@link LipidMapsParser} with default grammar
      * {@link LipidMapsParser#DEFAULT_GRAMMAR} and default quote
-     * {@link StringFunctions#DEFAULT_QUOTE} and default
-     * {@link KnownFunctionalGroups}.
+     * {@link StringFunctions#DEFAULT_QUOTE} and the shared
+     * {@link GrammarRegistry#getKnownFunctionalGroups() known functional groups}.
      */
     public LipidMapsParser() {
-        this(new KnownFunctionalGroups(), StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        this(GrammarRegistry.getKnownFunctionalGroups());
     }
 
     @Override
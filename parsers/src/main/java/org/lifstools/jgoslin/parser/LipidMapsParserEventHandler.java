@@ -220,7 +220,7 @@ public class LipidMapsParserEventHandler extends LipidBaseParserEventHandler {
         switch (nodeHeavyElement) {
             case "d":
             case "D":
-                adduct.getHeavyElements().put(Element.H2, 0);
+                adduct.getHeavyElements().setCount(Element.H2, 0);
                 heavyElement = Optional.of(Element.H2);
                 break;
             default:
@@ -338,7 +338,7 @@ public class LipidMapsParserEventHandler extends LipidBaseParserEventHandler {
             throw new LipidParsingException("Carbohydrate '" + glyco_name + "' unknown");
         }
 
-        functional_group.getElements().put(Element.O, functional_group.getElements().get(Element.O) - 1);
+        functional_group.getElements().increment(Element.O, -1);
         headgroupDecorators.add(functional_group);
     }
 
@@ -426,9 +426,9 @@ public class LipidMapsParserEventHandler extends LipidBaseParserEventHandler {
         }
 
         if (!sphingaSuffix.equals("")) {
-            if ((sphingaSuffix.equals("anine") && lcb.getDoubleBonds().getNumDoubleBonds() != 0)
-                    || (sphingaSuffix.equals("osine") && lcb.getDoubleBonds().getNumDoubleBonds() != 1)
-                    || (sphingaSuffix.equals("adienine") && lcb.getDoubleBonds().getNumDoubleBonds() != 2)) {
+            if ((sphingaSuffix.equals("anine") && lcb.peekDoubleBonds().getNumDoubleBonds() != 0)
+                    || (sphingaSuffix.equals("osine") && lcb.peekDoubleBonds().getNumDoubleBonds() != 1)
+                    || (sphingaSuffix.equals("adienine") && lcb.peekDoubleBonds().getNumDoubleBonds() != 2)) {
                 throw new LipidException("Double bond count does not match with head group description");
             }
         }
@@ -443,10 +443,10 @@ public class LipidMapsParserEventHandler extends LipidBaseParserEventHandler {
             }
         }
 
-        if (dbNumbers > -1 && dbNumbers != currentFa.getDoubleBonds().getNumDoubleBonds()) {
+        if (dbNumbers > -1 && dbNumbers != currentFa.peekDoubleBonds().getNumDoubleBonds()) {
             throw new LipidException("Double bond count does not match with number of double bond positions");
         }
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
         if (currentFa.getFunctionalGroupsInternal().containsKey("OH")) {
@@ -461,10 +461,10 @@ public class LipidMapsParserEventHandler extends LipidBaseParserEventHandler {
     }
 
     private void appendFa(TreeNode node) {
-        if (dbNumbers > -1 && dbNumbers != currentFa.getDoubleBonds().getNumDoubleBonds()) {
+        if (dbNumbers > -1 && dbNumbers != currentFa.peekDoubleBonds().getNumDoubleBonds()) {
             throw new LipidException("Double bond count does not match with number of double bond positions");
         }
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
 
@@ -555,7 +555,7 @@ public class LipidMapsParserEventHandler extends LipidBaseParserEventHandler {
     }
 
     private void addDoubleBonds(TreeNode node) {
-        currentFa.getDoubleBonds().setNumDoubleBonds(currentFa.getDoubleBonds().getNumDoubleBonds() + node.getInt());
+        currentFa.getDoubleBonds().setNumDoubleBonds(currentFa.peekDoubleBonds().getNumDoubleBonds() + node.getInt());
     }
 
     private void addCarbon(TreeNode node) {
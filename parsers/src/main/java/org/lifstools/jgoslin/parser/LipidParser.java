@@ -16,53 +16,173 @@
 package org.lifstools.jgoslin.parser;
 
 import org.lifstools.jgoslin.domain.LipidAdduct;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.lifstools.jgoslin.domain.KnownFunctionalGroups;
 import org.lifstools.jgoslin.domain.LipidParsingException;
-import org.lifstools.jgoslin.domain.StringFunctions;
-import org.springframework.core.io.ClassPathResource;
 
 /**
  * Implementation that uses all available parsers to parse a given lipid name.
- * First successful parser implementation wins.
+ * First successful parser implementation wins. A single instance may be shared
+ * by multiple threads.
  *
  * @author Dominik Kopczynski
  * @author Nils Hoffmann
  */
 public class LipidParser {
 
-    private final List<Parser<LipidAdduct>> parserList;
-    private Parser<LipidAdduct> lastSuccessfulParser = null;
+    /**
+     * The number of most recently parsed lipid names the grammar statistics
+     * are kept for.
+     */
+    public static final int STATISTICS_WINDOW_SIZE = 1000;
+
+    // number of distinct lipid names parsed by a single task of parseAll
+    private static final int BATCH_SIZE = 64;
+
+    // number of times every grammar parses the warm-up names
+    private static final int WARM_UP_ROUNDS = 20;
+
+    // a few names of every grammar, including names only later grammars can parse
+    private static final List<String> WARM_UP_NAMES = List.of(
+            "PE 18:1(8Z);1OH,3OH/24:0",
+            "Cer 18:1;O2/16:0",
+            "TG 16:0_18:1_18:2[M+NH4]1+",
+            "PC O-16:0/20:4(5Z,8Z,11Z,14Z)",
+            "FA 20:4(5Z,8Z,11Z,14Z)",
+            "11-hydroxy-tetradecanoic acid",
+            "hexadecanoic acid",
+            "PC 34:1",
+            "DAG 16:0-18:1",
+            "LPC 18:2",
+            "SM d18:1/16:0",
+            "PC(16:0/18:1(9Z))",
+            "TG(16:0/18:1(9Z)/18:2(9Z,12Z))[iso6]",
+            "Cer(d18:1/24:1(15Z))",
+            "PE(P-18:0/22:6)",
+            "CE(20:4)",
+            "PS(18:0/20:4(5Z,8Z,11Z,14Z))",
+            "BMP(22:1_28:4)",
+            "PIP[4](16:1(9Z)/24:1(15Z))",
+            "NAPE (O-15:0(13-me)/13:0/14:0)",
+            "TG(i-16:0/13:0/21:0)",
+            "CL(i-14:0/a-15:0/i-19:0/i-22:0)[rac]",
+            "Cer 189:as7"
+    );
+
+    private final List<LazyParser> parserList;
+    private final GrammarHitWindow hitWindow;
+    // only kept for getLastSuccessfulParser, use parseDetailed instead
+    private final ThreadLocal<Parser<LipidAdduct>> lastSuccessfulParser = new ThreadLocal<>();
+
+    // a parser of a bundled grammar, compiled when it is first needed
+    private static final class LazyParser {
+
+        private final String grammarName;
+        private final Supplier<Parser<LipidAdduct>> factory;
+        private volatile Parser<LipidAdduct> parser;
+
+        private LazyParser(String grammarResource, Supplier<Parser<LipidAdduct>> factory) {
+            this.grammarName = GrammarRegistry.getGrammarName(grammarResource);
+            this.factory = factory;
+        }
+
+        private Parser<LipidAdduct> get() {
+            Parser<LipidAdduct> result = parser;
+            if (result == null) {
+                synchronized (this) {
+                    result = parser;
+                    if (result == null) {
+                        result = factory.get();
+                        parser = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
 
-    private LipidParser(Parser<LipidAdduct>... parsers) {
+    private LipidParser(LazyParser... parsers) {
         parserList = Arrays.asList(parsers);
+        hitWindow = new GrammarHitWindow(parserList.stream().map(parser -> parser.grammarName).collect(Collectors.toList()), STATISTICS_WINDOW_SIZE);
     }
 
     /**
-     * Create a new lipid parser instance.
+     * Create a new lipid parser instance with the shared
+     * {@link GrammarRegistry#getKnownFunctionalGroups() known functional groups}.
+     * The compiled grammars are shared with all other lipid parsers. Every
+     * grammar is compiled when it is first needed, see {@link #warmUp()}.
      *
      */
     public LipidParser() {
-        this(new KnownFunctionalGroups(StringFunctions.getResourceAsStringList(new ClassPathResource("functional-groups.csv")), new SumFormulaParser()));
+        this(GrammarRegistry.getKnownFunctionalGroups());
     }
 
     /**
-     * Create a new lipid parser instance.
+     * Create a new lipid parser instance. Every grammar is compiled when it is
+     * first needed, see {@link #warmUp()}.
      *
      * @param knownFunctionalGroups the known functional groups
      */
     public LipidParser(KnownFunctionalGroups knownFunctionalGroups) {
         this(
-                new ShorthandParser(knownFunctionalGroups),
-                new FattyAcidParser(knownFunctionalGroups),
-                new GoslinParser(knownFunctionalGroups),
-                new LipidMapsParser(knownFunctionalGroups),
-                new SwissLipidsParser(knownFunctionalGroups),
-                new HmdbParser(knownFunctionalGroups)
+                new LazyParser(ShorthandParser.DEFAULT_GRAMMAR, () -> new ShorthandParser(knownFunctionalGroups)),
+                new LazyParser(FattyAcidParser.DEFAULT_GRAMMAR, () -> new FattyAcidParser(knownFunctionalGroups)),
+                new LazyParser(GoslinParser.DEFAULT_GRAMMAR, () -> new GoslinParser(knownFunctionalGroups)),
+                new LazyParser(LipidMapsParser.DEFAULT_GRAMMAR, () -> new LipidMapsParser(knownFunctionalGroups)),
+                new LazyParser(SwissLipidsParser.DEFAULT_GRAMMAR, () -> new SwissLipidsParser(knownFunctionalGroups)),
+                new LazyParser(HmdbParser.DEFAULT_GRAMMAR, () -> new HmdbParser(knownFunctionalGroups))
         );
     }
 
+    /**
+     * Compiles all grammars in parallel on the common fork-join pool and
+     * parses a built-in set of representative lipid names with every grammar
+     * a few times, so that the JIT compiler optimizes the parsing code. Useful
+     * for services that want a predictable latency from their first request
+     * on. Warming up does not change the grammar statistics.
+     */
+    public void warmUp() {
+        warmUp(WARM_UP_NAMES);
+    }
+
+    /**
+     * Compiles all grammars in parallel on the common fork-join pool and
+     * parses the provided lipid names with every grammar a few times, so that
+     * the JIT compiler optimizes the parsing code. Warming up does not change
+     * the grammar statistics.
+     *
+     * @param lipidNames representative lipid names of the expected input.
+     */
+    public void warmUp(Collection<String> lipidNames) {
+        parserList.parallelStream().forEach(lazyParser -> {
+            Parser<LipidAdduct> parser = lazyParser.get();
+            ParseWorkspace workspace = ParseWorkspace.forCurrentThread();
+            for (int r = 0; r < WARM_UP_ROUNDS; ++r) {
+                for (String lipidName : lipidNames) {
+                    if (parser.mayParse(lipidName)) {
+                        parser.parse(lipidName, parser.newEventHandler(), workspace, false);
+                    }
+                }
+            }
+        });
+    }
+
     /**
      * This method tries multiple parsers in a defined order to parse the
      * provided lipid name.If no parser is able to parse the name successfully,
@@ -75,49 +195,360 @@ public class LipidParser {
      * provided lipid name.
      */
     public LipidAdduct parse(String lipidName) {
-        lastSuccessfulParser = null;
-        Parser<LipidAdduct> lastParser = null;
+        return parse(lipidName, ParseWorkspace.forCurrentThread());
+    }
+
+    /**
+     * This method tries multiple parsers in a defined order to parse the
+     * provided lipid name, reusing the memory of the provided workspace for
+     * all of them. If no parser is able to parse the name successfully, an
+     * exception is thrown.
+     *
+     * @param lipidName the lipid name to parse.
+     * @param workspace the workspace to reuse, owned by the calling thread.
+     * @return the {@link LipidAdduct} if parsing with at least one parser
+     * succeeded.
+     * @throws LipidParsingException if now parser was able to parse the
+     * provided lipid name.
+     */
+    public LipidAdduct parse(String lipidName, ParseWorkspace workspace) {
+        LipidParserResult result = parseDetailed(lipidName, workspace);
+        lastSuccessfulParser.set(result.getParser().orElse(null));
+        return result.getLipidAdductOrThrow();
+    }
+
+    /**
+     * This method tries multiple parsers in a defined order to parse the
+     * provided lipid name and reports the outcome of all of them. In contrast
+     * to {@link #parse(java.lang.String)}, no exception is thrown if no parser
+     * is able to parse the name. This method does not change the state of the
+     * lipid parser and may be called from multiple threads at the same time.
+     *
+     * @param lipidName the lipid name to parse.
+     * @return the result holding the {@link LipidAdduct} and the successful
+     * grammar, or the error messages of all grammars.
+     */
+    public LipidParserResult parseDetailed(String lipidName) {
+        return parseDetailed(lipidName, ParseWorkspace.forCurrentThread());
+    }
+
+    /**
+     * This method tries multiple parsers in a defined order to parse the
+     * provided lipid name, reusing the memory of the provided workspace for
+     * all of them, and reports the outcome of all of them.
+     *
+     * @param lipidName the lipid name to parse.
+     * @param workspace the workspace to reuse, owned by the calling thread.
+     * @return the result holding the {@link LipidAdduct} and the successful
+     * grammar, or the error messages of all grammars.
+     */
+    public LipidParserResult parseDetailed(String lipidName, ParseWorkspace workspace) {
+        LinkedHashMap<String, String> failureMessages = new LinkedHashMap<>();
+        LinkedHashMap<String, Duration> timings = new LinkedHashMap<>();
         BaseParserEventHandler<LipidAdduct> eventHandler = null;
-        for (Parser<LipidAdduct> parser : parserList) {
-            lastParser = parser;
+        for (int i = 0; i < parserList.size(); ++i) {
+            Parser<LipidAdduct> parser = parserList.get(i).get();
+            long start = System.nanoTime();
+            // skipping grammars that cannot match the name anyway
+            if (!parser.mayParse(lipidName)) {
+                timings.put(parser.grammarName, Duration.ofNanos(System.nanoTime() - start));
+                failureMessages.put(parser.grammarName, "Lipid name does not fit the alphabet or length of the grammar");
+                continue;
+            }
             eventHandler = parser.newEventHandler();
-            LipidAdduct lipid = parser.parse(lipidName, eventHandler, false);
+            LipidAdduct lipid = parser.parse(lipidName, eventHandler, workspace, false);
+            timings.put(parser.grammarName, Duration.ofNanos(System.nanoTime() - start));
             if (lipid != null) {
-                lastSuccessfulParser = parser;
-                return lipid;
+                hitWindow.record(i);
+                return new LipidParserResult(lipidName, lipid, parser, null, failureMessages, timings);
+            }
+            String errorMessage = eventHandler.errorMessage;
+            failureMessages.put(parser.grammarName, "Parsing failed at or after " + (errorMessage == null || errorMessage.isEmpty() ? lipidName : errorMessage));
+        }
+        hitWindow.record(GrammarHitWindow.NO_GRAMMAR);
+        return new LipidParserResult(lipidName, null, null, failedMessage(lipidName, eventHandler == null ? null : eventHandler.errorMessage), failureMessages, timings);
+    }
+
+    /**
+     * This method tries all parsers at the same time on the provided executor
+     * to parse the provided lipid name. The result is the same as for
+     * {@link #parse(java.lang.String)}: the first parser in the defined order
+     * that is able to parse the name wins, attempts of parsers further down
+     * the order that are still running are cancelled. The calling thread waits
+     * for the result. The parsers are handed to the executor in the adaptive
+     * order of the {@link #getGrammarStatistics() grammar statistics}, so that
+     * recently successful parsers start first on a busy executor.
+     *
+     * @param lipidName the lipid name to parse.
+     * @param executor the executor to run the parsers on, e.g. a thread pool
+     * with one thread per parser.
+     * @return the {@link LipidAdduct} if parsing with at least one parser
+     * succeeded.
+     * @throws LipidParsingException if now parser was able to parse the
+     * provided lipid name, or if the calling thread was interrupted while
+     * waiting.
+     */
+    public LipidAdduct parse(String lipidName, Executor executor) {
+        LipidParserResult result = parseDetailed(lipidName, executor);
+        lastSuccessfulParser.set(result.getParser().orElse(null));
+        return result.getLipidAdductOrThrow();
+    }
+
+    /**
+     * This method tries all parsers at the same time on the provided executor
+     * to parse the provided lipid name and reports the outcome in the same way
+     * as {@link #parseDetailed(java.lang.String)}. Parsers further down the
+     * defined order than the successful parser are cancelled and do not show
+     * up in the failure messages or timings of the result. Each parser
+     * attempt uses the workspace of the executor thread it runs on.
+     *
+     * @param lipidName the lipid name to parse.
+     * @param executor the executor to run the parsers on, e.g. a thread pool
+     * with one thread per parser.
+     * @return the result holding the {@link LipidAdduct} and the successful
+     * grammar, or the error messages of all grammars.
+     * @throws LipidParsingException if the calling thread was interrupted
+     * while waiting for the parsers.
+     */
+    public LipidParserResult parseDetailed(String lipidName, Executor executor) {
+        List<FutureTask<Attempt>> attempts = new ArrayList<>(Collections.nCopies(parserList.size(), (FutureTask<Attempt>) null));
+        // stops the running attempts that are no longer needed, without touching the interrupt status of the executor threads
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        try {
+            // the adaptive order only decides which attempts start first, the result is picked in the defined order
+            for (int i : hitWindow.order()) {
+                LazyParser parser = parserList.get(i);
+                FutureTask<Attempt> attempt = new FutureTask<>(() -> new Attempt(parser, lipidName, cancelled));
+                attempts.set(i, attempt);
+                executor.execute(attempt);
+            }
+
+            LinkedHashMap<String, String> failureMessages = new LinkedHashMap<>();
+            LinkedHashMap<String, Duration> timings = new LinkedHashMap<>();
+            String lastErrorMessage = null;
+            for (int i = 0; i < parserList.size(); ++i) {
+                String grammarName = parserList.get(i).grammarName;
+                // no-op if the executor already started the attempt
+                attempts.get(i).run();
+                Attempt attempt = attempts.get(i).get();
+                timings.put(grammarName, attempt.duration);
+                if (attempt.skipped) {
+                    failureMessages.put(grammarName, "Lipid name does not fit the alphabet or length of the grammar");
+                    continue;
+                }
+                if (attempt.lipid != null) {
+                    hitWindow.record(i);
+                    return new LipidParserResult(lipidName, attempt.lipid, attempt.parser, null, failureMessages, timings);
+                }
+                lastErrorMessage = attempt.errorMessage;
+                failureMessages.put(grammarName, "Parsing failed at or after " + (lastErrorMessage == null || lastErrorMessage.isEmpty() ? lipidName : lastErrorMessage));
+            }
+            hitWindow.record(GrammarHitWindow.NO_GRAMMAR);
+            return new LipidParserResult(lipidName, null, null, failedMessage(lipidName, lastErrorMessage), failureMessages, timings);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LipidParsingException("Interrupted while parsing lipid '" + lipidName + "'", ex);
+        } catch (ExecutionException ex) {
+            throw new LipidParsingException("Could not parse lipid '" + lipidName + "'", ex.getCause());
+        } finally {
+            // no-op for finished attempts
+            cancelled.set(true);
+            for (FutureTask<Attempt> attempt : attempts) {
+                if (attempt != null) {
+                    attempt.cancel(false);
+                }
+            }
+        }
+    }
+
+    // outcome of a single parser, run on an executor thread
+    private static final class Attempt {
+
+        private final Parser<LipidAdduct> parser;
+        private final boolean skipped;
+        private final LipidAdduct lipid;
+        private final String errorMessage;
+        private final Duration duration;
+
+        private Attempt(LazyParser lazyParser, String lipidName, AtomicBoolean cancelled) {
+            // the grammar is only compiled, if its attempt is still needed when it starts
+            if (cancelled.get()) {
+                throw new CancellationException("Parsing with grammar '" + lazyParser.grammarName + "' was cancelled");
+            }
+            parser = lazyParser.get();
+            long start = System.nanoTime();
+            // skipping grammars that cannot match the name anyway
+            skipped = !parser.mayParse(lipidName);
+            if (skipped) {
+                lipid = null;
+                errorMessage = null;
+            } else {
+                BaseParserEventHandler<LipidAdduct> eventHandler = parser.newEventHandler();
+                lipid = parser.parse(lipidName, eventHandler, ParseWorkspace.forCurrentThread(), false, cancelled::get);
+                errorMessage = eventHandler.errorMessage;
+            }
+            duration = Duration.ofNanos(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Parses all provided lipid names in parallel on the common fork-join
+     * pool. See {@link #parseAll(java.util.Collection, java.util.concurrent.Executor)}.
+     *
+     * @param lipidNames the lipid names to parse.
+     * @return one result per lipid name, in the order of the lipid names.
+     * @throws LipidParsingException if the calling thread was interrupted
+     * while waiting for the results.
+     */
+    public List<LipidParserResult> parseAll(Collection<String> lipidNames) {
+        return parseAll(lipidNames, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses all lipid names of the provided stream in parallel on the common
+     * fork-join pool. The stream is consumed completely before parsing
+     * starts. See
+     * {@link #parseAll(java.util.Collection, java.util.concurrent.Executor)}.
+     *
+     * @param lipidNames the lipid names to parse.
+     * @return one result per lipid name, in the order of the lipid names.
+     * @throws LipidParsingException if the calling thread was interrupted
+     * while waiting for the results.
+     */
+    public List<LipidParserResult> parseAll(Stream<String> lipidNames) {
+        return parseAll(lipidNames.collect(Collectors.toList()), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses all provided lipid names in parallel on the provided executor.
+     * Every distinct lipid name is parsed only once, in the same way as by
+     * {@link #parseDetailed(java.lang.String)}. The calling thread parses
+     * batches of names that the executor has not started yet, so a busy or
+     * saturated executor delays but never blocks the batch. Failing names do
+     * not stop the batch, they are reported by their results.
+     *
+     * @param lipidNames the lipid names to parse.
+     * @param executor the executor to run the batches of names on.
+     * @return one result per lipid name, in the order of the lipid names.
+     * Repeated lipid names get results with their own copies of the parsed
+     * lipid.
+     * @throws LipidParsingException if the calling thread was interrupted
+     * while waiting for the results.
+     */
+    public List<LipidParserResult> parseAll(Collection<String> lipidNames, Executor executor) {
+        // index of the first occurrence of every distinct lipid name
+        HashMap<String, Integer> firstIndex = new HashMap<>();
+        List<String> distinctNames = new ArrayList<>();
+        int[] distinctIndex = new int[lipidNames.size()];
+        int n = 0;
+        for (String lipidName : lipidNames) {
+            Integer index = firstIndex.putIfAbsent(lipidName, distinctNames.size());
+            if (index == null) {
+                index = distinctNames.size();
+                distinctNames.add(lipidName);
+            }
+            distinctIndex[n++] = index;
+        }
+
+        LipidParserResult[] distinctResults = new LipidParserResult[distinctNames.size()];
+        List<FutureTask<Void>> batches = new ArrayList<>();
+        try {
+            for (int start = 0; start < distinctNames.size(); start += BATCH_SIZE) {
+                int batchStart = start;
+                int batchEnd = Math.min(start + BATCH_SIZE, distinctNames.size());
+                FutureTask<Void> batch = new FutureTask<>(() -> {
+                    ParseWorkspace workspace = ParseWorkspace.forCurrentThread();
+                    for (int i = batchStart; i < batchEnd; ++i) {
+                        distinctResults[i] = parseDetailed(distinctNames.get(i), workspace);
+                    }
+                    return null;
+                });
+                batches.add(batch);
+                executor.execute(batch);
             }
+            for (FutureTask<Void> batch : batches) {
+                // no-op if the executor already started the batch
+                batch.run();
+                batch.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LipidParsingException("Interrupted while parsing " + distinctNames.size() + " lipid names", ex);
+        } catch (ExecutionException ex) {
+            throw new LipidParsingException("Could not parse " + distinctNames.size() + " lipid names", ex.getCause());
+        } finally {
+            // drops the batches that have not started, without interrupting executor threads
+            for (FutureTask<Void> batch : batches) {
+                batch.cancel(false);
+            }
+        }
+
+        List<LipidParserResult> results = new ArrayList<>(distinctIndex.length);
+        boolean[] handedOut = new boolean[distinctResults.length];
+        for (int index : distinctIndex) {
+            // only the first occurrence gets the parsed lipid itself, the results must not share it
+            results.add(handedOut[index] ? distinctResults[index].copy() : distinctResults[index]);
+            handedOut[index] = true;
         }
+        return results;
+    }
+
+    private String failedMessage(String lipidName, String errorMessage) {
         String message = " Parsing failed ";
-        if (eventHandler == null) {
+        if (parserList.isEmpty()) {
             message += " with unknown reason.";
         } else {
-            String errorMessage = eventHandler.errorMessage;
             if (errorMessage == null || errorMessage.isEmpty()) {
                 errorMessage = lipidName;
             }
             message += ("at or after " + errorMessage);
         }
-        throw new LipidParsingException("Could not parse lipid '" + lipidName + "' with any parser!" + message);
+        return "Could not parse lipid '" + lipidName + "' with any parser!" + message;
+    }
+
+    // true, if the parser of the grammar has been created, i.e. it was needed or warmed up
+    boolean isCompiled(String grammarName) {
+        return parserList.stream().anyMatch(lazyParser -> lazyParser.grammarName.equals(grammarName) && lazyParser.parser != null);
+    }
+
+    /**
+     * Returns the statistics of the successful grammars over the most recently
+     * parsed lipid names of all threads. The defined order of the grammars is
+     * kept for sequential parsing, since many lipid names can be parsed by
+     * more than one grammar and the first grammar in the defined order has to
+     * win.
+     *
+     * @return a snapshot of the grammar statistics.
+     */
+    public GrammarStatistics getGrammarStatistics() {
+        return hitWindow.snapshot();
     }
 
     /**
-     * Returns the last successful parser instance. May be null, if either no
-     * parser has been applied yet, or no parser has been successfully applied
-     * for parsing the last lipid name.
+     * Returns the last successful parser instance of the calling thread. May
+     * be null, if either no parser has been applied yet, or no parser has been
+     * successfully applied for parsing the last lipid name.
      *
      * @return the last successful parser instance.
+     * @deprecated use {@link #parseDetailed(java.lang.String)} and
+     * {@link LipidParserResult#getParser()} instead.
      */
+    @Deprecated
     public Parser<LipidAdduct> getLastSuccessfulParser() {
-        return lastSuccessfulParser;
+        return lastSuccessfulParser.get();
     }
 
     /**
-     * Returns the grammar name of the last successful parser.
+     * Returns the grammar name of the last successful parser of the calling
+     * thread.
      *
      * @return the grammar name of the last successful parser.
+     * @deprecated use {@link #parseDetailed(java.lang.String)} and
+     * {@link LipidParserResult#getGrammar()} instead.
      */
+    @Deprecated
     public String getLastSuccessfulGrammar() {
-        return lastSuccessfulParser.grammarName;
+        return lastSuccessfulParser.get().grammarName;
     }
 
 }
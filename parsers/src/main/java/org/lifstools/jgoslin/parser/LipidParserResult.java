@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+import org.lifstools.jgoslin.domain.LipidParsingException;
+
+/**
+ * Immutable outcome of parsing a lipid name with the {@link LipidParser}. Holds
+ * the parsed lipid and the grammar that parsed it, or the reason why no
+ * grammar was able to parse the name. For every grammar that was tried, the
+ * time spent and, if it failed, its error message are kept in the order the
+ * grammars were tried.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class LipidParserResult {
+
+    private final String lipidName;
+    private final LipidAdduct lipidAdduct;
+    private final Parser<LipidAdduct> parser;
+    private final String errorMessage;
+    private final Map<String, String> failureMessages;
+    private final Map<String, Duration> timings;
+
+    LipidParserResult(String lipidName, LipidAdduct lipidAdduct, Parser<LipidAdduct> parser, String errorMessage, LinkedHashMap<String, String> failureMessages, LinkedHashMap<String, Duration> timings) {
+        this(lipidName, lipidAdduct, parser, errorMessage, Collections.unmodifiableMap(failureMessages), Collections.unmodifiableMap(timings));
+    }
+
+    private LipidParserResult(String lipidName, LipidAdduct lipidAdduct, Parser<LipidAdduct> parser, String errorMessage, Map<String, String> failureMessages, Map<String, Duration> timings) {
+        this.lipidName = lipidName;
+        this.lipidAdduct = lipidAdduct;
+        this.parser = parser;
+        this.errorMessage = errorMessage;
+        this.failureMessages = failureMessages;
+        this.timings = timings;
+    }
+
+    // the same result with a deep copy of the lipid, the only mutable part of a result
+    LipidParserResult copy() {
+        return lipidAdduct == null ? this : new LipidParserResult(lipidName, lipidAdduct.copy(), parser, errorMessage, failureMessages, timings);
+    }
+
+    /**
+     * Returns the lipid name that was parsed.
+     *
+     * @return the lipid name.
+     */
+    public String getLipidName() {
+        return lipidName;
+    }
+
+    /**
+     * Returns true, if one of the grammars was able to parse the lipid name.
+     *
+     * @return true, if parsing succeeded.
+     */
+    public boolean isSuccess() {
+        return lipidAdduct != null;
+    }
+
+    /**
+     * Returns the parsed lipid, if parsing succeeded.
+     *
+     * @return the parsed lipid or an empty optional.
+     */
+    public Optional<LipidAdduct> getLipidAdduct() {
+        return Optional.ofNullable(lipidAdduct);
+    }
+
+    /**
+     * Returns the parsed lipid or throws the exception
+     * {@link LipidParser#parse(java.lang.String)} would have thrown.
+     *
+     * @return the parsed lipid.
+     * @throws LipidParsingException if no grammar was able to parse the lipid
+     * name.
+     */
+    public LipidAdduct getLipidAdductOrThrow() {
+        if (lipidAdduct == null) {
+            throw new LipidParsingException(errorMessage);
+        }
+        return lipidAdduct;
+    }
+
+    /**
+     * Returns the parser that parsed the lipid name, if parsing succeeded.
+     *
+     * @return the successful parser or an empty optional.
+     */
+    public Optional<Parser<LipidAdduct>> getParser() {
+        return Optional.ofNullable(parser);
+    }
+
+    /**
+     * Returns the name of the grammar that parsed the lipid name, if parsing
+     * succeeded.
+     *
+     * @return the grammar name or an empty optional.
+     */
+    public Optional<String> getGrammar() {
+        return parser == null ? Optional.empty() : Optional.of(parser.grammarName);
+    }
+
+    /**
+     * Returns the overall error message, if parsing failed.
+     *
+     * @return the error message or an empty optional.
+     */
+    public Optional<String> getErrorMessage() {
+        return Optional.ofNullable(errorMessage);
+    }
+
+    /**
+     * Returns the error messages of all grammars that failed to parse the
+     * lipid name, by grammar name.
+     *
+     * @return the unmodifiable error messages by grammar name.
+     */
+    public Map<String, String> getFailureMessages() {
+        return failureMessages;
+    }
+
+    /**
+     * Returns the time spent in every grammar that was tried, by grammar name.
+     *
+     * @return the unmodifiable timings by grammar name.
+     */
+    public Map<String, Duration> getTimings() {
+        return timings;
+    }
+
+    @Override
+    public String toString() {
+        return "LipidParserResult{" + "lipidName=" + lipidName + ", grammar=" + getGrammar().orElse(null) + ", errorMessage=" + errorMessage + ", failureMessages=" + failureMessages + ", timings=" + timings + '}';
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.Arrays;
+
+/**
+ * Primitive dynamic programming table for the CYK algorithm. Every cell of the
+ * (triangular) chart stores its set of non-terminals as a bitset over all rule
+ * indexes of the grammar. Backpointers are kept in flat int arrays, the
+ * backpointers of one cell are stored consecutively. A chart can be reset and
+ * reused for the next text, see {@link ParseWorkspace}.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class ParseChart {
+
+    static final int LEAF = -1;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int length;
+    private int words;
+    private int[] rowOffset = new int[0];
+    private long[] bits = new long[0];
+    private int[] cellStart = new int[0];
+    private int[] cellEnd = new int[0];
+
+    // backpointer pool, for leafs bpLeft stores the terminal character
+    private int[] bpRule = new int[INITIAL_CAPACITY];
+    private int[] bpLeft = new int[INITIAL_CAPACITY];
+    private int[] bpRight = new int[INITIAL_CAPACITY];
+    private int[] bpSplit = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    ParseChart(int _length, int numRules) {
+        reset(_length, numRules);
+    }
+
+    // prepares the chart for a new text, the arrays only grow. Cells are cleared when they are opened
+    void reset(int _length, int numRules) {
+        length = _length;
+        words = (numRules + 63) >>> 6;
+        if (rowOffset.length < length) {
+            rowOffset = new int[length];
+        }
+        int cells = 0;
+        for (int j = 0; j < length; ++j) {
+            rowOffset[j] = cells;
+            cells += length - j;
+        }
+        if (bits.length < cells * words) {
+            bits = new long[cells * words];
+        }
+        if (cellStart.length < cells) {
+            cellStart = new int[cells];
+            cellEnd = new int[cells];
+        }
+        size = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    // approximate memory held by the arrays of the chart
+    long retainedBytes() {
+        return 8L * bits.length + 4L * (rowOffset.length + cellStart.length + cellEnd.length)
+                + 4L * (bpRule.length + bpLeft.length + bpRight.length + bpSplit.length);
+    }
+
+    // index of the cell covering the characters start .. start + span
+    int cell(int start, int span) {
+        return rowOffset[start] + span;
+    }
+
+    void beginCell(int cell) {
+        Arrays.fill(bits, cell * words, (cell + 1) * words, 0L);
+        cellStart[cell] = size;
+        cellEnd[cell] = size;
+    }
+
+    boolean endCell(int cell) {
+        cellEnd[cell] = size;
+        return cellEnd[cell] > cellStart[cell];
+    }
+
+    boolean contains(int cell, int rule) {
+        return ((bits[cell * words + (rule >>> 6)] >>> (rule & 63)) & 1L) == 1L;
+    }
+
+    // w-th word of the rule bitset of the cell
+    long word(int cell, int w) {
+        return bits[cell * words + w];
+    }
+
+    boolean isEmpty(int cell) {
+        return cellEnd[cell] == cellStart[cell];
+    }
+
+    // returns the next rule index >= rule contained in the cell, or -1
+    int nextRule(int cell, int rule) {
+        int offset = cell * words;
+        int w = rule >>> 6;
+        if (w >= words) {
+            return -1;
+        }
+        long word = bits[offset + w] & (-1L << (rule & 63));
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words) {
+                return -1;
+            }
+            word = bits[offset + w];
+        }
+    }
+
+    // adds the rule with its backpointer into the currently open cell, first come, first served
+    void add(int cell, int rule, int left, int right, int split) {
+        int w = cell * words + (rule >>> 6);
+        long mask = 1L << (rule & 63);
+        if ((bits[w] & mask) != 0) {
+            return;
+        }
+        bits[w] |= mask;
+        if (size == bpRule.length) {
+            int capacity = size << 1;
+            bpRule = Arrays.copyOf(bpRule, capacity);
+            bpLeft = Arrays.copyOf(bpLeft, capacity);
+            bpRight = Arrays.copyOf(bpRight, capacity);
+            bpSplit = Arrays.copyOf(bpSplit, capacity);
+        }
+        bpRule[size] = rule;
+        bpLeft[size] = left;
+        bpRight[size] = right;
+        bpSplit[size] = split;
+        ++size;
+    }
+
+    void addLeaf(int cell, int rule, char terminal) {
+        add(cell, rule, terminal, LEAF, LEAF);
+    }
+
+    // returns the backpointer index of a rule within a cell, or -1
+    int find(int cell, int rule) {
+        if (!contains(cell, rule)) {
+            return -1;
+        }
+        for (int e = cellStart[cell]; e < cellEnd[cell]; ++e) {
+            if (bpRule[e] == rule) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    boolean isLeaf(int bp) {
+        return bpRight[bp] == LEAF;
+    }
+
+    int left(int bp) {
+        return bpLeft[bp];
+    }
+
+    int right(int bp) {
+        return bpRight[bp];
+    }
+
+    int split(int bp) {
+        return bpSplit[bp];
+    }
+}
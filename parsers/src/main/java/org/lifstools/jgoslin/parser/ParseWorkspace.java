@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+/**
+ * Reusable memory for parsing. A workspace keeps the dynamic programming
+ * chart of the last parse and reuses it for the next one, growing it to the
+ * largest text seen so far. Long texts and charts that grew beyond a memory
+ * limit are not retained, so that a long-lived thread does not pin a large
+ * chart after a single outlier. A workspace may be shared by parsers of
+ * different grammars, but must not be used by several threads at the same
+ * time. Parsers that are called without an explicit workspace use one
+ * workspace per thread.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public final class ParseWorkspace {
+
+    /**
+     * Texts up to this length keep their chart in the workspace by default.
+     */
+    public static final int DEFAULT_MAX_RETAINED_LENGTH = 64;
+
+    /**
+     * Charts up to this size in bytes are kept in the workspace by default.
+     */
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 1L << 20;
+
+    private static final ThreadLocal<ParseWorkspace> THREAD_WORKSPACE = ThreadLocal.withInitial(ParseWorkspace::new);
+
+    private final int maxRetainedLength;
+    private final long maxRetainedBytes;
+    private ParseChart chart = null;
+    private boolean inUse = false;
+
+    /**
+     * Create a new workspace retaining charts for texts up to
+     * {@link #DEFAULT_MAX_RETAINED_LENGTH} characters and up to
+     * {@link #DEFAULT_MAX_RETAINED_BYTES} bytes.
+     */
+    public ParseWorkspace() {
+        this(DEFAULT_MAX_RETAINED_LENGTH, DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    /**
+     * Create a new workspace retaining charts up to
+     * {@link #DEFAULT_MAX_RETAINED_BYTES} bytes.
+     *
+     * @param maxRetainedLength texts longer than this are parsed with a
+     * temporary chart, so that single outliers do not pin large charts in
+     * memory.
+     */
+    public ParseWorkspace(int maxRetainedLength) {
+        this(maxRetainedLength, DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    /**
+     * Create a new workspace.
+     *
+     * @param maxRetainedLength texts longer than this are parsed with a
+     * temporary chart, so that single outliers do not pin large charts in
+     * memory.
+     * @param maxRetainedBytes a chart that grew beyond this size in bytes,
+     * e.g. for a grammar with many rules, is dropped after the parse.
+     */
+    public ParseWorkspace(int maxRetainedLength, long maxRetainedBytes) {
+        this.maxRetainedLength = maxRetainedLength;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    static ParseWorkspace forCurrentThread() {
+        return THREAD_WORKSPACE.get();
+    }
+
+    // hands out the chart for a text of the given length, a nested parse on the same workspace gets a temporary chart
+    ParseChart acquire(int length, int numRules) {
+        if (inUse || length > maxRetainedLength) {
+            return new ParseChart(length, numRules);
+        }
+        inUse = true;
+        if (chart == null) {
+            chart = new ParseChart(length, numRules);
+        } else {
+            chart.reset(length, numRules);
+        }
+        return chart;
+    }
+
+    void release(ParseChart _chart) {
+        if (_chart == chart) {
+            inUse = false;
+            if (chart.retainedBytes() > maxRetainedBytes) {
+                chart = null;
+            }
+        }
+    }
+}
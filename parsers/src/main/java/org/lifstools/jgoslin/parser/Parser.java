@@ -23,6 +23,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 import org.lifstools.jgoslin.domain.ConstraintViolationException;
 
 /**
@@ -36,22 +40,6 @@ import org.lifstools.jgoslin.domain.ConstraintViolationException;
  */
 public abstract class Parser<T> {
 
-    // DP stands for dynamic programming
-    protected final class DPNode {
-
-        public long rule_index_1;
-        public long rule_index_2;
-        public DPNode left = null;
-        public DPNode right = null;
-
-        public DPNode(long _rule1, long _rule2, DPNode _left, DPNode _right) {
-            rule_index_1 = _rule1;
-            rule_index_2 = _rule2;
-            left = _left;
-            right = _right;
-        }
-    }
-
     enum Context {
         NoContext, InLineComment, InLongComment, InQuote
     };
@@ -71,30 +59,113 @@ public abstract class Parser<T> {
     protected static final String EOF_RULE_NAME = "EOF";
 
     protected long nextFreeRuleIndex;
-    protected final HashMap<Character, HashSet<Long>> TtoNT = new HashMap<>();
-    protected final HashMap<Character, Long> originalTtoNT = new HashMap<>();
-    protected final HashMap<String, Long> ruleToNT = new HashMap<>();
-    protected final HashMap<Long, HashSet<Long>> NTtoNT = new HashMap<>();
-    protected final HashMap<Long, String> NTtoRule = new HashMap<>();
-    protected final HashMap<Long, ArrayList<Long>> substitution = new HashMap<>();
+    // the compiled tables are only written while compiling and may be shared by parsers of the same grammar
+    protected final HashMap<Character, HashSet<Long>> TtoNT;
+    protected final HashMap<Character, Long> originalTtoNT;
+    protected final HashMap<String, Long> ruleToNT;
+    protected final HashMap<Long, HashSet<Long>> NTtoNT;
+    protected final HashMap<Long, String> NTtoRule;
+    protected final HashMap<Long, ArrayList<Long>> substitution;
+    protected RulePairs rulePairs;
+    /**
+     * @deprecated the right rules of every left rule are held in
+     * {@link #rulePairs}, this list is no longer filled.
+     */
+    @Deprecated
     protected final ArrayList<Bitfield> rightPair = new ArrayList<>();
-    protected int avgPair;
+    protected GrammarFilter filter;
+    protected final ConcurrentHashMap<Set<String>, EventBinding> eventBindings = new ConcurrentHashMap<>();
+    protected boolean buildingParseTree = true;
     protected char quote;
     protected String grammarName = "";
     protected boolean usedEof = false;
     protected static final char DEFAULT_QUOTE = '\'';
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
 
     public Parser(String grammarContent) {
         this(grammarContent, (char) '\0');
     }
 
     public Parser(String grammarContent, char _quote) {
+        TtoNT = new HashMap<>();
+        originalTtoNT = new HashMap<>();
+        ruleToNT = new HashMap<>();
+        NTtoNT = new HashMap<>();
+        NTtoRule = new HashMap<>();
+        substitution = new HashMap<>();
         this.quote = (_quote != 0) ? _quote : DEFAULT_QUOTE;
-        readGrammar(grammarContent);
+        if (!GrammarTable.load(this, grammarContent)) {
+            readGrammar(grammarContent);
+        }
+    }
+
+    /**
+     * Creates a parser that shares the compiled tables of the provided parser
+     * instead of compiling the grammar again. The settings, like
+     * {@link #isBuildingParseTree()}, and the event bindings are not shared.
+     *
+     * @param compiled the parser to share the compiled grammar of.
+     */
+    protected Parser(Parser<?> compiled) {
+        this(new CompiledGrammar(compiled));
+    }
+
+    // shares the tables of a compiled grammar, see Parser(Parser)
+    Parser(CompiledGrammar compiled) {
+        nextFreeRuleIndex = compiled.nextFreeRuleIndex;
+        TtoNT = compiled.TtoNT;
+        originalTtoNT = compiled.originalTtoNT;
+        ruleToNT = compiled.ruleToNT;
+        NTtoNT = compiled.NTtoNT;
+        NTtoRule = compiled.NTtoRule;
+        substitution = compiled.substitution;
+        rulePairs = compiled.rulePairs;
+        filter = compiled.filter;
+        quote = compiled.quote;
+        grammarName = compiled.grammarName;
+        usedEof = compiled.usedEof;
     }
 
     public abstract BaseParserEventHandler<T> newEventHandler();
 
+    /**
+     * Cheap test, if the text can possibly be parsed by this grammar. Checks
+     * the characters of the text, its first and last character and its
+     * length against the words of the grammar, without filling a parse chart.
+     * A text passing this test may still fail to parse.
+     *
+     * @param textToParse the text to parse.
+     * @return false, if parsing the text will certainly fail.
+     */
+    public boolean mayParse(String textToParse) {
+        return filter.accepts(textToParse, usedEof ? EOF_SIGN : 0);
+    }
+
+    /**
+     * Returns true, if a {@link TreeNode} tree is built for every parsed text
+     * before raising the events.
+     *
+     * @return true, if a parse tree is built before raising the events.
+     */
+    public boolean isBuildingParseTree() {
+        return buildingParseTree;
+    }
+
+    /**
+     * Enable or disable building a {@link TreeNode} tree for every parsed text.
+     * By default, a tree is built and the event handlers receive its nodes.
+     * If disabled, events are raised directly from the parse chart, which is
+     * faster, and the event handlers receive a single node view, which is
+     * only valid during the event. Only disable it for event handlers that do
+     * not keep nodes beyond their events.
+     *
+     * @param buildingParseTree true, to build a parse tree before raising the
+     * events.
+     */
+    public void setBuildingParseTree(boolean buildingParseTree) {
+        this.buildingParseTree = buildingParseTree;
+    }
+
     protected long get_next_free_rule_index() {
         if (nextFreeRuleIndex <= MASK) {
             return nextFreeRuleIndex++;
@@ -319,17 +390,17 @@ public abstract class Parser<T> {
             }
         }
 
-        // creating lookup table for right index pairs to a given left index
-        for (long i = 0; i < nextFreeRuleIndex; ++i) {
-            rightPair.add(new Bitfield((int) nextFreeRuleIndex));
-        }
+        create_right_pairs();
+        create_filter();
+    }
 
-        for (Entry<Long, HashSet<Long>> kv : NTtoNT.entrySet()) {
-            if (kv.getKey() <= MASK) {
-                continue;
-            }
-            rightPair.get((int) ((kv.getKey() >>> SHIFT))).add((int) (kv.getKey() & MASK));
-        }
+    protected void create_filter() {
+        filter = new GrammarFilter(TtoNT, NTtoNT, (int) nextFreeRuleIndex, (int) START_RULE);
+    }
+
+    // creating lookup table for right index pairs to a given left index
+    protected void create_right_pairs() {
+        rulePairs = new RulePairs(NTtoNT, (int) nextFreeRuleIndex);
     }
 
     protected ArrayList<String> extract_text_based_rules(String grammar, char _quote) {
@@ -592,9 +663,9 @@ public abstract class Parser<T> {
 
     protected void raise_events(TreeNode node, BaseParserEventHandler parserEventHandler) {
         if (node != null) {
-            String node_rule_name = node.fire_event ? NTtoRule.get(node.rule_index) : "";
-            if (node.fire_event) {
-                parserEventHandler.handleEvent(node_rule_name + "_pre_event", node);
+            int slot = node.fire_event ? parserEventHandler.eventSlot((int) node.rule_index) : -1;
+            if (slot >= 0) {
+                parserEventHandler.handlePreEvent(slot, node);
             }
 
             if (node.left != null) { // node.terminal is != None when node is leaf
@@ -604,43 +675,103 @@ public abstract class Parser<T> {
                 }
             }
 
-            if (node.fire_event) {
-                parserEventHandler.handleEvent(node_rule_name + "_post_event", node);
+            if (slot >= 0) {
+                parserEventHandler.handlePostEvent(slot, node);
             }
         }
     }
 
-    // filling the syntax tree including events
-    protected void fill_tree(TreeNode node, DPNode dp_node) {
+    // resolving and checking the events of a handler once per grammar and set of registered events
+    protected void bind_events(BaseParserEventHandler<T> parserEventHandler) {
+        EventBinding binding = eventBindings.get(parserEventHandler.registeredEvents.keySet());
+        if (binding == null) {
+            // adding all rule names into the event handler
+            parserEventHandler.ruleNames.addAll(ruleToNT.keySet());
+            parserEventHandler.sanityCheck(this);
+            binding = new EventBinding(NTtoRule, (int) nextFreeRuleIndex, parserEventHandler.registeredEvents);
+            eventBindings.putIfAbsent(Set.copyOf(parserEventHandler.registeredEvents.keySet()), binding);
+        }
+        parserEventHandler.bind(binding);
+    }
+
+    // filling the syntax tree including events, every node spans its characters of the text
+    protected void fill_tree(TreeNode node, ParseChart chart, String text, int start, int span) {
         // checking and extending nodes for single rule chains
+        int bp = chart.find(chart.cell(start, span), (int) node.rule_index);
 
-        long bottom_rule = 0, top_rule = 0;
-        if (dp_node.left != null) {
-            bottom_rule = compute_rule_key(dp_node.rule_index_1, dp_node.rule_index_2);
-            top_rule = node.rule_index;
+        long bottom_rule = 0, top_rule = node.rule_index;
+        if (!chart.isLeaf(bp)) {
+            bottom_rule = compute_rule_key(chart.left(bp), chart.right(bp));
         } else {
-            top_rule = dp_node.rule_index_2;
-            bottom_rule = originalTtoNT.get((char) dp_node.rule_index_1);
+            bottom_rule = originalTtoNT.get((char) chart.left(bp));
         }
 
         long subst_key = bottom_rule + (top_rule << 16);
 
         if ((bottom_rule != top_rule) && (substitution.containsKey(subst_key))) {
             for (long rule_index : substitution.get(subst_key)) {
-                node.left = new TreeNode(rule_index, NTtoRule.containsKey(rule_index));
+                node.left = new TreeNode(rule_index, NTtoRule.containsKey(rule_index), text, start, start + span + 1);
                 node = node.left;
             }
         }
 
-        if (dp_node.left != null) { // None => leaf
-            node.left = new TreeNode(dp_node.rule_index_1, NTtoRule.containsKey(dp_node.rule_index_1));
-            node.right = new TreeNode(dp_node.rule_index_2, NTtoRule.containsKey(dp_node.rule_index_2));
-            fill_tree(node.left, dp_node.left);
-            fill_tree(node.right, dp_node.right);
+        if (!chart.isLeaf(bp)) {
+            int k = chart.split(bp);
+            node.left = new TreeNode(chart.left(bp), NTtoRule.containsKey((long) chart.left(bp)), text, start, start + k + 1);
+            node.right = new TreeNode(chart.right(bp), NTtoRule.containsKey((long) chart.right(bp)), text, start + k + 1, start + span + 1);
+            fill_tree(node.left, chart, text, start, k);
+            fill_tree(node.right, chart, text, start + k + 1, span - k - 1);
+        } else {
+            node.terminal = (char) chart.left(bp);
+        }
+    }
+
+    // raising the events of a rule and its single rule chain directly from the chart, the view is moved over the spans of the firing rules
+    protected void raise_events(ParseChart chart, int rule, int start, int span, TreeNode view, BaseParserEventHandler<T> parserEventHandler) {
+        int bp = chart.find(chart.cell(start, span), rule);
+
+        long bottom_rule = 0, top_rule = rule;
+        if (!chart.isLeaf(bp)) {
+            bottom_rule = compute_rule_key(chart.left(bp), chart.right(bp));
+        } else {
+            bottom_rule = originalTtoNT.get((char) chart.left(bp));
+        }
+
+        long subst_key = bottom_rule + (top_rule << 16);
+        ArrayList<Long> chain = (bottom_rule != top_rule) ? substitution.get(subst_key) : null;
+        int chainLength = chain != null ? chain.size() : 0;
+
+        int end = start + span + 1;
+        raise_event(rule, true, start, end, view, parserEventHandler);
+        for (int i = 0; i < chainLength; ++i) {
+            raise_event(chain.get(i), true, start, end, view, parserEventHandler);
+        }
+
+        if (!chart.isLeaf(bp)) {
+            int k = chart.split(bp);
+            raise_events(chart, chart.left(bp), start, k, view, parserEventHandler);
+            raise_events(chart, chart.right(bp), start + k + 1, span - k - 1, view, parserEventHandler);
+        }
+
+        for (int i = chainLength - 1; i >= 0; --i) {
+            raise_event(chain.get(i), false, start, end, view, parserEventHandler);
+        }
+        raise_event(rule, false, start, end, view, parserEventHandler);
+    }
+
+    private void raise_event(long rule, boolean pre, int start, int end, TreeNode view, BaseParserEventHandler<T> parserEventHandler) {
+        // chains may end with the key of the bottom rule pair, which never fires
+        int slot = rule < nextFreeRuleIndex ? parserEventHandler.eventSlot((int) rule) : -1;
+        if (slot < 0) {
+            return;
+        }
+        view.rule_index = rule;
+        view.start = start;
+        view.end = end;
+        if (pre) {
+            parserEventHandler.handlePreEvent(slot, view);
         } else {
-            // I know, it is not 100% clean to store the character in an integer
-            // especially when it is not the dedicated attribute for, but the heck with it!
-            node.terminal = (char) dp_node.rule_index_1;
+            parserEventHandler.handlePostEvent(slot, view);
         }
     }
 
@@ -672,21 +803,38 @@ public abstract class Parser<T> {
      * @return the parsed object of type T if successful, otherwise {@code null}, if throwError is {@code false}.
      */
     public T parse(String textToParse, BaseParserEventHandler<T> parserEventHandler, boolean throwError) {
+        return parse(textToParse, parserEventHandler, ParseWorkspace.forCurrentThread(), throwError);
+    }
+
+    /**
+     * Parse the given text, constructing the output object of type T using the
+     * provided parser event handler and the memory of the provided workspace.
+     * Allows the user to specify, if exceptions should be thrown on errors.
+     *
+     * @param textToParse the text to parse.
+     * @param parserEventHandler the parser event handler to process events
+     * created by the parser.
+     * @param workspace the workspace to reuse, owned by the calling thread.
+     * @param throwError if true, throws exception if parsing was not
+     * successful.
+     * @return the parsed object of type T if successful, otherwise {@code null}, if throwError is {@code false}.
+     */
+    public T parse(String textToParse, BaseParserEventHandler<T> parserEventHandler, ParseWorkspace workspace, boolean throwError) {
+        return parse(textToParse, parserEventHandler, workspace, throwError, NOT_CANCELLED);
+    }
+
+    // speculative attempts are stopped through the cancelled flag, a cancelled parse
+    // throws CancellationException and is never reported as a failure of the grammar
+    T parse(String textToParse, BaseParserEventHandler<T> parserEventHandler, ParseWorkspace workspace, boolean throwError, BooleanSupplier cancelled) {
         String old_text = textToParse;
         
         if (usedEof) {
             textToParse += EOF_SIGN;
         }
         parserEventHandler.content = null;
-
-        // adding all rule names into the event handler
-        for (Entry<String, Long> rule_name : ruleToNT.entrySet()) {
-            parserEventHandler.ruleNames.add(rule_name.getKey());
-        }
-
-        parserEventHandler.sanityCheck(this);
+        bind_events(parserEventHandler);
         try {
-            Optional<ParsingErrors> parsingErrors = parse_regular(textToParse, parserEventHandler);
+            Optional<ParsingErrors> parsingErrors = parse_regular(textToParse, parserEventHandler, workspace, cancelled);
             if (parsingErrors.isPresent() && !parsingErrors.get().wordInGrammar) {
                 if (throwError) {
                     throw new LipidParsingException("Token '" + old_text + "' can not be parsed by grammar '" + grammarName + "'");
@@ -694,6 +842,8 @@ public abstract class Parser<T> {
                     parserEventHandler.errorMessage = parsingErrors.get().errorMessage;
                 }
             }
+        } catch (CancellationException ce) {
+            throw ce;
         } catch (RuntimeException lpe) {
             if (throwError) {
                 throw new LipidParsingException("Token '" + old_text + "' can not be parsed by grammar '" + grammarName + "': ", lpe);
@@ -716,99 +866,89 @@ public abstract class Parser<T> {
 
     }
 
-    protected Optional<ParsingErrors> parse_regular(String text_to_parse, BaseParserEventHandler<T> parserEventHandler) {
-        boolean wordInGrammar = false;
+    protected Optional<ParsingErrors> parse_regular(String text_to_parse, BaseParserEventHandler<T> parserEventHandler, ParseWorkspace workspace) {
+        return parse_regular(text_to_parse, parserEventHandler, workspace, NOT_CANCELLED);
+    }
 
+    private Optional<ParsingErrors> parse_regular(String text_to_parse, BaseParserEventHandler<T> parserEventHandler, ParseWorkspace workspace, BooleanSupplier cancelled) {
         int n = text_to_parse.length();
         // dp stands for dynamic programming, nothing else
-        ArrayList< ArrayList< HashMap<Long, DPNode>>> DP = new ArrayList<>();
-
-        // Ks is a lookup, which fields in the DP are filled
-        Bitfield[] Ks = new Bitfield[n];
-
-        // init the tables
-        for (int i = 0; i < n; ++i) {
-            ArrayList< HashMap<Long, DPNode>> list = new ArrayList<>();
-            for (int j = 0; j < n - i; ++j) {
-                list.add(new HashMap<>());
-            }
-            DP.add(list);
-            Ks[i] = new Bitfield(n);
+        ParseChart DP = workspace.acquire(n, (int) nextFreeRuleIndex);
+        try {
+            return parse_regular(text_to_parse, parserEventHandler, DP, cancelled);
+        } finally {
+            workspace.release(DP);
         }
+    }
 
-        boolean requirement_fulfilled = true;
+    // filling the dp table, false if the text contains characters not in the grammar
+    protected boolean fill_chart(String text_to_parse, ParseChart DP, BooleanSupplier cancelled) {
+        int n = text_to_parse.length();
         for (int i = 0; i < n; ++i) {
             char c = text_to_parse.charAt(i);
             if (!TtoNT.containsKey(c)) {
-                requirement_fulfilled = false;
-                break;
+                return false;
             }
 
+            int cell = DP.cell(i, 0);
+            DP.beginCell(cell);
             for (long T_rule_index : TtoNT.get(c)) {
-                DPNode dp_node = new DPNode(c, T_rule_index, null, null);
-                DP.get(i).get(0).put(T_rule_index, dp_node);
-            }
-            Ks[i].add(0);
-        }
-
-        if (requirement_fulfilled) {
-            for (int i = 1; i < n; ++i) {
-                int im1 = i - 1;
-
-                for (int j = 0; j < n - i; ++j) {
-
-                    ArrayList< HashMap<Long, DPNode>> DPj = DP.get(j);
-                    HashMap<Long, DPNode> DPji = DPj.get(i);
-                    int jp1 = j + 1;
-
-                    Ks[j].resetIterator();
-                    while (Ks[j].hasNext()) {
-                        int k = Ks[j].next();
-                        int jpok = jp1 + k;
-                        int im1mk = im1 - k;
-                        if (Ks[jpok].find(im1mk)) {
-                            for (Entry<Long, DPNode> index_pair_1 : DP.get(j).get(k).entrySet()) {
-                                Bitfield b = rightPair.get((int) (long) index_pair_1.getKey());
-                                for (Entry<Long, DPNode> index_pair_2 : DP.get(jpok).get(im1mk).entrySet()) {
-                                    if (b.find((int) (long) index_pair_2.getKey())) {
-                                        long key = compute_rule_key(index_pair_1.getKey(), index_pair_2.getKey());
-
-                                        DPNode content = new DPNode(index_pair_1.getKey(), index_pair_2.getKey(), index_pair_1.getValue(), index_pair_2.getValue());
-                                        for (long rule_index : NTtoNT.get(key)) {
-                                            if (!DPji.containsKey(rule_index)) {
-                                                DPji.put(rule_index, content);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                DP.addLeaf(cell, (int) T_rule_index, c);
+            }
+            DP.endCell(cell);
+        }
 
-                    }
-                    if (DPji.size() > 0) {
-                        Ks[j].add(i);
+        for (int i = 1; i < n; ++i) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Parsing with grammar '" + grammarName + "' was cancelled");
+            }
+            int im1 = i - 1;
+
+            for (int j = 0; j < n - i; ++j) {
+                int DPji = DP.cell(j, i);
+                int jp1 = j + 1;
+                DP.beginCell(DPji);
+
+                for (int k = 0; k < i; ++k) {
+                    int jpok = jp1 + k;
+                    int im1mk = im1 - k;
+                    int left_cell = DP.cell(j, k);
+                    int right_cell = DP.cell(jpok, im1mk);
+                    if (!DP.isEmpty(left_cell) && !DP.isEmpty(right_cell)) {
+                        rulePairs.combine(DP, DPji, left_cell, right_cell, k);
                     }
                 }
+                DP.endCell(DPji);
             }
+        }
+        return true;
+    }
 
+    protected Optional<ParsingErrors> parse_regular(String text_to_parse, BaseParserEventHandler<T> parserEventHandler, ParseChart DP, BooleanSupplier cancelled) {
+        boolean wordInGrammar = false;
+        int n = text_to_parse.length();
+
+        if (fill_chart(text_to_parse, DP, cancelled)) {
             for (int i = n - 1; i > 0; --i) {
-                if (DP.get(0).get(i).containsKey(START_RULE)) {
+                if (DP.contains(DP.cell(0, i), (int) START_RULE)) {
                     wordInGrammar = true;
-                    TreeNode parse_tree = new TreeNode(START_RULE, NTtoRule.containsKey(START_RULE));
-                    fill_tree(parse_tree, DP.get(0).get(i).get(START_RULE));
-                    raise_events(parse_tree, parserEventHandler);
+                    if (buildingParseTree) {
+                        TreeNode parse_tree = new TreeNode(START_RULE, NTtoRule.containsKey(START_RULE), text_to_parse, 0, i + 1);
+                        fill_tree(parse_tree, DP, text_to_parse, 0, i);
+                        raise_events(parse_tree, parserEventHandler);
+                    } else {
+                        raise_events(DP, (int) START_RULE, 0, i, new TreeNode(START_RULE, true, text_to_parse, 0, i + 1), parserEventHandler);
+                    }
                     break;
                 }
             }
 
             if (!wordInGrammar) {
                 for (int i = n - 1; i > 0; --i) {
-                    if (DP.get(0).get(i).size() > 0) {
-                        long first_rule = DP.get(0).get(i).keySet().iterator().next();
-
-                        TreeNode parse_tree = new TreeNode(first_rule, NTtoRule.containsKey(first_rule));
-                        fill_tree(parse_tree, DP.get(0).get(i).get(first_rule));
-                        return Optional.of(new ParsingErrors(wordInGrammar, parse_tree.getText()));
+                    if (!DP.isEmpty(DP.cell(0, i))) {
+                        // the text of any partial parse tree is the covered prefix, without the EOF sign
+                        int end = (usedEof && text_to_parse.charAt(i) == EOF_SIGN) ? i : i + 1;
+                        return Optional.of(new ParsingErrors(wordInGrammar, text_to_parse.substring(0, end)));
                     }
                 }
             }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Word packed lookup of the binary rules of a grammar. For every left rule,
+ * the possible right rules are stored as a bitset with the same layout as the
+ * cells of a {@link ParseChart}, so that all matching right rules of a cell
+ * are found by and-ing the words of both. The parent rules of a rule pair are
+ * found via the rank of the right rule within the bitset of the left rule.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+final class RulePairs {
+
+    private final int words;
+    // left rule -> bitset of right rules, null if the rule is never a left rule
+    private final long[][] rightRules;
+    // left rule -> number of right rules before each word
+    private final int[][] rank;
+    private final int[] firstWord;
+    private final int[] lastWord;
+    // left rule -> index of its first rule pair
+    private final int[] pairBase;
+    // rule pair -> range of its parent rules in parents
+    private final int[] parentStart;
+    private final int[] parents;
+
+    RulePairs(Map<Long, HashSet<Long>> NTtoNT, int numRules) {
+        words = (numRules + 63) >>> 6;
+        rightRules = new long[numRules][];
+        int numPairs = 0;
+        int numParents = 0;
+        for (Entry<Long, HashSet<Long>> kv : NTtoNT.entrySet()) {
+            if (kv.getKey() <= Parser.MASK) {
+                continue;
+            }
+            int left = (int) (kv.getKey() >>> Parser.SHIFT);
+            int right = (int) (kv.getKey() & Parser.MASK);
+            if (rightRules[left] == null) {
+                rightRules[left] = new long[words];
+            }
+            rightRules[left][right >>> 6] |= 1L << (right & 63);
+            ++numPairs;
+            numParents += kv.getValue().size();
+        }
+
+        rank = new int[numRules][];
+        firstWord = new int[numRules];
+        lastWord = new int[numRules];
+        pairBase = new int[numRules];
+        int pairs = 0;
+        for (int left = 0; left < numRules; ++left) {
+            pairBase[left] = pairs;
+            long[] r = rightRules[left];
+            if (r == null) {
+                continue;
+            }
+            rank[left] = new int[words];
+            firstWord[left] = -1;
+            for (int w = 0; w < words; ++w) {
+                rank[left][w] = pairs - pairBase[left];
+                if (r[w] != 0) {
+                    if (firstWord[left] < 0) {
+                        firstWord[left] = w;
+                    }
+                    lastWord[left] = w;
+                    pairs += Long.bitCount(r[w]);
+                }
+            }
+        }
+
+        // pairs are numbered by left rule first, right rule second
+        parentStart = new int[numPairs + 1];
+        parents = new int[numParents];
+        for (Entry<Long, HashSet<Long>> kv : NTtoNT.entrySet()) {
+            if (kv.getKey() > Parser.MASK) {
+                parentStart[pair((int) (kv.getKey() >>> Parser.SHIFT), (int) (kv.getKey() & Parser.MASK)) + 1] = kv.getValue().size();
+            }
+        }
+        for (int p = 0; p < numPairs; ++p) {
+            parentStart[p + 1] += parentStart[p];
+        }
+        for (Entry<Long, HashSet<Long>> kv : NTtoNT.entrySet()) {
+            if (kv.getKey() > Parser.MASK) {
+                int p = parentStart[pair((int) (kv.getKey() >>> Parser.SHIFT), (int) (kv.getKey() & Parser.MASK))];
+                for (long rule : kv.getValue()) {
+                    parents[p++] = (int) rule;
+                }
+            }
+        }
+    }
+
+    private int pair(int left, int right) {
+        int w = right >>> 6;
+        return pairBase[left] + rank[left][w] + Long.bitCount(rightRules[left][w] & ((1L << (right & 63)) - 1));
+    }
+
+    /**
+     * Adds all parent rules of the rule pairs of the left and the right cell
+     * into the currently open cell. Pairs are visited in ascending order of
+     * the left, then the right rule.
+     */
+    void combine(ParseChart chart, int cell, int leftCell, int rightCell, int split) {
+        for (int left = chart.nextRule(leftCell, 0); left >= 0; left = chart.nextRule(leftCell, left + 1)) {
+            long[] r = rightRules[left];
+            if (r == null) {
+                continue;
+            }
+            int[] leftRank = rank[left];
+            int base = pairBase[left];
+            for (int w = firstWord[left], end = lastWord[left]; w <= end; ++w) {
+                long candidates = r[w];
+                long matches = candidates & chart.word(rightCell, w);
+                while (matches != 0) {
+                    long lowest = matches & -matches;
+                    int right = (w << 6) + Long.numberOfTrailingZeros(matches);
+                    int p = base + leftRank[w] + Long.bitCount(candidates & (lowest - 1));
+                    for (int i = parentStart[p], e = parentStart[p + 1]; i < e; ++i) {
+                        chart.add(cell, parents[i], left, right, split);
+                    }
+                    matches ^= lowest;
+                }
+            }
+        }
+    }
+}
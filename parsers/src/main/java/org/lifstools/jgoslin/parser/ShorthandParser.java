@@ -28,7 +28,7 @@ import org.lifstools.jgoslin.domain.LipidAdduct;
  */
 public class ShorthandParser extends Parser<LipidAdduct> {
 
-    private static final String DEFAULT_GRAMMAR = "Shorthand2020.g4";
+    static final String DEFAULT_GRAMMAR = "Shorthand2020.g4";
 
     private final KnownFunctionalGroups knownFunctionalGroups;
 
@@ -52,17 +52,18 @@ public class ShorthandParser extends Parser<LipidAdduct> {
      * @param knownFunctionalGroups the known functional groups
      */
     public ShorthandParser(KnownFunctionalGroups knownFunctionalGroups) {
-        this(knownFunctionalGroups, StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        super(GrammarRegistry.getCompiledGrammar(DEFAULT_GRAMMAR, StringFunctions.DEFAULT_QUOTE, content -> new ShorthandParser(knownFunctionalGroups, content, StringFunctions.DEFAULT_QUOTE)));
+        this.knownFunctionalGroups = knownFunctionalGroups;
     }
 
     /**
      * Create a new instance of a {@link ShorthandParser} with default grammar
      * {@link ShorthandParser#DEFAULT_GRAMMAR} and default quote
-     * {@link StringFunctions#DEFAULT_QUOTE} and default
-     * {@link KnownFunctionalGroups}.
+     * {@link StringFunctions#DEFAULT_QUOTE} and the shared
+     * {@link GrammarRegistry#getKnownFunctionalGroups() known functional groups}.
      */
     public ShorthandParser() {
-        this(new KnownFunctionalGroups(), StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        this(GrammarRegistry.getKnownFunctionalGroups());
     }
 
     @Override
@@ -335,7 +335,7 @@ public class ShorthandParserEventHandler extends LipidBaseParserEventHandler {
             throw new LipidParsingException("Carbohydrate '" + carbohydrate + "' unknown");
         }
 
-        functional_group.getElements().put(Element.O, functional_group.getElements().get(Element.O) - 1);
+        functional_group.getElements().increment(Element.O, -1);
         if (tmp.containsKey("func_group_head") && ((int) tmp.get("func_group_head") == 1)) {
             headgroupDecorators.add((HeadgroupDecorator) functional_group);
         } else {
@@ -382,9 +382,9 @@ public class ShorthandParserEventHandler extends LipidBaseParserEventHandler {
         }
 
         String fa_i = faI();
-        if (currentFas.peekLast().getDoubleBonds().getNumDoubleBonds() != (int) ((Dictionary) tmp.get(fa_i)).get("db_count")) {
+        if (currentFas.peekLast().peekDoubleBonds().getNumDoubleBonds() != (int) ((Dictionary) tmp.get(fa_i)).get("db_count")) {
             throw new LipidException("Double bond count does not match with number of double bond positions");
-        } else if (currentFas.peekLast().getDoubleBonds().getNumDoubleBonds() > 0 && currentFas.peekLast().getDoubleBonds().getDoubleBondPositions().isEmpty()) {
+        } else if (currentFas.peekLast().peekDoubleBonds().getNumDoubleBonds() > 0 && currentFas.peekLast().peekDoubleBonds().getDoubleBondPositions().isEmpty()) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
         tmp.remove(fa_i);
@@ -584,11 +584,11 @@ public class ShorthandParserEventHandler extends LipidBaseParserEventHandler {
     }
 
     private void setCycleDbPositions(TreeNode node) {
-        ((Dictionary) tmp.get(faI())).put("cycle_db", ((Cycle) currentFas.peekLast()).getDoubleBonds().getNumDoubleBonds());
+        ((Dictionary) tmp.get(faI())).put("cycle_db", ((Cycle) currentFas.peekLast()).peekDoubleBonds().getNumDoubleBonds());
     }
 
     private void checkCycleDbPositions(TreeNode node) {
-        if (((Cycle) currentFas.peekLast()).getDoubleBonds().getNumDoubleBonds() != (int) ((Dictionary) tmp.get(faI())).get("cycle_db")) {
+        if (((Cycle) currentFas.peekLast()).peekDoubleBonds().getNumDoubleBonds() != (int) ((Dictionary) tmp.get(faI())).get("cycle_db")) {
             throw new LipidException("Double bond number in cycle does not correspond to number of double bond positions.");
         }
     }
@@ -727,8 +727,8 @@ public class ShorthandParserEventHandler extends LipidBaseParserEventHandler {
     private void addPlSpeciesData(TreeNode node) {
         setLipidLevel(LipidLevel.SPECIES);
         HeadgroupDecorator hgd = new HeadgroupDecorator("", knownFunctionalGroups);
-        hgd.getElements().put(Element.O, hgd.getElements().get(Element.O) + 1);
-        hgd.getElements().put(Element.H, hgd.getElements().get(Element.H) - 1);
+        hgd.getElements().increment(Element.O, 1);
+        hgd.getElements().increment(Element.H, -1);
         headgroupDecorators.add(hgd);
     }
 
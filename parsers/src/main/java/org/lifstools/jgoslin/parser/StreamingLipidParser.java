@@ -0,0 +1,330 @@
+/*
+ * Copyright 2021 Dominik Kopczynski, Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.lifstools.jgoslin.domain.LipidParsingException;
+
+/**
+ * Parses lipid names from a source of arbitrary size and hands out the results
+ * lazily, in the order of the names. At most a fixed number of names are read
+ * ahead and parsed in parallel on the executor, so the memory needed does not
+ * depend on the number of names. When reading lines of text, empty lines are
+ * skipped. A single instance may be shared by multiple threads, every
+ * iterator, stream or publisher it creates must only be consumed by one
+ * thread at a time.
+ *
+ * @author Dominik Kopczynski
+ * @author Nils Hoffmann
+ */
+public class StreamingLipidParser {
+
+    /**
+     * The default number of lipid names that are parsed ahead of the
+     * consumer.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 256;
+
+    private final LipidParser lipidParser;
+    private final Executor executor;
+    private final int windowSize;
+
+    /**
+     * Create a new streaming lipid parser that parses on the common fork-join
+     * pool with the default window size.
+     *
+     * @param lipidParser the lipid parser to parse every name with.
+     */
+    public StreamingLipidParser(LipidParser lipidParser) {
+        this(lipidParser, ForkJoinPool.commonPool(), DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a new streaming lipid parser.
+     *
+     * @param lipidParser the lipid parser to parse every name with.
+     * @param executor the executor to parse the names on.
+     * @param windowSize the maximum number of names read and parsed ahead of
+     * the consumer.
+     */
+    public StreamingLipidParser(LipidParser lipidParser, Executor executor, int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1, was " + windowSize);
+        }
+        this.lipidParser = lipidParser;
+        this.executor = executor;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Returns an iterator over the parsing results of the provided lipid
+     * names. Reading ahead starts with the first call of hasNext or next.
+     *
+     * @param lipidNames the lipid names to parse.
+     * @return the iterator over the results, in the order of the names.
+     */
+    public Iterator<LipidParserResult> iterator(Iterator<String> lipidNames) {
+        return new ResultIterator(lipidNames);
+    }
+
+    /**
+     * Returns a sequential stream of the parsing results of the provided
+     * lipid names. Closing the returned stream closes the provided stream.
+     *
+     * @param lipidNames the lipid names to parse.
+     * @return the stream of results, in the order of the names.
+     */
+    public Stream<LipidParserResult> stream(Stream<String> lipidNames) {
+        ResultIterator results = new ResultIterator(lipidNames.iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(results::cancel)
+                .onClose(lipidNames::close);
+    }
+
+    /**
+     * Returns a sequential stream of the parsing results of the non-empty
+     * lines of the provided reader. Closing the returned stream closes the
+     * reader. An {@link IOException} while reading is rethrown as an
+     * {@link UncheckedIOException}.
+     *
+     * @param reader the reader with one lipid name per line.
+     * @return the stream of results, in the order of the lines.
+     */
+    public Stream<LipidParserResult> stream(Reader reader) {
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        return stream(bufferedReader.lines().filter(line -> !line.isEmpty()).onClose(() -> {
+            try {
+                bufferedReader.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }));
+    }
+
+    /**
+     * Returns a sequential stream of the parsing results of the non-empty
+     * lines of the provided UTF-8 encoded input stream. Closing the returned
+     * stream closes the input stream.
+     *
+     * @param inputStream the input stream with one lipid name per line.
+     * @return the stream of results, in the order of the lines.
+     */
+    public Stream<LipidParserResult> stream(InputStream inputStream) {
+        return stream(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a sequential stream of the parsing results of the non-empty
+     * lines of the provided UTF-8 encoded file. The returned stream must be
+     * closed to close the file.
+     *
+     * @param path the file with one lipid name per line.
+     * @return the stream of results, in the order of the lines.
+     * @throws IOException if the file can not be opened.
+     */
+    public Stream<LipidParserResult> stream(Path path) throws IOException {
+        return stream(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a publisher of the parsing results of the provided lipid names.
+     * Reading starts with the first request of the subscriber and never gets
+     * more than the window size ahead of the published results. The results
+     * are published on the executor threads. The publisher accepts a single
+     * subscriber, the provided stream is closed when the subscriber completes,
+     * fails or cancels.
+     *
+     * @param lipidNames the lipid names to parse.
+     * @return the publisher of the results, in the order of the names.
+     */
+    public Flow.Publisher<LipidParserResult> publisher(Stream<String> lipidNames) {
+        AtomicBoolean subscribed = new AtomicBoolean(false);
+        return subscriber -> {
+            if (subscribed.getAndSet(true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("Publisher accepts a single subscriber only"));
+                return;
+            }
+            ResultSubscription subscription = new ResultSubscription(stream(lipidNames), subscriber);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    // reads ahead up to windowSize names, results are taken from the head of the window
+    private final class ResultIterator implements Iterator<LipidParserResult> {
+
+        private final Iterator<String> lipidNames;
+        private final ArrayDeque<FutureTask<LipidParserResult>> window = new ArrayDeque<>();
+        private int limit = windowSize;
+
+        private ResultIterator(Iterator<String> lipidNames) {
+            this.lipidNames = lipidNames;
+        }
+
+        private void fill() {
+            while (window.size() < limit && lipidNames.hasNext()) {
+                String lipidName = lipidNames.next();
+                FutureTask<LipidParserResult> task = new FutureTask<>(() -> lipidParser.parseDetailed(lipidName));
+                window.add(task);
+                executor.execute(task);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !window.isEmpty();
+        }
+
+        @Override
+        public LipidParserResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FutureTask<LipidParserResult> task = window.poll();
+            try {
+                // no-op if the executor already started the task
+                task.run();
+                return task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new LipidParsingException("Interrupted while parsing lipid names", ex);
+            } catch (ExecutionException ex) {
+                throw new LipidParsingException("Could not parse lipid names", ex.getCause());
+            }
+        }
+
+        private void cancel() {
+            limit = 0;
+            // drops the tasks that have not started, running parses are short and must not leave interrupts on the executor threads
+            for (FutureTask<LipidParserResult> task : window) {
+                task.cancel(false);
+            }
+            window.clear();
+        }
+    }
+
+    // emits the results of a stream as requested, all calls of the subscriber are made by one drain at a time on the executor
+    private final class ResultSubscription implements Flow.Subscription {
+
+        private final Stream<LipidParserResult> results;
+        private final Iterator<LipidParserResult> resultIterator;
+        private final Flow.Subscriber<? super LipidParserResult> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // number of drain requests, only the one that raises it from zero runs a drain
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile Throwable error = null;
+        private boolean done = false;
+
+        private ResultSubscription(Stream<LipidParserResult> results, Flow.Subscriber<? super LipidParserResult> subscriber) {
+            this.results = results;
+            this.resultIterator = results.iterator();
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " results, must be positive");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                while (!done) {
+                    if (cancelled || error != null) {
+                        finish(error);
+                    } else if (demand.get() == 0) {
+                        break;
+                    } else {
+                        try {
+                            if (resultIterator.hasNext()) {
+                                LipidParserResult result = resultIterator.next();
+                                demand.decrementAndGet();
+                                subscriber.onNext(result);
+                            } else {
+                                finish(null);
+                                subscriber.onComplete();
+                            }
+                        } catch (RuntimeException ex) {
+                            error = ex;
+                        }
+                    }
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void finish(Throwable failure) {
+            done = true;
+            try {
+                results.close();
+            } finally {
+                if (failure != null && !cancelled) {
+                    subscriber.onError(failure);
+                }
+            }
+        }
+    }
+}
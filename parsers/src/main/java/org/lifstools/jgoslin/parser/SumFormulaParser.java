@@ -44,7 +44,7 @@ public class SumFormulaParser extends Parser<ElementTable> {
      * {@link StringFunctions#DEFAULT_QUOTE}.
      */
     public SumFormulaParser() {
-        this(StringFunctions.getResourceAsString(DEFAULT_GRAMMAR), StringFunctions.DEFAULT_QUOTE);
+        super(GrammarRegistry.getCompiledGrammar(DEFAULT_GRAMMAR, StringFunctions.DEFAULT_QUOTE, content -> new SumFormulaParser(content, StringFunctions.DEFAULT_QUOTE)));
     }
 
     @Override
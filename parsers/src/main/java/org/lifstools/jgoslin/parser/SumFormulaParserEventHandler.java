@@ -59,7 +59,7 @@ public class SumFormulaParserEventHandler extends BaseParserEventHandler<Element
     }
 
     private void elementGroupPostEvent(TreeNode node) {
-        content.put(element, content.get(element) + count);
+        content.increment(element, count);
     }
 
     private void elementPreEvent(TreeNode node) {
@@ -77,7 +77,7 @@ public class SumFormulaParserEventHandler extends BaseParserEventHandler<Element
         String parsed_element = node.getText();
         if (Elements.ELEMENT_POSITIONS.containsKey(parsed_element)) {
             element = Elements.ELEMENT_POSITIONS.get(parsed_element);
-            content.put(element, content.get(element) + 1);
+            content.increment(element, 1);
         } else {
             throw new LipidException("Error: element '" + parsed_element + "' is unknown");
         }
@@ -179,18 +179,18 @@ public class SwissLipidsParserEventHandler extends LipidBaseParserEventHandler {
     }
 
     private void cleanLcb(TreeNode node) {
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
         currentFa = null;
     }
 
     private void appendFa(TreeNode node) {
-        if (currentFa.getDoubleBonds().getNumDoubleBonds() < 0) {
+        if (currentFa.peekDoubleBonds().getNumDoubleBonds() < 0) {
             throw new LipidException("Double bond count does not match with number of double bond positions");
         }
 
-        if (currentFa.getDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.getDoubleBonds().getNumDoubleBonds() > 0) {
+        if (currentFa.peekDoubleBonds().getDoubleBondPositions().isEmpty() && currentFa.peekDoubleBonds().getNumDoubleBonds() > 0) {
             setLipidLevel(LipidLevel.SN_POSITION);
         }
 
@@ -276,7 +276,7 @@ public class SwissLipidsParserEventHandler extends LipidBaseParserEventHandler {
     }
 
     private void addDoubleBonds(TreeNode node) {
-        currentFa.getDoubleBonds().setNumDoubleBonds(currentFa.getDoubleBonds().getNumDoubleBonds() + node.getInt());
+        currentFa.getDoubleBonds().setNumDoubleBonds(currentFa.peekDoubleBonds().getNumDoubleBonds() + node.getInt());
     }
 
     private void addCarbon(TreeNode node) {
@@ -286,7 +286,7 @@ public class SwissLipidsParserEventHandler extends LipidBaseParserEventHandler {
     private void setSpeciesFa(TreeNode node) {
         headGroup += " 27:1";
         faList.get(faList.size() - 1).setNumCarbon(faList.get(faList.size() - 1).getNumCarbon() - 27);
-        faList.get(faList.size() - 1).getDoubleBonds().setNumDoubleBonds(faList.get(faList.size() - 1).getDoubleBonds().getNumDoubleBonds() - 1);
+        faList.get(faList.size() - 1).getDoubleBonds().setNumDoubleBonds(faList.get(faList.size() - 1).peekDoubleBonds().getNumDoubleBonds() - 1);
     }
 
     private void newAdduct(TreeNode node) {
@@ -28,6 +28,10 @@ public final class TreeNode {
     TreeNode right;
     char terminal;
     boolean fire_event;
+    // the parsed text and the span of this node within it
+    String text;
+    int start;
+    int end;
     public static final char EOF_SIGN = '\0';
     public static final String ONE_STR = "\0";
 
@@ -39,16 +43,34 @@ public final class TreeNode {
         fire_event = _fire_event;
     }
 
+    TreeNode(long _rule, boolean _fire_event, String _text, int _start, int _end) {
+        this(_rule, _fire_event);
+        text = _text;
+        start = _start;
+        end = _end;
+    }
+
+    // end of the text of this node, the EOF sign appended for parsing is not part of it
+    private int textEnd() {
+        return (end > start && text.charAt(end - 1) == Parser.EOF_SIGN) ? end - 1 : end;
+    }
+
     public String getText() {
+        if (text != null) {
+            return text.substring(start, textEnd());
+        }
         if (terminal == '\0') {
             String left_str = left.getText();
             String right_str = right != null ? right.getText() : "";
             return (!left_str.equals(ONE_STR) ? left_str : "") + (!right_str.equals(ONE_STR) ? right_str : "");
         }
-        return String.valueOf(terminal);
+        return terminal != Parser.EOF_SIGN ? String.valueOf(terminal) : "";
     }
 
     public int getInt() {
+        if (text != null) {
+            return Integer.parseInt(text, start, textEnd(), 10);
+        }
         return Integer.valueOf(getText());
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.domain;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class ElementTableTest {
+
+    @Test
+    public void testCounts() {
+        ElementTable et = ElementTable.of(Map.entry(Element.C, 42), Map.entry(Element.H, 82), Map.entry(Element.N, 1), Map.entry(Element.O, 8), Map.entry(Element.P, 1));
+        assertEquals("C42H82NO8P", et.getSumFormula());
+        et.increment(Element.H, 1);
+        assertEquals(83, et.getCount(Element.H));
+        assertEquals(0, et.getCount(Element.S));
+        assertEquals(760.5856, et.getMass(), 1.0e-4);
+        assertEquals(42 * 12.0, et.getMass(Element.C), 1.0e-9);
+
+        ElementTable sum = new ElementTable();
+        sum.add(et, 2);
+        sum.add(et);
+        assertEquals("C126H249N3O24P3", sum.getSumFormula());
+        et.multiply(3);
+        assertEquals(sum, et);
+        assertEquals("", new ElementTable().getSumFormula());
+        assertEquals(0.0d, new ElementTable().getMass());
+
+        ElementTable copy = et.copy();
+        copy.setCount(Element.C, 1);
+        assertEquals(126, et.getCount(Element.C));
+    }
+
+    @Test
+    public void testMapView() {
+        ElementTable et = new ElementTable();
+        EnumMap<Element, Integer> expected = new EnumMap<>(Element.class);
+        Elements.ELEMENT_MASSES.keySet().forEach(e -> expected.put(e, 0));
+        assertEquals(expected, et);
+        assertEquals(expected.hashCode(), et.hashCode());
+        assertEquals(expected.toString(), et.toString());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(et.keySet()));
+        assertFalse(et.containsKey(Element.D));
+        assertNull(et.get(Element.D));
+
+        assertEquals(0, et.put(Element.C, 3));
+        et.entrySet().stream().filter(kv -> kv.getKey() == Element.H).forEach(kv -> kv.setValue(8));
+        assertEquals(8, et.getCount(Element.H));
+        assertEquals(3, et.remove(Element.C));
+        assertFalse(et.containsKey(Element.C));
+        assertEquals(expected.size() - 1, et.size());
+        et.put(Element.D, 1);
+        assertTrue(et.containsKey(Element.D));
+        assertEquals(expected.size(), et.size());
+        et.clear();
+        assertTrue(et.isEmpty());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.lifstools.jgoslin.parser.LipidParser;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class FrozenLipidAdductTest {
+
+    private static final LipidParser PARSER = new LipidParser();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "PC 16:0/18:1(9Z)[M+H]1+",
+        "PE 18:1(9Z)/20:4(5Z,8Z,11Z,14Z)",
+        "TG 16:0_18:1_18:2",
+        "Cer 18:1(4E);1OH,3OH/16:0",
+        "PC 16:0/18:1[M[2]H9]",
+        "PGE2",
+        "HexCer 18:1;O2/24:0",
+        "LPC O-16:0"})
+    public void testRoundTrip(String name) {
+        LipidAdduct lipid = PARSER.parse(name);
+        FrozenLipidAdduct frozen = lipid.freeze();
+        LipidAdduct thawed = frozen.thaw();
+        assertNotSame(lipid, thawed);
+        assertEquals(lipid.getLipidLevel(), frozen.getLipidLevel());
+        assertEquals(lipid.getClassName(), frozen.getClassName());
+        for (LipidLevel level : LipidLevel.values()) {
+            if (level.level <= lipid.getLipidLevel().level && level != LipidLevel.NO_LEVEL && level != LipidLevel.UNDEFINED_LEVEL) {
+                assertEquals(lipid.getLipidString(level), thawed.getLipidString(level), level.name());
+            }
+        }
+        assertEquals(lipid.getSumFormula(), thawed.getSumFormula());
+        assertEquals(lipid.getMass(), thawed.getMass(), 1.0e-9);
+        assertEquals(lipid.getLipidString(), frozen.getLipidString());
+        assertEquals(frozen, PARSER.parse(name).freeze());
+        assertEquals(frozen.hashCode(), PARSER.parse(name).freeze().hashCode());
+        assertNotEquals(frozen, PARSER.parse("PC 16:0/18:2(9Z,12Z)").freeze());
+    }
+
+    @Test
+    public void testCanonicalOrder() {
+        LipidAdduct lipid = PARSER.parse("FA 18:1(9Z);5OH;12oxo;10Me");
+        LipidAdduct reordered = lipid.copy();
+        FattyAcid fa = reordered.getLipid().getFaList().get(0);
+        List<String> keys = new ArrayList<>(fa.getFunctionalGroupsInternal().keySet());
+        Collections.reverse(keys);
+        HashMap<String, ArrayList<FunctionalGroup>> functionalGroups = new HashMap<>(1024);
+        for (String key : keys) {
+            functionalGroups.put(key, fa.getFunctionalGroupsInternal().get(key));
+        }
+        // the maps iterate in different orders
+        assertNotEquals(new ArrayList<>(fa.getFunctionalGroupsInternal().keySet()), new ArrayList<>(functionalGroups.keySet()));
+        fa.setFunctionalGroups(functionalGroups);
+        assertEquals(lipid.freeze(), reordered.freeze());
+        assertEquals(lipid.freeze().hashCode(), reordered.freeze().hashCode());
+    }
+
+    @Test
+    public void testBoundedStringPool() {
+        FrozenLipidAdduct.StringPool pool = new FrozenLipidAdduct.StringPool(2);
+        LipidAdduct lipid = PARSER.parse("Cer 18:1(4E);1OH,3OH/16:0[M+H]1+");
+        FrozenLipidAdduct frozen = FrozenLipidAdduct.of(lipid, pool);
+        assertEquals(2, pool.size());
+        assertEquals(frozen, FrozenLipidAdduct.of(PARSER.parse("Cer 18:1(4E);1OH,3OH/16:0[M+H]1+"), pool));
+        assertEquals(2, pool.size());
+        assertEquals("Cer", frozen.getClassName());
+        LipidAdduct thawed = frozen.thaw();
+        for (LipidLevel level : LipidLevel.values()) {
+            if (level.level <= lipid.getLipidLevel().level && level != LipidLevel.UNDEFINED_LEVEL) {
+                assertEquals(lipid.getLipidString(level), thawed.getLipidString(level), level.name());
+            }
+        }
+        assertEquals(lipid.getSumFormula(), thawed.getSumFormula());
+    }
+
+    @Test
+    public void testCachedLipidString() {
+        FrozenLipidAdduct frozen = PARSER.parse("PC 16:0/18:1(9Z)[M+H]1+").freeze();
+        assertEquals("PC 16:0/18:1(9Z)[M+H]1+", frozen.getLipidString());
+        assertSame(frozen.getLipidString(), frozen.getLipidString());
+        assertSame(frozen.getLipidString(), frozen.toString());
+    }
+}
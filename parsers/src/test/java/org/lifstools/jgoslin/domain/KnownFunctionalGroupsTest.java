@@ -15,7 +15,10 @@
  */
 package org.lifstools.jgoslin.domain;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +39,69 @@ public class KnownFunctionalGroupsTest {
         assertEquals(groups.get("Me").getName(), functionalGroup.getName());
     }
 
+    @Test
+    public void testCopyOnWrite() {
+        var groups = new KnownFunctionalGroups();
+        FunctionalGroup oh = groups.get("OH");
+        FunctionalGroup copy = oh.copy();
+        assertTrue(oh.isShared());
+        assertTrue(copy.isShared());
+        assertEquals("OH", oh.toString(LipidLevel.FULL_STRUCTURE));
+
+        // modifications only affect the modified group
+        oh.setPosition(3);
+        oh.getElements().increment(Element.O, -1);
+        oh.getDoubleBonds().setNumDoubleBonds(1);
+        assertFalse(oh.isShared());
+        assertEquals(0, oh.getElements().getCount(Element.O));
+        assertEquals(1, copy.getElements().getCount(Element.O));
+        assertEquals(-1, copy.getPosition());
+        assertEquals(1, groups.get("OH").getElements().getCount(Element.O));
+        assertEquals(0, groups.get("OH").getDoubleBonds().getNumDoubleBonds());
+
+        HeadgroupDecorator decorator = (HeadgroupDecorator) groups.get("Hex");
+        assertTrue(decorator.isShared());
+        assertTrue(decorator.copy() instanceof HeadgroupDecorator);
+        decorator.getFunctionalGroupsInternal().put("OH", new ArrayList<>(List.of(groups.get("OH"))));
+        assertTrue(groups.get("Hex").getFunctionalGroupsInternal().isEmpty());
+    }
+
+    @Test
+    public void testReadingKeepsSharing() {
+        var groups = new KnownFunctionalGroups();
+        FunctionalGroup oh = groups.get("OH");
+        assertEquals(0, oh.peekDoubleBonds().getNumDoubleBonds());
+        assertTrue(oh.peekFunctionalGroups().isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> oh.peekFunctionalGroups().put("OH", new ArrayList<>()));
+        assertTrue(oh.isShared());
+    }
+
+    @Test
+    public void testCycleRearrangementKeepsTemplate() {
+        var groups = new KnownFunctionalGroups();
+        DoubleBonds db = new DoubleBonds(2);
+        db.getDoubleBondPositions().put(5, "Z");
+        db.getDoubleBondPositions().put(12, "E");
+        FunctionalGroup hydroxy = groups.get("OH");
+        hydroxy.setPosition(6);
+        HashMap<String, ArrayList<FunctionalGroup>> fg = new HashMap<>();
+        fg.put("OH", new ArrayList<>(List.of(hydroxy)));
+        FunctionalGroup template = new FunctionalGroup("X", -1, 1, db, false, "", false, null, fg, groups);
+        FunctionalGroup parent = template.sharedCopy();
+
+        Cycle cycle = new Cycle(5, 4, 8, groups);
+        cycle.rearrangeFunctionalGroups(parent, 0);
+        assertEquals(Set.of(5), cycle.peekDoubleBonds().getDoubleBondPositions().keySet());
+        assertEquals(1, cycle.peekFunctionalGroups().get("OH").size());
+        assertEquals(Set.of(12), parent.peekDoubleBonds().getDoubleBondPositions().keySet());
+        assertFalse(parent.peekFunctionalGroups().containsKey("OH"));
+
+        // the template is untouched
+        assertEquals(Set.of(5, 12), template.peekDoubleBonds().getDoubleBondPositions().keySet());
+        assertEquals(2, template.peekDoubleBonds().getNumDoubleBonds());
+        assertEquals(List.of(hydroxy), template.peekFunctionalGroups().get("OH"));
+    }
+
     @Test
     public void testDuplicateDetection() {
         List<String> lines = StringFunctions.getResourceAsStringList(new ClassPathResource("functional-groups.csv"));
@@ -15,21 +15,152 @@
  */
 package org.lifstools.jgoslin.domain;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import org.lifstools.jgoslin.parser.ShorthandParser;
 
 /**
  *
  * @author Nils Hoffmann
  */
 public class LipidAdductTest {
-    
+
     public LipidAdductTest() {
     }
 
-    // TODO add test methods here.
-    // The methods must be annotated with annotation @Test. For example:
-    //
-    // @Test
-    // public void hello() {}
+    @Test
+    public void testCachedComposition() {
+        ShorthandParser parser = new ShorthandParser();
+        LipidAdduct lipid = parser.parse("PC 16:0/18:1(9Z)[M+H]1+", parser.newEventHandler());
+        assertEquals("C42H83NO8P", lipid.getSumFormula());
+        assertEquals(760.5851, lipid.getMass(), 1.0e-4);
+        assertSame(lipid.getSumFormula(), lipid.getSumFormula());
+
+        // the returned element tables do not share state with the lipid
+        lipid.getElements().increment(Element.C, 10);
+        assertEquals(42, lipid.getElements().getCount(Element.C));
+        LipidAdduct copy = lipid.copy();
+        assertEquals(lipid.getSumFormula(), copy.getSumFormula());
+
+        // modifications of the parts are seen on the next access
+        lipid.getLipid().getFaList().get(0).setNumCarbon(18);
+        assertEquals("C44H87NO8P", lipid.getSumFormula());
+        assertEquals(788.6164, lipid.getMass(), 1.0e-4);
+        assertEquals("C42H83NO8P", copy.getSumFormula());
+        assertSame(lipid.getSumFormula(), lipid.getSumFormula());
+        lipid.getAdduct().setCharge(2);
+        lipid.getAdduct().setAdductString("+2H");
+        assertEquals("C44H88NO8P", lipid.getSumFormula());
+    }
+
+    @Test
+    public void testCachedLipidStrings() {
+        ShorthandParser parser = new ShorthandParser();
+        LipidAdduct lipid = parser.parse("PC 16:0/18:1(9Z)[M+H]1+", parser.newEventHandler());
+        assertEquals(LipidLevel.COMPLETE_STRUCTURE, lipid.getLipidLevel());
+        assertEquals("PC 16:0/18:1(9Z)[M+H]1+", lipid.getLipidString());
+        assertEquals("GP", lipid.getLipidString(LipidLevel.CATEGORY));
+        assertEquals("PC", lipid.getLipidString(LipidLevel.CLASS));
+        assertEquals("PC 34:1[M+H]1+", lipid.getLipidString(LipidLevel.SPECIES));
+        assertEquals("PC 16:0_18:1[M+H]1+", lipid.getLipidString(LipidLevel.MOLECULAR_SPECIES));
+        assertSame(lipid.getLipidString(LipidLevel.SPECIES), lipid.getLipidString(LipidLevel.SPECIES));
+        assertEquals(lipid.getLipidString(), lipid.copy().getLipidString());
+        LipidAdduct species = parser.parse("PC 34:1", parser.newEventHandler());
+        assertEquals("PC 34:1", species.getLipidString(LipidLevel.SPECIES));
+        assertThrows(IllegalArgumentException.class, () -> species.getLipidString(LipidLevel.MOLECULAR_SPECIES));
+
+        // modifications of the parts are seen on the next access, on every level
+        LipidAdduct copy = lipid.copy();
+        lipid.getLipid().getFaList().get(0).setNumCarbon(18);
+        assertEquals("PC 18:0/18:1(9Z)[M+H]1+", lipid.getLipidString());
+        assertEquals("PC 18:0_18:1[M+H]1+", lipid.getLipidString(LipidLevel.MOLECULAR_SPECIES));
+        assertEquals("PC 18:0/18:1(9Z)[M+H]1+", lipid.getLipidString(LipidLevel.COMPLETE_STRUCTURE));
+        assertEquals("PC 18:0/18:1(9Z)[M+H]1+", lipid.appendTo(new StringBuilder(), LipidLevel.NO_LEVEL).toString());
+        assertEquals("PC 16:0/18:1(9Z)[M+H]1+", copy.getLipidString());
+        assertEquals("PC 16:0_18:1[M+H]1+", copy.getLipidString(LipidLevel.MOLECULAR_SPECIES));
+
+        // levels requested after a modification reflect it, whichever level was rendered before
+        LipidAdduct lazy = parser.parse("PC 16:0/18:1(9Z)[M+H]1+", parser.newEventHandler());
+        assertEquals("PC 16:0/18:1(9Z)[M+H]1+", lazy.getLipidString());
+        lazy.getLipid().getFaList().get(1).getDoubleBonds().getDoubleBondPositions().put(9, "E");
+        assertEquals("PC 16:0_18:1[M+H]1+", lazy.getLipidString(LipidLevel.MOLECULAR_SPECIES));
+        assertEquals("PC 16:0/18:1(9E)[M+H]1+", lazy.getLipidString());
+        assertEquals(lazy.getLipidString(LipidLevel.COMPLETE_STRUCTURE), lazy.getLipidStrings().get(LipidLevel.COMPLETE_STRUCTURE));
+        lazy.getLipid().getFaList().get(1).setStereochemistry("R");
+        lazy.getLipid().getFaList().get(1).getDoubleBonds().getDoubleBondPositions().put(9, "Z");
+        assertEquals("PC 16:0/18:1(9Z)[M+H]1+", lazy.getLipidStrings().get(LipidLevel.FULL_STRUCTURE));
+        assertEquals("PC 16:0/18:1(9Z)[R][M+H]1+", lazy.getLipidString());
+    }
+
+    @Test
+    public void testGetLipidStrings() {
+        ShorthandParser parser = new ShorthandParser();
+        LipidAdduct lipid = parser.parse("PC 16:0/18:1(9Z)[M+H]1+", parser.newEventHandler());
+        String sn = lipid.getLipidString(LipidLevel.SN_POSITION);
+        Map<LipidLevel, String> lipidStrings = lipid.getLipidStrings();
+        assertEquals(List.of(LipidLevel.NO_LEVEL, LipidLevel.CATEGORY, LipidLevel.CLASS, LipidLevel.SPECIES, LipidLevel.MOLECULAR_SPECIES,
+                LipidLevel.SN_POSITION, LipidLevel.STRUCTURE_DEFINED, LipidLevel.FULL_STRUCTURE, LipidLevel.COMPLETE_STRUCTURE), new ArrayList<>(lipidStrings.keySet()));
+        assertSame(sn, lipidStrings.get(LipidLevel.SN_POSITION));
+        assertEquals("PC 34:1[M+H]1+", lipidStrings.get(LipidLevel.SPECIES));
+        assertSame(lipidStrings.get(LipidLevel.SPECIES), lipid.getLipidString(LipidLevel.SPECIES));
+
+        LipidAdduct species = parser.parse("PC 34:1", parser.newEventHandler());
+        assertEquals(Map.of(LipidLevel.NO_LEVEL, "PC 34:1", LipidLevel.CATEGORY, "GP", LipidLevel.CLASS, "PC", LipidLevel.SPECIES, "PC 34:1"), species.getLipidStrings());
+    }
+
+    @Test
+    public void testAppendTo() {
+        ShorthandParser parser = new ShorthandParser();
+        LipidAdduct lipid = parser.parse("Cer 18:1(4E);1OH,3OH/16:0[M+H]1+", parser.newEventHandler());
+        LipidAdduct uncached = lipid.copy();
+        StringBuilder sb = new StringBuilder("name: ");
+        assertSame(sb, uncached.appendTo(sb, LipidLevel.SN_POSITION));
+        assertEquals("name: Cer 18:1;O2/16:0[M+H]1+", sb.toString());
+        assertEquals("SP", uncached.appendTo(new StringBuilder(), LipidLevel.CATEGORY).toString());
+        assertEquals("Cer 18:1(4E);1OH,3OH/16:0", lipid.getLipid().appendTo(new StringBuilder(), LipidLevel.NO_LEVEL).toString());
+        assertEquals("[M+H]1+", lipid.getAdduct().appendTo(new StringBuilder()).toString());
+        for (LipidLevel level : new LipidLevel[]{LipidLevel.NO_LEVEL, LipidLevel.CATEGORY, LipidLevel.CLASS, LipidLevel.SPECIES,
+            LipidLevel.MOLECULAR_SPECIES, LipidLevel.SN_POSITION, LipidLevel.STRUCTURE_DEFINED, LipidLevel.FULL_STRUCTURE}) {
+            assertEquals(lipid.getLipidString(level), uncached.appendTo(new StringBuilder(), level).toString());
+            assertEquals(lipid.getLipidString(level), lipid.appendTo(new StringBuilder(), level).toString());
+        }
+    }
+    @Test
+    public void testOverriddenNameMethods() {
+        ShorthandParser parser = new ShorthandParser();
+        KnownFunctionalGroups knownFunctionalGroups = new KnownFunctionalGroups();
+        LipidAdduct parsed = parser.parse("PC 16:0/18:1(9Z)", parser.newEventHandler());
+        Headgroup headgroup = parsed.getLipid().getHeadGroup();
+
+        // a functional group nested in a fatty acyl chain
+        FattyAcid fa = parsed.getLipid().getFaList().get(1);
+        FunctionalGroup custom = new FunctionalGroup("OH", 12, 1, knownFunctionalGroups) {
+            @Override
+            public String toString(LipidLevel level) {
+                return "custom";
+            }
+        };
+        fa.getFunctionalGroupsInternal().put("OH", new ArrayList<>(List.of(custom)));
+        LipidAdduct lipid = new LipidAdduct(parsed.getLipid(), null);
+        assertEquals("PC 16:0/18:1(9Z);custom", lipid.getLipidString(LipidLevel.FULL_STRUCTURE));
+
+        LipidSpecies species = new LipidSpecies(headgroup, knownFunctionalGroups) {
+            @Override
+            public String getLipidString(LipidLevel level) {
+                return "custom species";
+            }
+        };
+        assertEquals("custom species", new LipidAdduct(species, null).getLipidString(LipidLevel.SPECIES));
+
+        LipidMolecularSpecies molecularSpecies = new LipidMolecularSpecies(headgroup, List.of(new FattyAcid("FA", 16, knownFunctionalGroups), new FattyAcid("FA", 18, knownFunctionalGroups)), knownFunctionalGroups) {
+            @Override
+            public String buildLipidSubspeciesName(LipidLevel level) {
+                return "custom " + level.name();
+            }
+        };
+        assertEquals("custom MOLECULAR_SPECIES", new LipidAdduct(molecularSpecies, null).getLipidString(LipidLevel.MOLECULAR_SPECIES));
+    }
 }
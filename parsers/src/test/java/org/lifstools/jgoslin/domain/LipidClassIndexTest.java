@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.domain;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class LipidClassIndexTest {
+
+    @Test
+    public void testLookup() {
+        LipidClasses lipidClasses = LipidClasses.getInstance();
+        LipidClassIndex index = LipidClassIndex.getInstance();
+        HashMap<String, Integer> expected = new HashMap<>();
+        for (int l_class = 0; l_class < lipidClasses.size(); ++l_class) {
+            for (String hg : lipidClasses.get(l_class).synonyms) {
+                expected.put(hg, l_class);
+            }
+            assertEquals(lipidClasses.get(l_class).synonyms.get(0), index.getClassString(l_class));
+        }
+        expected.forEach((hg, l_class) -> {
+            assertEquals(l_class, index.getLipidClass(hg), hg);
+            assertEquals(lipidClasses.get(l_class).lipidCategory, index.getCategory(hg), hg);
+            assertEquals(expected.getOrDefault(hg + "X", LipidClasses.UNDEFINED_CLASS), index.getLipidClass(hg + "X"), hg);
+            String prefix = hg.substring(0, hg.length() - 1);
+            assertEquals(expected.getOrDefault(prefix, LipidClasses.UNDEFINED_CLASS), index.getLipidClass(prefix), prefix);
+        });
+        assertEquals("PC", lipidClasses.get(index.getLipidClass("PC")).lipidClassName);
+        assertEquals(LipidCategory.GP, index.getCategory("PC"));
+        assertEquals(LipidClasses.UNDEFINED_CLASS, index.getLipidClass("not a head group"));
+        assertEquals(LipidCategory.UNDEFINED, index.getCategory(""));
+        assertEquals(LipidCategory.UNDEFINED, index.getCategory(null));
+        assertEquals(LipidClasses.UNDEFINED_CLASS, index.getLipidClass(null));
+        assertEquals("UNDEFINED", index.getClassString(-1));
+        assertEquals("UNDEFINED", index.getClassString(lipidClasses.size()));
+    }
+
+    @Test
+    public void testSynonymOfSeveralClasses() {
+        LipidClassIndex index = new LipidClassIndex(List.of(
+                lipidClass(LipidCategory.NO_CATEGORY, "UNDEFINED"),
+                lipidClass(LipidCategory.GP, "PA", "X"),
+                lipidClass(LipidCategory.GL, "DG", "X", "XY")));
+        assertEquals(1, index.getLipidClass("PA"));
+        assertEquals(2, index.getLipidClass("X"));
+        assertEquals(LipidCategory.GL, index.getCategory("XY"));
+        assertEquals(LipidClasses.UNDEFINED_CLASS, index.getLipidClass("XYZ"));
+        assertEquals("DG", index.getClassString(2));
+    }
+
+    @Test
+    public void testSameHashCode() {
+        // "Aa" and "BB" have the same string hash code
+        LipidClassIndex index = new LipidClassIndex(List.of(
+                lipidClass(LipidCategory.NO_CATEGORY, "UNDEFINED"),
+                lipidClass(LipidCategory.GP, "Aa"),
+                lipidClass(LipidCategory.GL, "BB")));
+        assertEquals(1, index.getLipidClass("Aa"));
+        assertEquals(2, index.getLipidClass("BB"));
+        assertEquals(LipidCategory.GL, index.getCategory("BB"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedHeadgroupMaps() {
+        assertEquals(Headgroup.getClass("PC"), Headgroup.StringClass.get("PC"));
+        assertEquals(LipidCategory.GP, Headgroup.StringCategory.get("PC"));
+        assertEquals("PC", Headgroup.ClassString.get(Headgroup.getClass("PC")));
+        assertEquals(LipidClasses.getInstance().size(), Headgroup.ClassString.size());
+        assertThrows(UnsupportedOperationException.class, () -> Headgroup.StringClass.put("PC", 0));
+    }
+
+    private static LipidClassMeta lipidClass(LipidCategory category, String... synonyms) {
+        return new LipidClassMeta(category, synonyms[0], "", 0, 0, new HashSet<>(), new ElementTable(), List.of(synonyms));
+    }
+}
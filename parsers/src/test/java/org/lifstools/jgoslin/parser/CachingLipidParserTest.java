@@ -0,0 +1,207 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+import org.lifstools.jgoslin.domain.LipidLevel;
+import org.lifstools.jgoslin.domain.LipidParsingException;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class CachingLipidParserTest {
+
+    private static LipidParser parser;
+
+    @BeforeAll
+    public static void setupParser() {
+        parser = new LipidParser();
+    }
+
+    private static String render(Supplier<Object> value) {
+        try {
+            return String.valueOf(value.get());
+        } catch (RuntimeException e) {
+            return "!" + e.getClass().getSimpleName();
+        }
+    }
+
+    // everything a caller can observe of a parsed lipid
+    private static String describe(LipidAdduct lipid) {
+        StringBuilder sb = new StringBuilder(lipid.getLipid().getClass().getSimpleName());
+        sb.append(" ").append(render(lipid::getLipidString));
+        for (LipidLevel level : LipidLevel.values()) {
+            if (level.level >= LipidLevel.CATEGORY.level && level.level <= lipid.getLipidLevel().level) {
+                sb.append(" | ").append(render(() -> lipid.getLipidString(level)));
+            }
+        }
+        sb.append(" | ").append(render(lipid::getSumFormula));
+        sb.append(" | ").append(render(lipid::getMass));
+        sb.append(" | ").append(render(lipid::getExtendedClass));
+        sb.append(" | ").append(lipid.getLipid().getFaList().size());
+        return sb.toString();
+    }
+
+    @Test
+    public void testCopiesAreEqualAndIndependent() {
+        int copied = 0;
+        for (String file : List.of("testfiles/goslin-test.csv", "testfiles/hmdb-test.csv", "testfiles/swiss-lipids-test.csv", "testfiles/shorthand-test.csv")) {
+            List<String> names = StringFunctions.getResourceAsStringList(file).stream()
+                    .map(line -> line.split("[\\t,]")[0].replace("\"", ""))
+                    .filter(name -> !name.isEmpty())
+                    .limit(500)
+                    .collect(Collectors.toList());
+            for (String name : names) {
+                LipidParserResult result = parser.parseDetailed(name);
+                if (!result.isSuccess()) {
+                    continue;
+                }
+                LipidAdduct lipid = result.getLipidAdduct().get();
+                String expected = describe(lipid);
+                LipidAdduct copy = lipid.copy();
+                assertNotSame(lipid.getLipid(), copy.getLipid());
+                assertEquals(expected, describe(copy), name);
+
+                copy.getLipid().getHeadGroup().setHeadgroup("XX");
+                copy.getLipid().getHeadGroup().getDecorators().clear();
+                copy.getLipid().getFaList().forEach(fa -> fa.getDoubleBonds().setNumDoubleBonds(fa.getDoubleBonds().getNumDoubleBonds() + 1));
+                copy.getLipid().getInfo().numEthers += 1;
+                assertEquals(expected, describe(lipid), name);
+                ++copied;
+            }
+        }
+        assertTrue(copied > 1000, "copied " + copied);
+    }
+
+    @Test
+    public void testHitsMissesAndNegativeCaching() {
+        CachingLipidParser cache = new CachingLipidParser(parser, 10);
+        LipidAdduct first = cache.parse("PE 18:1(8Z);1OH,3OH/24:0");
+        LipidAdduct second = cache.parse("PE 18:1(8Z);1OH,3OH/24:0");
+        assertNotSame(first, second);
+        assertEquals(first.getLipidString(), second.getLipidString());
+        // changes by one caller are not seen by the next one
+        first.getLipid().getHeadGroup().setHeadgroup("PC");
+        assertEquals("PE 18:1(8Z);1OH,3OH/24:0", cache.parse("PE 18:1(8Z);1OH,3OH/24:0").getLipidString());
+        assertEquals("Shorthand2020", cache.parseDetailed("PE 18:1(8Z);1OH,3OH/24:0").getGrammar().get());
+
+        assertThrows(LipidParsingException.class, () -> cache.parse("Cer 189:as7"));
+        LipidParserResult failed = cache.parseDetailed("Cer 189:as7");
+        assertFalse(failed.isSuccess());
+        assertTrue(failed.getErrorMessage().get().contains("Cer 189:as7"));
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(3, statistics.getHits());
+        assertEquals(1, statistics.getNegativeHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(0, statistics.getEvictions());
+        assertEquals(2, statistics.getSize());
+        assertEquals(10, statistics.getMaximumSize());
+        assertEquals(4.0 / 6.0, statistics.getHitRate(), 1e-9);
+
+        cache.clear();
+        assertEquals(0, cache.getStatistics().getSize());
+        cache.parseDetailed("Cer 189:as7");
+        assertEquals(3, cache.getStatistics().getMisses());
+
+        CachingLipidParser positiveOnly = new CachingLipidParser(parser, 10, false);
+        positiveOnly.parseDetailed("Cer 189:as7");
+        positiveOnly.parseDetailed("Cer 189:as7");
+        assertEquals(2, positiveOnly.getStatistics().getMisses());
+        assertEquals(0, positiveOnly.getStatistics().getSize());
+
+        assertThrows(IllegalArgumentException.class, () -> new CachingLipidParser(parser, 0));
+    }
+
+    @Test
+    public void testEviction() {
+        CachingLipidParser cache = new CachingLipidParser(parser, 3);
+        cache.parse("PC 16:0/18:1");
+        cache.parse("PE 16:0/18:1");
+        cache.parse("PS 16:0/18:1");
+        // looked up since insertion, gets a second chance
+        cache.parse("PC 16:0/18:1");
+        cache.parse("PI 16:0/18:1");
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getEvictions());
+        assertEquals(3, statistics.getSize());
+
+        cache.parse("PC 16:0/18:1");
+        cache.parse("PI 16:0/18:1");
+        assertEquals(3, cache.getStatistics().getHits());
+        cache.parse("PE 16:0/18:1");
+        assertEquals(5, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        CachingLipidParser cache = new CachingLipidParser(parser, 50);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            names.add("PC " + (i % 30 + 10) + ":" + (i % 4) + "/18:1");
+        }
+        names.add("Cer 189:as7");
+        List<String> expected = names.stream().map(name -> parser.parseDetailed(name)).map(result -> result.isSuccess() ? result.getLipidAdduct().get().getLipidString() : result.getErrorMessage().get()).collect(Collectors.toList());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                futures.add(executor.submit(() -> {
+                    List<String> results = new ArrayList<>();
+                    for (int r = 0; r < 5; ++r) {
+                        results.clear();
+                        for (String name : names) {
+                            LipidParserResult result = cache.parseDetailed(name);
+                            if (result.isSuccess()) {
+                                LipidAdduct lipid = result.getLipidAdduct().get();
+                                results.add(lipid.getLipidString());
+                                lipid.getLipid().getHeadGroup().setHeadgroup("XX");
+                            } else {
+                                results.add(result.getErrorMessage().get());
+                            }
+                        }
+                    }
+                    return results;
+                }));
+            }
+            for (Future<List<String>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(4 * 5 * names.size(), statistics.getHits() + statistics.getNegativeHits() + statistics.getMisses());
+        assertTrue(statistics.getSize() <= 50);
+        assertTrue(statistics.getEvictions() > 0);
+    }
+}
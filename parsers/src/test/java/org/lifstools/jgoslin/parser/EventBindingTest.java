@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.ConstraintViolationException;
+import org.lifstools.jgoslin.domain.Element;
+import org.lifstools.jgoslin.domain.ElementTable;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class EventBindingTest {
+
+    // records all events of all rules of the grammar
+    private static class RecordingEventHandler extends BaseParserEventHandler<LipidAdduct> {
+
+        private final List<String> events = new ArrayList<>();
+
+        RecordingEventHandler(Parser<LipidAdduct> parser) {
+            for (String rule : parser.NTtoRule.values()) {
+                registeredEvents.put(rule + EventBinding.PRE_EVENT, record(rule + EventBinding.PRE_EVENT));
+                registeredEvents.put(rule + EventBinding.POST_EVENT, record(rule + EventBinding.POST_EVENT));
+            }
+        }
+
+        private Consumer<TreeNode> record(String event) {
+            return (node) -> events.add(event + ": " + node.getText());
+        }
+
+        @Override
+        protected void resetParser(TreeNode node) {
+        }
+    }
+
+    @Test
+    public void testBindingIsResolvedOnce() {
+        SumFormulaParser parser = new SumFormulaParser();
+        ElementTable table = parser.parse("C6H12O6", parser.newEventHandler());
+        assertEquals(6, table.get(Element.C));
+        assertEquals(1, parser.eventBindings.size());
+        EventBinding binding = parser.eventBindings.values().iterator().next();
+        table = parser.parse("H2O", parser.newEventHandler());
+        assertEquals(2, table.get(Element.H));
+        assertEquals(1, parser.eventBindings.size());
+        assertSame(binding, parser.eventBindings.get(parser.newEventHandler().registeredEvents.keySet()));
+
+        int slot = binding.slot(parser.ruleToNT.get("molecule").intValue());
+        assertTrue(slot >= 0);
+        assertEquals("molecule_pre_event", binding.preEvent(slot));
+        assertEquals(null, binding.postEvent(slot));
+        assertEquals(-1, binding.slot(parser.ruleToNT.get("digit").intValue()));
+    }
+
+    @Test
+    public void testUnknownEventIsRejected() {
+        SumFormulaParser parser = new SumFormulaParser();
+        SumFormulaParserEventHandler handler = new SumFormulaParserEventHandler();
+        handler.registeredEvents = new HashMap<>(handler.registeredEvents);
+        handler.registeredEvents.put("unknown_rule_pre_event", handler::resetParser);
+        assertThrows(ConstraintViolationException.class, () -> parser.parse("H2O", handler));
+        assertTrue(parser.eventBindings.isEmpty());
+
+        // the events of every handler are checked, even if the class was bound before
+        parser.parse("H2O", parser.newEventHandler());
+        assertThrows(ConstraintViolationException.class, () -> parser.parse("H2O", handler));
+        assertEquals(1, parser.eventBindings.size());
+    }
+
+    @Test
+    public void testHandlersWithOtherEventsGetOwnBinding() {
+        ShorthandParser parser = new ShorthandParser();
+        RecordingEventHandler all = new RecordingEventHandler(parser);
+        parser.parse("PE 18:1/20:4", all);
+        RecordingEventHandler some = new RecordingEventHandler(parser);
+        some.registeredEvents.keySet().removeIf(event -> !event.startsWith("fa_"));
+        parser.parse("PE 18:1/20:4", some);
+        assertEquals(2, parser.eventBindings.size());
+        assertTrue(some.events.size() > 0);
+        assertTrue(some.events.stream().allMatch(event -> event.startsWith("fa_")));
+        assertEquals(all.events.stream().filter(event -> event.startsWith("fa_")).collect(Collectors.toList()), some.events);
+    }
+
+    @Test
+    public void testEventsFromChartMatchParseTree() {
+        ShorthandParser parser = new ShorthandParser();
+        assertTrue(parser.isBuildingParseTree());
+        for (String name : List.of("PE 18:1(8Z);1OH,3OH/24:0", "Cer 18:1;O2/16:0", "TG 16:0_18:1_18:2[M+NH4]1+", "FA 20:4(5Z,8Z,11Z,14Z)")) {
+            RecordingEventHandler fromTree = new RecordingEventHandler(parser);
+            parser.setBuildingParseTree(true);
+            parser.parse(name, fromTree);
+            RecordingEventHandler fromChart = new RecordingEventHandler(parser);
+            parser.setBuildingParseTree(false);
+            parser.parse(name, fromChart);
+            assertTrue(fromTree.events.size() > 10);
+            assertEquals(fromTree.events, fromChart.events);
+        }
+    }
+}
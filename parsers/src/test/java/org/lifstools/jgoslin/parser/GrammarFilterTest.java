@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+import org.lifstools.jgoslin.domain.KnownFunctionalGroups;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class GrammarFilterTest {
+
+    private static LipidMapsParser parser;
+
+    @BeforeAll
+    public static void setupParser() {
+        parser = new LipidMapsParser(new KnownFunctionalGroups(StringFunctions.getResourceAsStringList("functional-groups.csv"), new SumFormulaParser()));
+    }
+
+    @Test
+    public void testSumFormulaFilter() {
+        SumFormulaParser sumFormulaParser = new SumFormulaParser();
+        GrammarFilter filter = sumFormulaParser.filter;
+        // one element followed by EOF
+        assertEquals(2, filter.minLength());
+        assertEquals(GrammarFilter.UNBOUNDED, filter.maxLength());
+        assertTrue(filter.firstChars().get('C'));
+        assertTrue(filter.firstChars().get('A'));
+        assertFalse(filter.firstChars().get('1'));
+        assertFalse(filter.firstChars().get('-'));
+        assertEquals(1, filter.lastChars().cardinality());
+        assertTrue(filter.lastChars().get(Parser.EOF_SIGN));
+
+        assertTrue(sumFormulaParser.mayParse("C6H12O6"));
+        assertTrue(sumFormulaParser.mayParse("C"));
+        assertFalse(sumFormulaParser.mayParse(""));
+        assertFalse(sumFormulaParser.mayParse("6C"));
+        assertFalse(sumFormulaParser.mayParse("C6H12O6x"));
+    }
+
+    @Test
+    public void testFattyAcidFilterIgnoresCase() {
+        FattyAcidParser fattyAcidParser = new FattyAcidParser();
+        assertTrue(fattyAcidParser.mayParse("Hexadecanoic acid"));
+        assertNotNull(fattyAcidParser.parse("Hexadecanoic acid", fattyAcidParser.newEventHandler()));
+    }
+
+    @Test
+    public void testAdjacentCharacters() {
+        SumFormulaParser sumFormulaParser = new SumFormulaParser();
+        GrammarFilter filter = sumFormulaParser.filter;
+        assertTrue(filter.mayFollow('C', '6'));
+        assertTrue(filter.mayFollow('6', 'H'));
+        assertTrue(filter.mayFollow('O', Parser.EOF_SIGN));
+        assertFalse(filter.mayFollow(Parser.EOF_SIGN, 'C'));
+        assertFalse(filter.mayFollow('x', 'C'));
+        // only the element symbols Cl, Ca, ... may follow C with a lower case letter
+        assertFalse(filter.mayFollow('C', 'e'));
+        assertFalse(sumFormulaParser.mayParse("Ce6"));
+        assertNotNull(sumFormulaParser.parse("CCl4", sumFormulaParser.newEventHandler()));
+        assertTrue(sumFormulaParser.mayParse("CCl4"));
+    }
+
+    @Test
+    public void testParsableNamesPassAllFilters() {
+        KnownFunctionalGroups knownFunctionalGroups = new KnownFunctionalGroups(StringFunctions.getResourceAsStringList("functional-groups.csv"), new SumFormulaParser());
+        List<Parser<LipidAdduct>> parsers = List.of(new ShorthandParser(knownFunctionalGroups), new FattyAcidParser(knownFunctionalGroups), new GoslinParser(knownFunctionalGroups), new LipidMapsParser(knownFunctionalGroups), new SwissLipidsParser(knownFunctionalGroups), new HmdbParser(knownFunctionalGroups));
+        Map<String, Integer> files = Map.of("testfiles/shorthand-test.csv", 0, "testfiles/fatty-acids-test.csv", 1, "testfiles/goslin-test.csv", 0, "testfiles/lipid-maps-test.csv", 0, "testfiles/swiss-lipids-test.csv", 0, "testfiles/hmdb-test.csv", 0);
+        int parsed = 0;
+        for (Map.Entry<String, Integer> file : files.entrySet()) {
+            List<String> names = StringFunctions.getResourceAsStringList(file.getKey()).stream()
+                    .map(line -> column(line, file.getValue()))
+                    .filter(name -> !name.isEmpty())
+                    .limit(1000)
+                    .collect(Collectors.toList());
+            for (String name : names) {
+                for (Parser<LipidAdduct> grammarParser : parsers) {
+                    if (grammarParser.parse(name, grammarParser.newEventHandler(), false) != null) {
+                        assertTrue(grammarParser.mayParse(name), grammarParser.grammarName + ": " + name);
+                        ++parsed;
+                    }
+                }
+            }
+        }
+        assertTrue(parsed > 4000, "parsed " + parsed);
+    }
+
+    private static String column(String line, int column) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == ',' || c == '\t')) {
+                columns.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        columns.add(current.toString());
+        return column < columns.size() ? columns.get(column) : "";
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @CsvFileSource(resources = "/testfiles/lipid-maps-test.csv", numLinesToSkip = 0, delimiter = ',', encoding = "UTF-8", lineSeparator = "\n")
+    public void testParsableNamesPassFilter(String lipidName, String expectedLipidName) {
+        if (expectedLipidName == null || expectedLipidName.isEmpty()) {
+            return;
+        }
+        assertTrue(parser.mayParse(lipidName), lipidName);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class GrammarHitWindowTest {
+
+    @Test
+    public void testSlidingWindow() {
+        GrammarHitWindow window = new GrammarHitWindow(List.of("A", "B", "C"), 3);
+        assertArrayEquals(new int[]{0, 1, 2}, window.order());
+
+        window.record(2);
+        window.record(GrammarHitWindow.NO_GRAMMAR);
+        window.record(1);
+        // ties keep the defined order
+        assertArrayEquals(new int[]{1, 2, 0}, window.order());
+
+        window.record(2);
+        GrammarStatistics statistics = window.snapshot();
+        assertEquals(3, statistics.getWindowSize());
+        assertEquals(3, statistics.getParsedInWindow());
+        assertEquals(4, statistics.getParsedTotal());
+        assertEquals(1, statistics.getFailedInWindow());
+        assertEquals(Map.of("A", 0, "B", 1, "C", 1), statistics.getHits());
+        assertEquals(List.of("B", "C", "A"), statistics.getAdaptiveOrder());
+
+        // the first C and the failure drop out of the window
+        window.record(2);
+        window.record(2);
+        statistics = window.snapshot();
+        assertEquals(0, statistics.getFailedInWindow());
+        assertEquals(Map.of("A", 0, "B", 0, "C", 3), statistics.getHits());
+        assertEquals(List.of("C", "A", "B"), statistics.getAdaptiveOrder());
+
+        assertThrows(IllegalArgumentException.class, () -> new GrammarHitWindow(List.of("A"), 0));
+    }
+
+    @Test
+    public void testConcurrentRecords() throws Exception {
+        GrammarHitWindow window = new GrammarHitWindow(List.of("A", "B", "C"), 100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                int grammar = t - 1;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; ++i) {
+                        window.record(grammar);
+                        window.order();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        GrammarStatistics statistics = window.snapshot();
+        assertEquals(40000, statistics.getParsedTotal());
+        assertEquals(100, statistics.getParsedInWindow());
+        // every name in the window is counted exactly once
+        assertEquals(100, statistics.getFailedInWindow() + statistics.getHits().values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void testLipidParserStatistics() {
+        LipidParser parser = new LipidParser();
+        assertEquals(List.of("Shorthand2020", "FattyAcids", "Goslin", "LipidMaps", "SwissLipids", "HMDB"), parser.getGrammarStatistics().getAdaptiveOrder());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 3; ++i) {
+                parser.parseDetailed("PC(16:0/18:1(9Z))");
+                parser.parseDetailed("PC(16:0/18:1(9Z))", executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        parser.parseDetailed("PE 18:1(8Z);1OH,3OH/24:0");
+        parser.parseDetailed("Cer 189:as7");
+
+        GrammarStatistics statistics = parser.getGrammarStatistics();
+        assertEquals(8, statistics.getParsedTotal());
+        assertEquals(1, statistics.getFailedInWindow());
+        assertEquals(1, statistics.getHits().get("Shorthand2020"));
+        assertEquals(6, statistics.getHits().get("LipidMaps"));
+        assertEquals(List.of("LipidMaps", "Shorthand2020", "FattyAcids", "Goslin", "SwissLipids", "HMDB"), statistics.getAdaptiveOrder());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.KnownFunctionalGroups;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class GrammarRegistryTest {
+
+    @Test
+    public void testParsersShareCompiledGrammars() {
+        ShorthandParser first = new ShorthandParser();
+        ShorthandParser second = new ShorthandParser(new KnownFunctionalGroups());
+        assertTrue(GrammarRegistry.isCompiled("Shorthand2020.g4", StringFunctions.DEFAULT_QUOTE));
+        assertSame(first.NTtoNT, second.NTtoNT);
+        assertSame(first.rulePairs, second.rulePairs);
+        assertSame(first.filter, second.filter);
+        assertEquals("Shorthand2020", second.grammarName);
+        assertSame(new SumFormulaParser().TtoNT, new SumFormulaParser().TtoNT);
+
+        // the settings are not shared
+        first.setBuildingParseTree(false);
+        assertTrue(second.isBuildingParseTree());
+        LipidAdduct lipid = second.parse("PE 18:1(8Z);1OH,3OH/24:0", second.newEventHandler());
+        assertEquals("PE 18:1(8Z);1OH,3OH/24:0", lipid.getLipidString());
+        assertEquals(lipid.getLipidString(), first.parse("PE 18:1(8Z);1OH,3OH/24:0", first.newEventHandler()).getLipidString());
+
+        // parsers with their own grammar content compile it themselves
+        ShorthandParser own = new ShorthandParser(GrammarRegistry.getKnownFunctionalGroups(), StringFunctions.getResourceAsString("Shorthand2020.g4"), StringFunctions.DEFAULT_QUOTE);
+        assertNotSame(first.NTtoNT, own.NTtoNT);
+        assertEquals(first.NTtoNT, own.NTtoNT);
+    }
+
+    @Test
+    public void testLazyCompilationAndWarmUp() {
+        LipidParser lipidParser = new LipidParser();
+        assertEquals(List.of("Shorthand2020", "FattyAcids", "Goslin", "LipidMaps", "SwissLipids", "HMDB"), new ArrayList<>(lipidParser.getGrammarStatistics().getHits().keySet()));
+        for (String grammar : new ArrayList<>(lipidParser.getGrammarStatistics().getHits().keySet())) {
+            assertFalse(lipidParser.isCompiled(grammar), grammar);
+        }
+        assertEquals("Shorthand2020", lipidParser.parseDetailed("PE 18:1(8Z);1OH,3OH/24:0").getGrammar().get());
+        assertTrue(lipidParser.isCompiled("Shorthand2020"));
+        assertFalse(lipidParser.isCompiled("HMDB"));
+
+        lipidParser.warmUp();
+        for (String grammar : new ArrayList<>(lipidParser.getGrammarStatistics().getHits().keySet())) {
+            assertTrue(lipidParser.isCompiled(grammar), grammar);
+        }
+        assertEquals(1, lipidParser.getGrammarStatistics().getParsedTotal());
+        assertEquals("LipidMaps", lipidParser.parseDetailed("PC(16:0/18:1(9Z))").getGrammar().get());
+    }
+
+    @Test
+    public void testLazyCompilationWithExecutor() {
+        LipidParser lipidParser = new LipidParser();
+        // an executor that never starts the attempts, they are run by the calling thread in the defined order
+        List<Runnable> queued = new ArrayList<>();
+        LipidParserResult result = lipidParser.parseDetailed("PE 18:1(8Z);1OH,3OH/24:0", queued::add);
+        assertEquals("Shorthand2020", result.getGrammar().get());
+        assertEquals(6, queued.size());
+        assertTrue(lipidParser.isCompiled("Shorthand2020"));
+        for (String grammar : List.of("FattyAcids", "Goslin", "LipidMaps", "SwissLipids", "HMDB")) {
+            assertFalse(lipidParser.isCompiled(grammar), grammar);
+        }
+        // the attempts no longer needed were cancelled before they started
+        queued.forEach(Runnable::run);
+        assertFalse(lipidParser.isCompiled("HMDB"));
+
+        result = lipidParser.parseDetailed("PC(16:0/18:1(9Z))", Runnable::run);
+        assertEquals("LipidMaps", result.getGrammar().get());
+        assertEquals(List.of("Shorthand2020", "FattyAcids", "Goslin"), new ArrayList<>(result.getFailureMessages().keySet()));
+    }
+
+    @Test
+    public void testCachedGrammarNames() {
+        String name = GrammarRegistry.getGrammarName("HMDB.g4");
+        assertEquals("HMDB", name);
+        assertSame(name, GrammarRegistry.getGrammarName("HMDB.g4"));
+    }
+
+    @Test
+    public void testSharedKnownFunctionalGroups() {
+        assertSame(GrammarRegistry.getKnownFunctionalGroups(), GrammarRegistry.getKnownFunctionalGroups());
+        assertEquals("Cer 18:1;O2/16:0", new LipidParser().parse("Cer 18:1;O2/16:0").getLipidString());
+        assertEquals("Cer 18:1;O2/16:0", new LipidParser().parse("Cer 18:1;O2/16:0").getLipidString());
+    }
+}
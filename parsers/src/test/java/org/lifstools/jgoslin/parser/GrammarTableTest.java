@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.ElementTable;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class GrammarTableTest {
+
+    @Test
+    public void testTableMatchesCompiledGrammar() throws IOException {
+        String grammar = StringFunctions.getResourceAsString("SumFormula.g4");
+        // a trailing blank line changes the checksum, so this grammar is compiled
+        SumFormulaParser compiled = new SumFormulaParser(grammar + "\n", StringFunctions.DEFAULT_QUOTE);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GrammarTable.write(compiled, 42, new DataOutputStream(bytes));
+        SumFormulaParser loaded = new SumFormulaParser(grammar, StringFunctions.DEFAULT_QUOTE);
+        loaded.ruleToNT.clear();
+        loaded.NTtoRule.clear();
+        loaded.TtoNT.clear();
+        loaded.originalTtoNT.clear();
+        loaded.NTtoNT.clear();
+        loaded.substitution.clear();
+        loaded.rulePairs = null;
+        assertFalse(GrammarTable.read(loaded, 41, ByteBuffer.wrap(bytes.toByteArray())));
+        assertTrue(GrammarTable.read(loaded, 42, ByteBuffer.wrap(bytes.toByteArray())));
+
+        assertEquals(compiled.grammarName, loaded.grammarName);
+        assertEquals(compiled.nextFreeRuleIndex, loaded.nextFreeRuleIndex);
+        assertEquals(compiled.ruleToNT, loaded.ruleToNT);
+        assertEquals(compiled.NTtoRule, loaded.NTtoRule);
+        assertEquals(compiled.TtoNT, loaded.TtoNT);
+        assertEquals(compiled.originalTtoNT, loaded.originalTtoNT);
+        assertEquals(compiled.NTtoNT, loaded.NTtoNT);
+        assertEquals(compiled.substitution, loaded.substitution);
+
+        ElementTable e = loaded.parse("C6H12O6", loaded.newEventHandler());
+        assertEquals("C6H12O6", e.getSumFormula());
+    }
+
+    @Test
+    public void testGrammarName() {
+        assertEquals("Shorthand2020", GrammarTable.grammarName(StringFunctions.getResourceAsString("Shorthand2020.g4")));
+    }
+}
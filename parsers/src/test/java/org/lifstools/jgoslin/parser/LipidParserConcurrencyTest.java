@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+import org.lifstools.jgoslin.domain.LipidLevel;
+import org.lifstools.jgoslin.domain.LipidParsingException;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class LipidParserConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 2;
+
+    private static LipidParser parser;
+    private static List<String> names;
+
+    @BeforeAll
+    public static void setupParser() {
+        parser = new LipidParser();
+        names = new ArrayList<>();
+        // a mix of names of all grammars and names no grammar can parse
+        for (String file : List.of("testfiles/goslin-test.csv", "testfiles/hmdb-test.csv", "testfiles/swiss-lipids-test.csv")) {
+            names.addAll(StringFunctions.getResourceAsStringList(file).stream()
+                    .map(line -> line.split("\t")[0])
+                    .filter(name -> !name.isEmpty())
+                    .limit(200)
+                    .collect(Collectors.toList()));
+        }
+        names.addAll(List.of("Cer 189:as7", "PE 18:1/", "unknown lipid", "FA 18:1;", "TG 16:0_18:1_18:2[M+NH4]1+"));
+    }
+
+    private static String render(LipidParserResult result) {
+        if (!result.isSuccess()) {
+            return result.getErrorMessage().get();
+        }
+        LipidAdduct lipid = result.getLipidAdduct().get();
+        return result.getGrammar().get() + ": " + lipid.getLipidString() + " " + lipid.getLipidString(LipidLevel.SPECIES) + " " + lipid.getSumFormula();
+    }
+
+    @Test
+    public void testParseDetailed() {
+        LipidParserResult result = parser.parseDetailed("PE 18:1(8Z);1OH,3OH/24:0");
+        assertTrue(result.isSuccess());
+        assertEquals("Shorthand2020", result.getGrammar().get());
+        assertEquals("PE 18:1(8Z);1OH,3OH/24:0", result.getLipidAdduct().get().getLipidString());
+        assertTrue(result.getFailureMessages().isEmpty());
+        assertEquals(List.of("Shorthand2020"), new ArrayList<>(result.getTimings().keySet()));
+
+        result = parser.parseDetailed("Cer 189:as7");
+        assertFalse(result.isSuccess());
+        assertFalse(result.getGrammar().isPresent());
+        assertTrue(result.getErrorMessage().get().contains("at or after"));
+        assertEquals(List.of("Shorthand2020", "FattyAcids", "Goslin", "LipidMaps", "SwissLipids", "HMDB"), new ArrayList<>(result.getFailureMessages().keySet()));
+        assertEquals(result.getFailureMessages().keySet(), result.getTimings().keySet());
+        LipidParserResult failed = result;
+        LipidParsingException lpe = assertThrows(LipidParsingException.class, () -> failed.getLipidAdductOrThrow());
+        assertEquals(result.getErrorMessage().get(), lpe.getMessage());
+        assertThrows(UnsupportedOperationException.class, () -> failed.getTimings().clear());
+    }
+
+    @Test
+    public void testSharedParserFromManyThreads() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (String name : names) {
+            expected.add(render(parser.parseDetailed(name)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                int offset = t * names.size() / THREADS;
+                Callable<List<String>> task = () -> {
+                    start.await();
+                    // every thread starts at a different name, results are stored by name index
+                    List<String> results = new ArrayList<>(Collections.nCopies(names.size(), (String) null));
+                    for (int r = 0; r < ROUNDS; ++r) {
+                        for (int i = 0; i < names.size(); ++i) {
+                            int index = (offset + i) % names.size();
+                            results.set(index, render(parser.parseDetailed(names.get(index))));
+                        }
+                    }
+                    return results;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<List<String>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSpeculativeParsing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            for (String name : names) {
+                LipidParserResult sequential = parser.parseDetailed(name);
+                LipidParserResult speculative = parser.parseDetailed(name, executor);
+                assertEquals(render(sequential), render(speculative));
+                assertEquals(sequential.getFailureMessages(), speculative.getFailureMessages());
+                assertEquals(sequential.getTimings().keySet(), speculative.getTimings().keySet());
+            }
+            LipidAdduct lipid = parser.parse("PE 18:1(8Z);1OH,3OH/24:0", executor);
+            assertEquals("PE 18:1(8Z);1OH,3OH/24:0", lipid.getLipidString());
+            assertEquals("Shorthand2020", parser.getLastSuccessfulGrammar());
+            assertThrows(LipidParsingException.class, () -> parser.parse("Cer 189:as7", executor));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParseAll() throws Exception {
+        List<String> batch = new ArrayList<>(names);
+        // repeated names, also within the same batch of the executor
+        batch.addAll(names.subList(0, 100));
+        batch.add(1, names.get(0));
+        List<String> expected = batch.stream().map(name -> render(parser.parseDetailed(name))).collect(Collectors.toList());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<LipidParserResult> results = parser.parseAll(batch, executor);
+            assertEquals(batch, results.stream().map(LipidParserResult::getLipidName).collect(Collectors.toList()));
+            assertEquals(expected, results.stream().map(LipidParserConcurrencyTest::render).collect(Collectors.toList()));
+            assertNotSame(results.get(0).getLipidAdduct().get(), results.get(1).getLipidAdduct().get());
+        } finally {
+            executor.shutdownNow();
+        }
+        // a shut down executor rejects every batch
+        assertThrows(RejectedExecutionException.class, () -> parser.parseAll(batch, executor));
+        // an executor that never runs anything leaves all batches to the calling thread
+        assertEquals(expected, parser.parseAll(batch, command -> {
+        }).stream().map(LipidParserConcurrencyTest::render).collect(Collectors.toList()));
+        assertEquals(expected, parser.parseAll(batch.stream()).stream().map(LipidParserConcurrencyTest::render).collect(Collectors.toList()));
+        assertTrue(parser.parseAll(List.of()).isEmpty());
+    }
+
+    @Test
+    public void testInterruptedParse() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            String result = executor.submit(() -> {
+                // a pending interrupt is left to the caller and does not affect parsing
+                Thread.currentThread().interrupt();
+                LipidAdduct lipid = new LipidParser().parse("PC 16:0/18:1");
+                assertTrue(Thread.interrupted());
+                return lipid.getLipidString();
+            }).get();
+            assertEquals("PC 16:0/18:1", result);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelledParse() {
+        ShorthandParser shorthandParser = new ShorthandParser();
+        BaseParserEventHandler<LipidAdduct> handler = shorthandParser.newEventHandler();
+        // a cancelled attempt is not a failure of the grammar
+        assertThrows(CancellationException.class, () -> shorthandParser.parse("PE 18:1(8Z);1OH,3OH/24:0", handler, new ParseWorkspace(), false, () -> true));
+        assertEquals("", handler.errorMessage);
+    }
+
+    @Test
+    public void testSpeculativeParsingOnCommonPool() {
+        List<String> valid = names.stream().filter(name -> parser.parseDetailed(name).isSuccess()).collect(Collectors.toList());
+        for (int round = 0; round < 5; ++round) {
+            for (String name : valid.subList(0, 50)) {
+                parser.parseDetailed(name, ForkJoinPool.commonPool());
+            }
+            for (LipidParserResult result : parser.parseAll(valid, ForkJoinPool.commonPool())) {
+                assertTrue(result.isSuccess(), result.getLipidName());
+            }
+        }
+    }
+
+    @Test
+    public void testNewParsersFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                futures.add(executor.submit(() -> render(new LipidParser().parseDetailed("Cer 18:1;O2/16:0"))));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("Shorthand2020: Cer 18:1;O2/16:0 Cer 34:1;O2 C34H67NO3", future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class ParseChartTest {
+
+    @Test
+    public void testFirstBackpointerWins() {
+        ParseChart chart = new ParseChart(3, 130);
+        int cell = chart.cell(1, 1);
+        chart.beginCell(cell);
+        chart.add(cell, 129, 4, 5, 0);
+        chart.add(cell, 129, 6, 7, 0);
+        chart.add(cell, 3, 8, 9, 0);
+        assertTrue(chart.endCell(cell));
+        assertTrue(chart.contains(cell, 129));
+        assertFalse(chart.contains(chart.cell(0, 1), 129));
+        int bp = chart.find(cell, 129);
+        assertEquals(4, chart.left(bp));
+        assertEquals(5, chart.right(bp));
+        assertEquals(-1, chart.find(cell, 4));
+    }
+
+    @Test
+    public void testNextRuleAscending() {
+        ParseChart chart = new ParseChart(1, 200);
+        int cell = chart.cell(0, 0);
+        chart.beginCell(cell);
+        chart.addLeaf(cell, 190, 'a');
+        chart.addLeaf(cell, 2, 'a');
+        chart.addLeaf(cell, 64, 'a');
+        chart.endCell(cell);
+        assertEquals(2, chart.nextRule(cell, 0));
+        assertEquals(64, chart.nextRule(cell, 3));
+        assertEquals(190, chart.nextRule(cell, 65));
+        assertEquals(-1, chart.nextRule(cell, 191));
+        assertTrue(chart.isLeaf(chart.find(cell, 64)));
+        assertEquals('a', chart.left(chart.find(cell, 64)));
+    }
+}
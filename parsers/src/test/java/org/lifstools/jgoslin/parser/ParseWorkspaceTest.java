@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.LipidAdduct;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class ParseWorkspaceTest {
+
+    @Test
+    public void testChartIsReused() {
+        ParseWorkspace workspace = new ParseWorkspace();
+        ParseChart chart = workspace.acquire(10, 100);
+        // nested parses must not overwrite the chart in use
+        ParseChart nested = workspace.acquire(5, 100);
+        assertNotSame(chart, nested);
+        workspace.release(nested);
+        workspace.release(chart);
+        assertSame(chart, workspace.acquire(20, 2000));
+        workspace.release(chart);
+        assertNotSame(chart, workspace.acquire(ParseWorkspace.DEFAULT_MAX_RETAINED_LENGTH + 1, 100));
+    }
+
+    @Test
+    public void testLargeChartIsDropped() {
+        ParseWorkspace workspace = new ParseWorkspace();
+        // the largest grammar has about 1600 rules
+        ParseChart chart = workspace.acquire(ParseWorkspace.DEFAULT_MAX_RETAINED_LENGTH, 1600);
+        assertTrue(chart.retainedBytes() <= ParseWorkspace.DEFAULT_MAX_RETAINED_BYTES);
+        workspace.release(chart);
+        assertSame(chart, workspace.acquire(10, 100));
+        workspace.release(chart);
+        ParseChart large = workspace.acquire(ParseWorkspace.DEFAULT_MAX_RETAINED_LENGTH, 8000);
+        assertSame(chart, large);
+        workspace.release(large);
+        assertNotSame(large, workspace.acquire(10, 100));
+    }
+
+    @Test
+    public void testParseWithWorkspace() {
+        ParseWorkspace workspace = new ParseWorkspace();
+        ShorthandParser parser = new ShorthandParser();
+        LipidAdduct l = parser.parse("PE 18:1(8Z);1OH,3OH/24:0", parser.newEventHandler(), workspace, true);
+        assertEquals("PE 18:1(8Z);1OH,3OH/24:0", l.getLipidString());
+        assertNull(parser.parse("PE 18:1(8Z);1OH,3OH/24:", parser.newEventHandler(), workspace, false));
+        l = parser.parse("Cer 42:1;O2", parser.newEventHandler(), workspace, true);
+        assertEquals("Cer 42:1;O2", l.getLipidString());
+    }
+}
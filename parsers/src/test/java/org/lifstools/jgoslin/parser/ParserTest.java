@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class ParserTest {
+
+    private static final String GRAMMAR = "grammar Test;\n"
+            + "word : 'a' 'b' EOF;\n"
+            + "partial : 'a' EOF;\n";
+
+    private static class TestEventHandler extends BaseParserEventHandler<String> {
+
+        @Override
+        protected void resetParser(TreeNode node) {
+        }
+    }
+
+    private static class TestParser extends Parser<String> {
+
+        TestParser() {
+            super(GRAMMAR, StringFunctions.DEFAULT_QUOTE);
+        }
+
+        @Override
+        public BaseParserEventHandler<String> newEventHandler() {
+            return new TestEventHandler();
+        }
+    }
+
+    @Test
+    public void testErrorMessageWithoutEof() {
+        TestParser parser = new TestParser();
+        BaseParserEventHandler<String> handler = parser.newEventHandler();
+        assertNull(parser.parse("a", handler, false));
+        assertEquals("a", handler.getErrorMessage());
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.lifstools.jgoslin.domain.StringFunctions;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class StreamingLipidParserTest {
+
+    private static LipidParser parser;
+    private static List<String> names;
+    private static List<String> expected;
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setupParser() {
+        parser = new LipidParser();
+        names = StringFunctions.getResourceAsStringList("testfiles/goslin-test.csv").stream()
+                .map(line -> line.split("\t")[0])
+                .filter(name -> !name.isEmpty())
+                .limit(300)
+                .collect(Collectors.toList());
+        names.add("Cer 189:as7");
+        expected = names.stream().map(name -> render(parser.parseDetailed(name))).collect(Collectors.toList());
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static String render(LipidParserResult result) {
+        return result.getLipidName() + " -> " + (result.isSuccess() ? result.getLipidAdduct().get().getLipidString() : result.getErrorMessage().get());
+    }
+
+    @Test
+    public void testStreams() throws Exception {
+        StreamingLipidParser streamingParser = new StreamingLipidParser(parser, executor, 16);
+        String text = names.stream().collect(Collectors.joining("\n", "", "\n\n"));
+        try ( Stream<LipidParserResult> results = streamingParser.stream(new StringReader(text))) {
+            assertEquals(expected, results.map(StreamingLipidParserTest::render).collect(Collectors.toList()));
+        }
+        try ( Stream<LipidParserResult> results = streamingParser.stream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+            assertEquals(expected, results.map(StreamingLipidParserTest::render).collect(Collectors.toList()));
+        }
+        AtomicBoolean closed = new AtomicBoolean(false);
+        try ( Stream<LipidParserResult> results = streamingParser.stream(names.stream().onClose(() -> closed.set(true)))) {
+            assertEquals(expected.subList(0, 10), results.limit(10).map(StreamingLipidParserTest::render).collect(Collectors.toList()));
+        }
+        assertTrue(closed.get());
+        // an executor that never runs anything leaves all names to the consuming thread
+        assertEquals(expected, new StreamingLipidParser(parser, command -> {
+        }, 4).stream(names.stream()).map(StreamingLipidParserTest::render).collect(Collectors.toList()));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingLipidParser(parser, executor, 0));
+    }
+
+    @Test
+    public void testCloseDoesNotInterruptExecutorThreads() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            StreamingLipidParser streamingParser = new StreamingLipidParser(parser, pool, 16);
+            for (int round = 0; round < 20; ++round) {
+                try ( Stream<LipidParserResult> results = streamingParser.stream(names.stream())) {
+                    assertEquals(expected.get(0), render(results.iterator().next()));
+                }
+                assertFalse(pool.submit(() -> Thread.currentThread().isInterrupted()).get(), "round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBoundedReadAhead() {
+        AtomicInteger read = new AtomicInteger();
+        Iterator<String> source = names.stream().peek(name -> read.incrementAndGet()).iterator();
+        Iterator<LipidParserResult> results = new StreamingLipidParser(parser, executor, 8).iterator(source);
+        assertEquals(0, read.get());
+        for (int i = 0; i < 20; ++i) {
+            assertEquals(expected.get(i), render(results.next()));
+            assertTrue(read.get() <= i + 1 + 8, "read " + read.get() + " names for " + (i + 1) + " results");
+        }
+    }
+
+    @Test
+    public void testPublisher() throws Exception {
+        StreamingLipidParser streamingParser = new StreamingLipidParser(parser, executor, 8);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        Flow.Publisher<LipidParserResult> publisher = streamingParser.publisher(names.stream().onClose(() -> closed.set(true)));
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<LipidParserResult>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(3);
+            }
+
+            @Override
+            public void onNext(LipidParserResult item) {
+                received.add(render(item));
+                // one more result for every third one received
+                if (received.size() % 3 == 0) {
+                    subscription.request(3);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completed.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.complete(null);
+            }
+        });
+        completed.get(60, TimeUnit.SECONDS);
+        assertEquals(expected, received);
+        assertTrue(closed.get());
+
+        CompletableFuture<Throwable> rejected = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<LipidParserResult>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            @Override
+            public void onNext(LipidParserResult item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                rejected.complete(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertTrue(rejected.get(10, TimeUnit.SECONDS) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testPublisherCancel() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        Flow.Publisher<LipidParserResult> publisher = new StreamingLipidParser(parser, executor, 8).publisher(names.stream().onClose(() -> closed.set(true)));
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> cancelled = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<LipidParserResult>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(LipidParserResult item) {
+                received.add(render(item));
+                if (received.size() == 5) {
+                    subscription.cancel();
+                    cancelled.complete(null);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                cancelled.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                cancelled.completeExceptionally(new AssertionError("completed after cancel"));
+            }
+        });
+        cancelled.get(60, TimeUnit.SECONDS);
+        // the drain that delivered the fifth result closes the source before it returns
+        for (int i = 0; i < 100 && !closed.get(); ++i) {
+            Thread.sleep(10);
+        }
+        assertTrue(closed.get());
+        assertEquals(expected.subList(0, 5), received);
+        assertFalse(received.size() > 5);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Nils Hoffmann.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lifstools.jgoslin.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Nils Hoffmann
+ */
+public class TreeNodeTest {
+
+    @Test
+    public void testSpanText() {
+        String text = "PE 18:1/20:4";
+        TreeNode node = new TreeNode(2, true, text, 3, 5);
+        assertEquals("18", node.getText());
+        assertEquals(18, node.getInt());
+        assertEquals(text, new TreeNode(2, true, text, 0, text.length()).getText());
+        assertThrows(NumberFormatException.class, () -> new TreeNode(2, true, text, 3, 7).getInt());
+    }
+
+    @Test
+    public void testTextWithoutEof() {
+        String text = "PE 18:1/20:4" + Parser.EOF_SIGN;
+        assertEquals("PE 18:1/20:4", new TreeNode(2, true, text, 0, text.length()).getText());
+        assertEquals(4, new TreeNode(2, true, text, 11, text.length()).getInt());
+        assertEquals("", new TreeNode(2, true, text, 12, text.length()).getText());
+
+        TreeNode node = new TreeNode(2, true);
+        node.left = new TreeNode(3, false);
+        node.left.terminal = '4';
+        node.right = new TreeNode(4, false);
+        node.right.terminal = Parser.EOF_SIGN;
+        assertEquals("4", node.getText());
+    }
+
+    @Test
+    public void testTreeText() {
+        TreeNode node = new TreeNode(2, true);
+        node.left = new TreeNode(3, false);
+        node.left.terminal = '4';
+        node.right = new TreeNode(4, false);
+        node.right.terminal = '2';
+        assertEquals("42", node.getText());
+        assertEquals(42, node.getInt());
+    }
+}